@@ -0,0 +1,68 @@
+package graphs;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds every edge of the BenchmarkGraphs graph to an empty graph. A single addEdge is too short to
+ * measure once the graph fills up (every later call is a duplicate), so one invocation is the whole
+ * batch; divide by BenchmarkGraphs.edges(vertices).size() for the cost of one call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class AddEdgeBenchmark {
+
+	@Param({"ADJACENCY_LIST", "ADJACENCY_MATRIX", "ADJACENCY_MATRIX_PACKED"})
+	BenchmarkGraphs.Implementation implementation;
+
+	@Param({"1000", "4000", "8000"})
+	int vertices;
+
+	private String[] from;
+	private String[] to;
+	private Graph<String> graph;
+
+	@Setup(Level.Trial)
+	public void setUpEdges() {
+		List<int[]> edges = BenchmarkGraphs.edges(this.vertices);
+		this.from = new String[edges.size()];
+		this.to = new String[edges.size()];
+		for (int i = 0; i < edges.size(); i++) {
+			this.from[i] = BenchmarkGraphs.key(edges.get(i)[0]);
+			this.to[i] = BenchmarkGraphs.key(edges.get(i)[1]);
+		}
+	}
+
+	/**
+	 * A new empty graph for each batch; building it is not timed.
+	 */
+	@Setup(Level.Invocation)
+	public void setUpGraph() {
+		this.graph = this.implementation.create(BenchmarkGraphs.keys(this.vertices));
+	}
+
+	@Benchmark
+	public Graph<String> addEdges() {
+		for (int i = 0; i < this.from.length; i++) {
+			this.graph.addEdge(this.from[i], this.to[i]);
+		}
+		return this.graph;
+	}
+}
@@ -0,0 +1,129 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Synthetic graphs for the benchmarks, shaped like the wiki graph in the ways that matter to the
+ * measured operations: one giant strongly connected component, many small components, and some
+ * vertices that are far from the rest.
+ *
+ * The first GIANT_PERCENT of the vertices each get OUT_DEGREE random successors among themselves,
+ * which makes them strongly connected. The others form cycles of SMALL_COMPONENT_SIZE vertices
+ * joined into a one-way chain that starts at the giant component, so with the defaults the last
+ * cycle is about vertices / 15 steps away from it.
+ */
+public final class BenchmarkGraphs {
+	static final int OUT_DEGREE = 8;
+	static final int GIANT_PERCENT = 80;
+	static final int SMALL_COMPONENT_SIZE = 3;
+	static final long SEED = 19;
+
+	public enum Implementation {
+		ADJACENCY_LIST {
+			@Override
+			Graph<String> create(Set<String> keys) {
+				return new AdjacencyListGraph<String>(keys);
+			}
+		},
+		ADJACENCY_MATRIX {
+			@Override
+			Graph<String> create(Set<String> keys) {
+				return new AdjacencyMatrixGraph<String>(keys);
+			}
+		},
+		ADJACENCY_MATRIX_PACKED {
+			@Override
+			Graph<String> create(Set<String> keys) {
+				return new AdjacencyMatrixGraph<String>(keys, true);
+			}
+		};
+
+		abstract Graph<String> create(Set<String> keys);
+	}
+
+	private BenchmarkGraphs() {
+	}
+
+	/**
+	 * @param vertices
+	 * @return the keys "v0", "v1", ... in order
+	 */
+	static Set<String> keys(int vertices) {
+		Set<String> keys = new LinkedHashSet<String>();
+		for (int i = 0; i < vertices; i++) {
+			keys.add(key(i));
+		}
+		return keys;
+	}
+
+	static String key(int vertex) {
+		return "v" + vertex;
+	}
+
+	/**
+	 * @param vertices
+	 * @return the number of vertices in the giant component, which are numbered first
+	 */
+	static int giantSize(int vertices) {
+		return vertices * GIANT_PERCENT / 100;
+	}
+
+	/**
+	 * @param vertices
+	 * @return the edges as {from, to} vertex numbers, in a fixed random order
+	 */
+	static List<int[]> edges(int vertices) {
+		Random random = new Random(SEED);
+		int giant = giantSize(vertices);
+		List<int[]> edges = new ArrayList<int[]>();
+		for (int v = 0; v < giant; v++) {
+			// the ring keeps the giant component strongly connected whatever the random edges are
+			edges.add(new int[] {v, (v + 1) % giant});
+			for (int i = 1; i < OUT_DEGREE; i++) {
+				edges.add(new int[] {v, random.nextInt(giant)});
+			}
+		}
+		int previous = 0;
+		for (int first = giant; first + SMALL_COMPONENT_SIZE <= vertices; first += SMALL_COMPONENT_SIZE) {
+			for (int i = 0; i < SMALL_COMPONENT_SIZE; i++) {
+				edges.add(new int[] {first + i, first + (i + 1) % SMALL_COMPONENT_SIZE});
+			}
+			edges.add(new int[] {previous, first});
+			previous = first;
+		}
+		for (int i = edges.size() - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int[] swap = edges.get(i);
+			edges.set(i, edges.get(j));
+			edges.set(j, swap);
+		}
+		return edges;
+	}
+
+	/**
+	 * @param implementation
+	 * @param vertices
+	 * @return the benchmark graph with all of its edges
+	 */
+	static Graph<String> build(Implementation implementation, int vertices) {
+		Graph<String> graph = implementation.create(keys(vertices));
+		for (int[] edge : edges(vertices)) {
+			graph.addEdge(key(edge[0]), key(edge[1]));
+		}
+		return graph;
+	}
+
+	/**
+	 * @param vertices
+	 * @return the first vertex of the last small component, the one farthest from the giant one
+	 */
+	static int farthestVertex(int vertices) {
+		int giant = giantSize(vertices);
+		int components = (vertices - giant) / SMALL_COMPONENT_SIZE;
+		return components == 0 ? giant - 1 : giant + (components - 1) * SMALL_COMPONENT_SIZE;
+	}
+}
@@ -0,0 +1,130 @@
+package graphs;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Read operations on the BenchmarkGraphs graph. Each call takes the next of QUERIES precomputed
+ * arguments, so no single key or pair stays hot in the caches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class GraphBenchmark {
+	static final int QUERIES = 256;
+
+	@Param({"ADJACENCY_LIST", "ADJACENCY_MATRIX", "ADJACENCY_MATRIX_PACKED"})
+	BenchmarkGraphs.Implementation implementation;
+
+	@Param({"1000", "4000", "8000"})
+	int vertices;
+
+	private Graph<String> graph;
+	// hasEdge arguments, half of them edges of the graph and half random pairs
+	private String[] edgeFrom = new String[QUERIES];
+	private String[] edgeTo = new String[QUERIES];
+	// vertices of the giant component
+	private String[] giant = new String[QUERIES];
+	// shortestPath arguments two steps apart
+	private String[] nearTo = new String[QUERIES];
+	// vertices of small components
+	private String[] small = new String[QUERIES];
+	private String farthest;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.graph = BenchmarkGraphs.build(this.implementation, this.vertices);
+		Random random = new Random(BenchmarkGraphs.SEED);
+		List<int[]> edges = BenchmarkGraphs.edges(this.vertices);
+		int giantSize = BenchmarkGraphs.giantSize(this.vertices);
+		for (int i = 0; i < QUERIES; i++) {
+			if (i % 2 == 0) {
+				int[] edge = edges.get(random.nextInt(edges.size()));
+				this.edgeFrom[i] = BenchmarkGraphs.key(edge[0]);
+				this.edgeTo[i] = BenchmarkGraphs.key(edge[1]);
+			} else {
+				this.edgeFrom[i] = BenchmarkGraphs.key(random.nextInt(this.vertices));
+				this.edgeTo[i] = BenchmarkGraphs.key(random.nextInt(this.vertices));
+			}
+
+			this.giant[i] = BenchmarkGraphs.key(random.nextInt(giantSize));
+			this.nearTo[i] = this.giant[i];
+			for (Map.Entry<String,Integer> entry : this.graph.distancesFrom(this.giant[i]).entrySet()) {
+				if (entry.getValue() == 2) {
+					this.nearTo[i] = entry.getKey();
+					break;
+				}
+			}
+			this.small[i] = BenchmarkGraphs.key(giantSize + random.nextInt(this.vertices - giantSize));
+		}
+		this.farthest = BenchmarkGraphs.key(BenchmarkGraphs.farthestVertex(this.vertices));
+	}
+
+	private int nextQuery() {
+		return this.next = (this.next + 1) & (QUERIES - 1);
+	}
+
+	@Benchmark
+	public boolean hasEdge() {
+		int i = nextQuery();
+		return this.graph.hasEdge(this.edgeFrom[i], this.edgeTo[i]);
+	}
+
+	@Benchmark
+	public Object successorSet() {
+		return this.graph.successorSet(this.giant[nextQuery()]);
+	}
+
+	@Benchmark
+	public void successorIterator(Blackhole blackhole) {
+		Iterator<String> successors = this.graph.successorIterator(this.giant[nextQuery()]);
+		while (successors.hasNext()) {
+			blackhole.consume(successors.next());
+		}
+	}
+
+	@Benchmark
+	public Object shortestPathShort() {
+		int i = nextQuery();
+		return this.graph.shortestPath(this.giant[i], this.nearTo[i]);
+	}
+
+	/**
+	 * From the giant component to the end of the chain of small components.
+	 */
+	@Benchmark
+	public Object shortestPathLong() {
+		return this.graph.shortestPath(this.giant[nextQuery()], this.farthest);
+	}
+
+	@Benchmark
+	public Object stronglyConnectedComponentSmall() {
+		return this.graph.stronglyConnectedComponent(this.small[nextQuery()]);
+	}
+
+	@Benchmark
+	public Object stronglyConnectedComponentGiant() {
+		return this.graph.stronglyConnectedComponent(this.giant[nextQuery()]);
+	}
+}
@@ -5,35 +5,76 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Queue;
 import java.util.Set;
-import java.util.Stack;
+import java.util.function.IntConsumer;
 
 public class AdjacencyListGraph<T> extends Graph<T> {
 	Map<T,Vertex> keyToVertex;
+	List<Vertex> vertices;
 	 private int edgeCount;
+	// Strongly connected components of the whole graph, computed on the first query and then
+	// maintained by addEdge and removeEdge. Readers only read it, so they can share it; at worst
+	// two readers compute it twice.
+	private volatile IncrementalSCC components;
+	// The adjacency lists by vertex id, for the structures maintained on edge changes
+	private final IndexedAdjacency adjacency = new IndexedAdjacency() {
+	    @Override
+	    public int size() {
+	        return vertices.size();
+	    }
+
+	    @Override
+	    public int outDegree(int v) {
+	        return vertices.get(v).successors.size();
+	    }
+
+	    @Override
+	    public int successor(int v, int i) {
+	        return vertices.get(v).successors.get(i);
+	    }
+
+	    @Override
+	    public int inDegree(int v) {
+	        return vertices.get(v).predecessors.size();
+	    }
+
+	    @Override
+	    public int predecessor(int v, int i) {
+	        return vertices.get(v).predecessors.get(i);
+	    }
+	};
+	// Breadth-first trees of the pinned sources, by vertex id, maintained by addEdge and removeEdge
+	private final Map<Integer,DynamicBFS> pinned = new HashMap<Integer,DynamicBFS>();
+	// Condensation-based reachability filter, built by isReachable from the components above. It
+	// is kept across edge changes that cannot change which pairs are reachable and dropped on any
+	// other; shortestPath uses it while it exists, after the components' own order filter
+	private volatile ReachabilityIndex reachability;
 	private class Vertex {
 		T key;
-		List<Vertex> successors;
-		List<Vertex> predecessors;
+		int id;
+		// ids of the neighboring vertices, see NeighborSet
+		NeighborSet successors;
+		NeighborSet predecessors;
 		
 		
-		Vertex(T key) {
+		Vertex(T key, int id) {
 			this.key = key;
-			this.successors = new ArrayList<Vertex>();
-			this.predecessors = new ArrayList<Vertex>();
+			this.id = id;
+			this.successors = new NeighborSet();
+			this.predecessors = new NeighborSet();
 		}
 	}
 	
 	AdjacencyListGraph(Set<T> keys) {
 		this.keyToVertex = new HashMap<T,Vertex>();
+		this.vertices = new ArrayList<Vertex>(keys.size());
 		for (T key : keys) {
-			Vertex v = new Vertex(key);
+			Vertex v = new Vertex(key, this.vertices.size());
 			this.keyToVertex.put(key, v);
+			this.vertices.add(v);
 		}
 	}
 
@@ -59,15 +100,24 @@ public class AdjacencyListGraph<T> extends Graph<T> {
 	        throw new NoSuchElementException("One or both vertices not found");
 	    }
 
-	    // Prevent adding the same edge if it already exists.
-	    if (fromVertex.successors.contains(toVertex)) {
+	    // Add the edge unless it already exists.
+	    if (!fromVertex.successors.add(toVertex.id)) {
 	        return false; // Edge already exists
 	    }
-
-	    // Add the edge since it doesn't exist.
-	    fromVertex.successors.add(toVertex);
-	    toVertex.predecessors.add(fromVertex); // If the graph is directed
+	    toVertex.predecessors.add(fromVertex.id); // If the graph is directed
 	    edgeCount++; // increase the count of edges
+	    // If from already reached to, the new edge makes nothing reachable that was not before
+	    ReachabilityIndex index = reachability;
+	    if (index != null && !index.isReachable(fromVertex.id, toVertex.id)) {
+	        reachability = null;
+	    }
+	    IncrementalSCC scc = components;
+	    if (scc != null) {
+	        scc.edgeAdded(fromVertex.id, toVertex.id);
+	    }
+	    for (DynamicBFS tree : pinned.values()) {
+	        tree.edgeAdded(fromVertex.id, toVertex.id);
+	    }
 	    return true;
 	}
 
@@ -83,7 +133,7 @@ public class AdjacencyListGraph<T> extends Graph<T> {
 	        if (fromVertex == null || toVertex == null) {
 	            throw new NoSuchElementException("Vertex not found");
 	        }
-	        return fromVertex.successors.contains(toVertex);
+	        return fromVertex.successors.contains(toVertex.id);
 	}
 
 	@Override
@@ -93,9 +143,20 @@ public class AdjacencyListGraph<T> extends Graph<T> {
         if (fromVertex == null || toVertex == null) {
             throw new NoSuchElementException("Vertex not found");
         }
-        if (fromVertex.successors.remove(toVertex)) {
-            toVertex.predecessors.remove(fromVertex);
+        if (fromVertex.successors.remove(toVertex.id)) {
+            toVertex.predecessors.remove(fromVertex.id);
             edgeCount--;
+            IncrementalSCC scc = components;
+            if (scc != null) {
+                scc.edgeRemoved(fromVertex.id, toVertex.id);
+            }
+            for (DynamicBFS tree : pinned.values()) {
+                tree.edgeRemoved(fromVertex.id, toVertex.id);
+            }
+            // Inside a component that stays strongly connected, from still reaches to another way
+            if (scc == null || scc.componentOf(fromVertex.id) != scc.componentOf(toVertex.id)) {
+                reachability = null;
+            }
             return true;
         }
         return false; // Edge not present
@@ -134,8 +195,8 @@ public class AdjacencyListGraph<T> extends Graph<T> {
 	            throw new NoSuchElementException("Vertex not found");
 	        }
 	        Set<T> successors = new HashSet<>();
-	        for (Vertex v : vertex.successors) {
-	            successors.add(v.key);
+	        for (int i = 0; i < vertex.successors.size(); i++) {
+	            successors.add(vertices.get(vertex.successors.get(i)).key);
 	        }
 	        return successors;
 	}
@@ -147,8 +208,8 @@ public class AdjacencyListGraph<T> extends Graph<T> {
             throw new NoSuchElementException("Vertex not found");
         }
         Set<T> predecessors = new HashSet<>();
-        for (Vertex v : vertex.predecessors) {
-            predecessors.add(v.key);
+        for (int i = 0; i < vertex.predecessors.size(); i++) {
+            predecessors.add(vertices.get(vertex.predecessors.get(i)).key);
         }
         return predecessors;
 	}
@@ -159,19 +220,7 @@ public class AdjacencyListGraph<T> extends Graph<T> {
 	        if (vertex == null) {
 	            throw new NoSuchElementException("Vertex not found");
 	        }
-	        return new Iterator<T>() {
-	            private final Iterator<Vertex> it = vertex.successors.iterator();
-
-	            @Override
-	            public boolean hasNext() {
-	                return it.hasNext();
-	            }
-
-	            @Override
-	            public T next() {
-	                return it.next().key;
-	            }
-	        };
+	        return new NeighborIterator(vertex.successors);
 	}
 
 	@Override
@@ -180,97 +229,146 @@ public class AdjacencyListGraph<T> extends Graph<T> {
 		    if (vertex == null) {
 		        throw new NoSuchElementException("Vertex not found");
 		    }
-		    return new Iterator<T>() {
-		        private final Iterator<Vertex> it = vertex.predecessors.iterator();
-
-		        @Override
-		        public boolean hasNext() {
-		            return it.hasNext();
-		        }
-
-		        @Override
-		        public T next() {
-		            return it.next().key;
-		        }
-		    };
+		    return new NeighborIterator(vertex.predecessors);
 	}
-	private Map<Vertex, Integer> indices = new HashMap<>();
-	private Map<Vertex, Integer> lowlink = new HashMap<>();
-	private Stack<Vertex> stack = new Stack<>();
-	private int index = 0;
-	private List<Set<T>> sccs = new ArrayList<>();
-	private Set<Vertex> visited = new HashSet<>();
-	
 
+	/**
+	 * Lazy iterator over the keys of a neighbor set, by position.
+	 */
+	private class NeighborIterator implements Iterator<T> {
+	    private final NeighborSet neighbors;
+	    private int position;
 
+	    NeighborIterator(NeighborSet neighbors) {
+	        this.neighbors = neighbors;
+	    }
+
+	    @Override
+	    public boolean hasNext() {
+	        return position < neighbors.size();
+	    }
+
+	    @Override
+	    public T next() {
+	        if (!hasNext()) throw new NoSuchElementException();
+	        return vertices.get(neighbors.get(position++)).key;
+	    }
+	}
 
-	
 	@Override
 	public Set<T> stronglyConnectedComponent(T key) {
-	    if (!hasVertex(key)) {
+	    Vertex vertex = keyToVertex.get(key);
+	    if (vertex == null) {
 	        throw new NoSuchElementException("Vertex not found");
 	    }
+	    IncrementalSCC components = components();
+	    int component = components.componentOf(vertex.id);
+	    Set<T> members = new HashSet<>();
+	    for (int i = 0; i < components.memberCount(component); i++) {
+	        members.add(vertices.get(components.member(component, i)).key);
+	    }
+	    return members;
+	}
 
-	    // Clear the previous state
-	    indices.clear();
-	    lowlink.clear();
-	    stack.clear();
-	    sccs.clear();
-	    visited.clear(); // Reset the visited set
-	    index = 0;
-
-	    Vertex start = keyToVertex.get(key);
-	    strongConnect(start);
+	private IncrementalSCC components() {
+	    IncrementalSCC result = components;
+	    if (result == null) {
+	        result = new IncrementalSCC(adjacency);
+	        components = result;
+	    }
+	    return result;
+	}
 
-	    for (Set<T> scc : sccs) {
-	        if (scc.contains(key)) {
-	            return scc;
+	@Override
+	public boolean isReachable(T from, T to) {
+	    Vertex fromVertex = keyToVertex.get(from);
+	    Vertex toVertex = keyToVertex.get(to);
+	    if (fromVertex == null || toVertex == null) {
+	        throw new NoSuchElementException("Vertex not found");
+	    }
+	    IncrementalSCC components = components();
+	    int cu = components.componentOf(fromVertex.id), cv = components.componentOf(toVertex.id);
+	    if (cu == cv) {
+	        return true;
+	    }
+	    if (!components.mayReach(cu, cv)) {
+	        return false;
+	    }
+	    ReachabilityIndex index = reachability;
+	    if (index == null) {
+	        ReachabilityIndex.Builder builder = new ReachabilityIndex.Builder(components.componentIds(), components.idBound());
+	        for (Vertex v : vertices) {
+	            for (int i = 0; i < v.successors.size(); i++) {
+	                builder.addEdge(v.id, v.successors.get(i));
+	            }
 	        }
+	        index = builder.build();
+	        reachability = index;
 	    }
+	    return index.isReachable(fromVertex.id, toVertex.id);
+	}
 
-	    return Collections.emptySet();
+	@Override
+	public int indexOf(T key) {
+	    Vertex vertex = keyToVertex.get(key);
+	    return vertex == null ? -1 : vertex.id;
 	}
-	
-	
-	
-	//THis is current
-	
-		
-	private void strongConnect(Vertex v) {
-	    if (visited.contains(v)) {
-	        return;
-	    }
-	    visited.add(v);
-	    
-	    indices.put(v, index);
-	    lowlink.put(v, index);
-	    index++;
-	    stack.push(v);
-
-	    for (Vertex w : v.successors) {
-	        if (!indices.containsKey(w)) {
-	            strongConnect(w);
-	            lowlink.put(v, Math.min(lowlink.get(v), lowlink.get(w)));
-	        } else if (stack.contains(w)) {
-	            lowlink.put(v, Math.min(lowlink.get(v), indices.get(w)));
-	        }
+
+	@Override
+	public T keyAt(int index) {
+	    return vertices.get(index).key;
+	}
+
+	@Override
+	public NeighborCursor successorCursor() {
+	    return new ListCursor(true);
+	}
+
+	@Override
+	public NeighborCursor predecessorCursor() {
+	    return new ListCursor(false);
+	}
+
+	@Override
+	public void forEachSuccessor(int vertex, IntConsumer action) {
+	    NeighborSet successors = vertices.get(vertex).successors;
+	    for (int i = 0; i < successors.size(); i++) {
+	        action.accept(successors.get(i));
 	    }
+	}
 
-	    if (lowlink.get(v).equals(indices.get(v))) {
-	        Set<T> component = new HashSet<>();
-	        Vertex w;
-	        do {
-	            w = stack.pop();
-	            component.add(w.key);
-	        } while (!w.equals(v));
-	        sccs.add(component);
+	@Override
+	public void forEachPredecessor(int vertex, IntConsumer action) {
+	    NeighborSet predecessors = vertices.get(vertex).predecessors;
+	    for (int i = 0; i < predecessors.size(); i++) {
+	        action.accept(predecessors.get(i));
 	    }
 	}
 
+	/**
+	 * Walks a successor or predecessor list by position.
+	 */
+	private class ListCursor implements NeighborCursor {
+	    private final boolean successors;
+	    private NeighborSet list;
+	    private int position;
 
-	
+	    ListCursor(boolean successors) {
+	        this.successors = successors;
+	    }
 
+	    @Override
+	    public void reset(int vertex) {
+	        Vertex v = vertices.get(vertex);
+	        list = successors ? v.successors : v.predecessors;
+	        position = 0;
+	    }
 
+	    @Override
+	    public int next() {
+	        return position < list.size() ? list.get(position++) : -1;
+	    }
+	}
 
 	@Override
 	public List<T> shortestPath(T startLabel, T endLabel) {
@@ -279,47 +377,90 @@ public class AdjacencyListGraph<T> extends Graph<T> {
 	        throw new NoSuchElementException("Start or end vertex not found");
 	    }
 
-	    Queue<T> queue = new LinkedList<>();
-	    Map<T, T> predecessors = new HashMap<>();
-	    Set<T> visited = new HashSet<>();
-	    
-	    queue.add(startLabel);
-	    visited.add(startLabel);
-
-	    boolean pathExists = false;
+	    DynamicBFS tree = pinned.get(keyToVertex.get(startLabel).id);
+	    if (tree != null) {
+	        return pathFromTree(tree, keyToVertex.get(endLabel).id);
+	    }
 
-	    while (!queue.isEmpty()) {
-	        T current = queue.poll();
+	    // Unreachable pairs are rejected before any search: first by the topological order of the
+	    // components, which edge changes keep up to date, then by the full index if it is built. The
+	    // index is not rebuilt here, since after an edge change that costs far more than the search
+	    int from = keyToVertex.get(startLabel).id, to = keyToVertex.get(endLabel).id;
+	    IncrementalSCC components = components();
+	    if (!components.mayReach(components.componentOf(from), components.componentOf(to))) {
+	        return null;
+	    }
+	    ReachabilityIndex index = reachability;
+	    if (index != null && !index.isReachable(from, to)) {
+	        return null;
+	    }
+	    return BidirectionalSearch.shortestPath(this, startLabel, endLabel);
+	}
 
-	        // If we reached the end vertex, break out of the loop
-	        if (current.equals(endLabel)) {
-	            pathExists = true;
-	            break;
-	        }
+	/**
+	 * Walks the stored parents back from the end vertex.
+	 * @return the path from the tree's source to end, or null if end is unreachable
+	 */
+	private List<T> pathFromTree(DynamicBFS tree, int end) {
+	    if (tree.distance(end) == DynamicBFS.UNREACHABLE) {
+	        return null;
+	    }
+	    List<T> path = new ArrayList<T>(tree.distance(end) + 1);
+	    for (int v = end; v != DynamicBFS.UNREACHABLE; v = tree.parent(v)) {
+	        path.add(vertices.get(v).key);
+	    }
+	    Collections.reverse(path);
+	    return path;
+	}
 
-	        for (T neighbor : successorSet(current)) {
-	            if (!visited.contains(neighbor)) {
-	                predecessors.put(neighbor, current);
-	                visited.add(neighbor);
-	                queue.add(neighbor);
-	            }
+	@Override
+	public Map<T,Integer> distancesFrom(T key) throws NoSuchElementException {
+	    Vertex vertex = keyToVertex.get(key);
+	    DynamicBFS tree = vertex == null ? null : pinned.get(vertex.id);
+	    if (tree == null) {
+	        return super.distancesFrom(key);
+	    }
+	    Map<T,Integer> distances = new HashMap<T,Integer>();
+	    for (Vertex v : vertices) {
+	        if (tree.distance(v.id) != DynamicBFS.UNREACHABLE) {
+	            distances.put(v.key, tree.distance(v.id));
 	        }
 	    }
+	    return distances;
+	}
 
-	    // If there's no path from startLabel to endLabel
-	    if (!pathExists) {
-	       return null;
+	/**
+	 * Pins a frequently queried source: its breadth-first tree is computed now and then repaired
+	 * on every addEdge and removeEdge, so shortestPath and distancesFrom from it no longer search.
+	 * Each pinned source costs two ints per vertex and slows down edge changes; pinning and
+	 * unpinning must not run concurrently with other operations.
+	 * @param key
+	 * @return false if key was already pinned
+	 * @throws NoSuchElementException if the key is not found in the graph
+	 */
+	public boolean pinSource(T key) throws NoSuchElementException {
+	    Vertex vertex = keyToVertex.get(key);
+	    if (vertex == null) {
+	        throw new NoSuchElementException("Vertex not found");
 	    }
+	    if (pinned.containsKey(vertex.id)) {
+	        return false;
+	    }
+	    pinned.put(vertex.id, new DynamicBFS(adjacency, vertex.id));
+	    return true;
+	}
 
-	    // Reconstruct the path from endLabel to startLabel
-	    List<T> path = new ArrayList<>();
-	    T current = endLabel;
-	    while (current != null) {
-	        path.add(current);
-	        current = predecessors.get(current);
+	/**
+	 * @param key
+	 * @return false if key was not pinned
+	 * @throws NoSuchElementException if the key is not found in the graph
+	 */
+	public boolean unpinSource(T key) throws NoSuchElementException {
+	    Vertex vertex = keyToVertex.get(key);
+	    if (vertex == null) {
+	        throw new NoSuchElementException("Vertex not found");
 	    }
-	    Collections.reverse(path); // Reverse the path to get the correct order from start to end
-	    return path;
+	    return pinned.remove(vertex.id) != null;
 	}
 
 }
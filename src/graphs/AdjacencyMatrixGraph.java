@@ -1,33 +1,40 @@
 package graphs;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Queue;
 import java.util.Set;
-import java.util.Stack;
+import java.util.function.IntConsumer;
 
 
 
 public class AdjacencyMatrixGraph<T> extends Graph<T> {
 	private Map<T,Integer> keyToIndex;
 	private List<T> indexToKey;
-	private int[][] matrix;
+	private Matrix matrix;
 	private int vertexCount;
 	private int edgeCount;
 	
 	AdjacencyMatrixGraph(Set<T> keys) {
+		this(keys, false);
+	}
+	
+	/**
+	 * @param keys
+	 * @param packed if true, each row (and a transposed copy for predecessors) is stored as
+	 * a bitset of long words, which is 32 times smaller than the int matrix per copy and lets
+	 * degree counts and neighbor scans work a word at a time.
+	 */
+	AdjacencyMatrixGraph(Set<T> keys, boolean packed) {
 		int size = keys.size();
 		this.keyToIndex = new HashMap<>();
 		this.indexToKey = new ArrayList<>();
-		this.matrix = new int[size][size];
+		this.matrix = packed ? new BitMatrix(size) : new IntMatrix(size);
 		for (T key : keys) {
 			this.keyToIndex.put(key, this.vertexCount);
 			this.indexToKey.add(key);
@@ -50,8 +57,8 @@ public class AdjacencyMatrixGraph<T> extends Graph<T> {
 		if (!this.keyToIndex.containsKey(from)) throw new NoSuchElementException("Did not find 'from' vertex");
 		if (!this.keyToIndex.containsKey(to)) throw new NoSuchElementException("Did not find 'to' vertex");
 		int fromIndex = this.keyToIndex.get(from), toIndex = this.keyToIndex.get(to);
-		if (this.matrix[fromIndex][toIndex] == 0) {
-			this.matrix[fromIndex][toIndex] = 1;
+		if (!this.matrix.get(fromIndex, toIndex)) {
+			this.matrix.set(fromIndex, toIndex);
 			this.edgeCount++;
 			return true;
 		}
@@ -68,7 +75,7 @@ public class AdjacencyMatrixGraph<T> extends Graph<T> {
 		if (!this.keyToIndex.containsKey(from)) throw new NoSuchElementException("Did not find 'from' vertex");
 		if (!this.keyToIndex.containsKey(to)) throw new NoSuchElementException("Did not find 'to' vertex");
 		int fromIndex = this.keyToIndex.get(from), toIndex = this.keyToIndex.get(to);
-		return this.matrix[fromIndex][toIndex] == 1;
+		return this.matrix.get(fromIndex, toIndex);
 	}
 
 	@Override
@@ -76,8 +83,8 @@ public class AdjacencyMatrixGraph<T> extends Graph<T> {
 		if (!this.keyToIndex.containsKey(from)) throw new NoSuchElementException("Did not find 'from' vertex");
 		if (!this.keyToIndex.containsKey(to)) throw new NoSuchElementException("Did not find 'to' vertex");
 		int fromIndex = this.keyToIndex.get(from), toIndex = this.keyToIndex.get(to);
-		if (this.matrix[fromIndex][toIndex] == 1) {
-			this.matrix[fromIndex][toIndex] = 0;
+		if (this.matrix.get(fromIndex, toIndex)) {
+			this.matrix.clear(fromIndex, toIndex);
 			this.edgeCount--;
 			return true;
 		}
@@ -87,10 +94,7 @@ public class AdjacencyMatrixGraph<T> extends Graph<T> {
 	@Override
 	public int outDegree(T key) throws NoSuchElementException {
 		try {
-			int from = this.keyToIndex.get(key);
-			int edges = 0;
-			for (int to = 0; to < this.vertexCount; to++) if (this.matrix[from][to] == 1) edges++;
-			return edges;
+			return this.matrix.outDegree(this.keyToIndex.get(key));
 		}
 		catch (NullPointerException e) { throw new NoSuchElementException("Did not find 'key' vertex"); }
 	}
@@ -98,10 +102,7 @@ public class AdjacencyMatrixGraph<T> extends Graph<T> {
 	@Override
 	public int inDegree(T key) throws NoSuchElementException {
 		try {
-			int to = this.keyToIndex.get(key);
-			int edges = 0;
-			for (int from = 0; from < this.vertexCount; from++) if (this.matrix[from][to] == 1) edges++;
-			return edges;
+			return this.matrix.inDegree(this.keyToIndex.get(key));
 		}
 		catch (NullPointerException e) { throw new NoSuchElementException("Did not find 'key' vertex"); }
 	}
@@ -121,10 +122,8 @@ public class AdjacencyMatrixGraph<T> extends Graph<T> {
 	    Set<T> set = new HashSet<>();
 	    int fromIndex = this.keyToIndex.get(key);
 	    
-	    for (int toIndex = 0; toIndex < this.vertexCount; toIndex++) {
-	        if (this.matrix[fromIndex][toIndex] == 1) {
-	            set.add(this.indexToKey.get(toIndex));
-	        }
+	    for (int toIndex = this.matrix.nextSuccessor(fromIndex, 0); toIndex >= 0; toIndex = this.matrix.nextSuccessor(fromIndex, toIndex + 1)) {
+	        set.add(this.indexToKey.get(toIndex));
 	    }
 	    return set;
 	}
@@ -134,7 +133,7 @@ public class AdjacencyMatrixGraph<T> extends Graph<T> {
 		try {
 			Set<T> set = new HashSet<>();
 			int to = this.keyToIndex.get(key);
-			for (int from = 0; from < this.vertexCount; from++) if (this.matrix[from][to] == 1) set.add(this.indexToKey.get(from));
+			for (int from = this.matrix.nextPredecessor(to, 0); from >= 0; from = this.matrix.nextPredecessor(to, from + 1)) set.add(this.indexToKey.get(from));
 			return set;
 		}
 		catch (NullPointerException e) { throw new NoSuchElementException("Did not find 'key' vertex"); }
@@ -158,15 +157,7 @@ public class AdjacencyMatrixGraph<T> extends Graph<T> {
 		        throw new NoSuchElementException("Vertex not found");
 		    }
 
-		    Set<T> forwardReachable = new HashSet<>();
-		    Set<T> backwardReachable = new HashSet<>();
-
-		    dfs(key, forwardReachable, true);
-		    dfs(key, backwardReachable, false);
-
-		    forwardReachable.retainAll(backwardReachable);
-
-		    return forwardReachable;
+		    return sweepComponent(this.keyToIndex.get(key));
 	}
 	
 //	private void dfs(T current, Set<T> visited, boolean forward) {
@@ -179,102 +170,249 @@ public class AdjacencyMatrixGraph<T> extends Graph<T> {
 //	        }
 //	    }
 //	}
-	
-	private void dfs(T start, Set<T> visited, boolean forward) {
-	    Stack<T> stack = new Stack<>();
-	    stack.push(start);
-
-	    while (!stack.isEmpty()) {
-	        T current = stack.pop();
-
-	        if (!visited.contains(current)) {
-	            visited.add(current);
-
-	            Set<T> neighbors = forward ? successorSet(current) : predecessorSet(current);
-	            for (T neighbor : neighbors) {
-	                if (!visited.contains(neighbor)) {
-	                    stack.push(neighbor);
-	                }
-	            }
-	        }
-	    }
-	}
 	    
+	@Override
+	public int indexOf(T key) {
+		Integer index = this.keyToIndex.get(key);
+		return index == null ? -1 : index;
+	}
 
 	@Override
-	public List<T> shortestPath(T startLabel, T endLabel) {
-		if (!hasVertex(startLabel) || !hasVertex(endLabel)) {
-	        throw new NoSuchElementException("Start or end vertex not found");
-	    }
+	public T keyAt(int index) {
+		return this.indexToKey.get(index);
+	}
 
-	    Map<T, T> predecessors = new HashMap<>();
-	    Set<T> visited = new HashSet<>();
-	    Queue<T> queue = new LinkedList<>();
-	    
-	    queue.add(startLabel);
-	    visited.add(startLabel);
-
-	    boolean pathExists = false;
-
-	    while (!queue.isEmpty()) {
-	        T current = queue.poll();
-
-	        if (current.equals(endLabel)) {
-	            pathExists = true;
-	            break;
-	        }
-
-	        for (T neighbor : successorSet(current)) {
-	            if (!visited.contains(neighbor)) {
-	                visited.add(neighbor);
-	                queue.add(neighbor);
-	                predecessors.put(neighbor, current);
-	            }
-	        }
-	    }
+	@Override
+	public NeighborCursor successorCursor() {
+		return new MatrixCursor(true);
+	}
 
-	    if (!pathExists) {
-	        return null;
-	    }
+	@Override
+	public NeighborCursor predecessorCursor() {
+		return new MatrixCursor(false);
+	}
+
+	@Override
+	public void forEachSuccessor(int vertex, IntConsumer action) {
+		for (int to = this.matrix.nextSuccessor(vertex, 0); to >= 0; to = this.matrix.nextSuccessor(vertex, to + 1)) {
+			action.accept(to);
+		}
+	}
+
+	@Override
+	public void forEachPredecessor(int vertex, IntConsumer action) {
+		for (int from = this.matrix.nextPredecessor(vertex, 0); from >= 0; from = this.matrix.nextPredecessor(vertex, from + 1)) {
+			action.accept(from);
+		}
+	}
+
+	/**
+	 * Scans one row (successors) or column (predecessors) of the matrix.
+	 */
+	private class MatrixCursor implements NeighborCursor {
+		private final boolean successor;
+		private int vertex;
+		private int next;
+
+		MatrixCursor(boolean successor) {
+			this.successor = successor;
+		}
+
+		@Override
+		public void reset(int vertex) {
+			this.vertex = vertex;
+			this.next = 0;
+		}
 
-	    List<T> path = new ArrayList<>();
-	    T current = endLabel;
-	    while (current != null) {
-	        path.add(current);
-	        current = predecessors.get(current);
+		@Override
+		public int next() {
+			if (this.next < 0) return -1;
+			int found = this.successor ? matrix.nextSuccessor(this.vertex, this.next) : matrix.nextPredecessor(this.vertex, this.next);
+			this.next = found < 0 ? -1 : found + 1;
+			return found;
+		}
+	}
+
+	@Override
+	public List<T> shortestPath(T startLabel, T endLabel) {
+		if (!hasVertex(startLabel) || !hasVertex(endLabel)) {
+	        throw new NoSuchElementException("Start or end vertex not found");
 	    }
-	    Collections.reverse(path);
 
-	    return path;
+	    return BidirectionalSearch.shortestPath(this, startLabel, endLabel);
 	}
 
+	/**
+	 * Iterates over one row (successors) or column (predecessors) of the matrix. The next set
+	 * position is looked up once and remembered, so walking a whole row is a single pass.
+	 */
 	private class EdgeIterator implements Iterator<T> {
 		List<T> indexToKey;
-		int[][] matrix;
-		int vertexCount;
+		Matrix matrix;
 		int from;
-		int to = -1;
+		int to;
 		boolean successor;
 
-		EdgeIterator(List<T> indexToKey, int[][] matrix, int from, boolean successor) {
+		EdgeIterator(List<T> indexToKey, Matrix matrix, int from, boolean successor) {
 			this.indexToKey = indexToKey;
 			this.matrix = matrix;
-			this.vertexCount = this.matrix.length;
 			this.from = from;
 			this.successor = successor;
+			this.to = advance(0);
+		}
+
+		private int advance(int t) {
+			return this.successor ? this.matrix.nextSuccessor(this.from, t) : this.matrix.nextPredecessor(this.from, t);
 		}
 
 		@Override
 		public boolean hasNext() {
-			for (int t = this.to + 1; t < this.vertexCount; t++) if ((this.successor ? this.matrix[from][t] : this.matrix[t][from]) == 1) return true;
-			return false;
+			return this.to >= 0;
 		}
 
 		@Override
 		public T next() {
-			for (int t = this.to + 1; t < this.vertexCount; t++) if ((this.successor ? this.matrix[from][t] : this.matrix[t][from]) == 1) { this.to = t; break; }
-			return this.indexToKey.get(this.to);
+			if (this.to < 0) throw new NoSuchElementException();
+			T key = this.indexToKey.get(this.to);
+			this.to = advance(this.to + 1);
+			return key;
+		}
+	}
+
+	/**
+	 * Storage behind the matrix. Rows are sources and columns are destinations.
+	 */
+	private static abstract class Matrix {
+		abstract boolean get(int from, int to);
+		abstract void set(int from, int to);
+		abstract void clear(int from, int to);
+		abstract int outDegree(int from);
+		abstract int inDegree(int to);
+		/** @return the first successor of from at index t or later, or -1 if there is none */
+		abstract int nextSuccessor(int from, int t);
+		/** @return the first predecessor of to at index t or later, or -1 if there is none */
+		abstract int nextPredecessor(int to, int t);
+	}
+
+	/**
+	 * The original layout: one int per possible edge.
+	 */
+	private static class IntMatrix extends Matrix {
+		private final int[][] cells;
+
+		IntMatrix(int size) {
+			this.cells = new int[size][size];
+		}
+
+		@Override
+		boolean get(int from, int to) {
+			return this.cells[from][to] == 1;
+		}
+
+		@Override
+		void set(int from, int to) {
+			this.cells[from][to] = 1;
+		}
+
+		@Override
+		void clear(int from, int to) {
+			this.cells[from][to] = 0;
+		}
+
+		@Override
+		int outDegree(int from) {
+			int edges = 0;
+			for (int to = 0; to < this.cells.length; to++) if (this.cells[from][to] == 1) edges++;
+			return edges;
+		}
+
+		@Override
+		int inDegree(int to) {
+			int edges = 0;
+			for (int from = 0; from < this.cells.length; from++) if (this.cells[from][to] == 1) edges++;
+			return edges;
+		}
+
+		@Override
+		int nextSuccessor(int from, int t) {
+			for (; t < this.cells.length; t++) if (this.cells[from][t] == 1) return t;
+			return -1;
+		}
+
+		@Override
+		int nextPredecessor(int to, int t) {
+			for (; t < this.cells.length; t++) if (this.cells[t][to] == 1) return t;
+			return -1;
+		}
+	}
+
+	/**
+	 * Packed layout: bit (to & 63) of rows[from][to >>> 6] is set for each edge, and columns
+	 * holds the transpose so that predecessor queries scan contiguous words too.
+	 */
+	private static class BitMatrix extends Matrix {
+		private final long[][] rows;
+		private final long[][] columns;
+
+		BitMatrix(int size) {
+			int words = (size + 63) >>> 6;
+			this.rows = new long[size][words];
+			this.columns = new long[size][words];
+		}
+
+		@Override
+		boolean get(int from, int to) {
+			return (this.rows[from][to >>> 6] & (1L << to)) != 0;
+		}
+
+		@Override
+		void set(int from, int to) {
+			this.rows[from][to >>> 6] |= 1L << to;
+			this.columns[to][from >>> 6] |= 1L << from;
+		}
+
+		@Override
+		void clear(int from, int to) {
+			this.rows[from][to >>> 6] &= ~(1L << to);
+			this.columns[to][from >>> 6] &= ~(1L << from);
+		}
+
+		@Override
+		int outDegree(int from) {
+			return cardinality(this.rows[from]);
+		}
+
+		@Override
+		int inDegree(int to) {
+			return cardinality(this.columns[to]);
+		}
+
+		@Override
+		int nextSuccessor(int from, int t) {
+			return nextSetBit(this.rows[from], t);
+		}
+
+		@Override
+		int nextPredecessor(int to, int t) {
+			return nextSetBit(this.columns[to], t);
+		}
+
+		private static int cardinality(long[] words) {
+			int count = 0;
+			for (long word : words) count += Long.bitCount(word);
+			return count;
+		}
+
+		private static int nextSetBit(long[] words, int t) {
+			int w = t >>> 6;
+			if (w >= words.length) return -1;
+			long word = words[w] & (-1L << t);
+			while (word == 0) {
+				if (++w == words.length) return -1;
+				word = words[w];
+			}
+			return (w << 6) + Long.numberOfTrailingZeros(word);
 		}
 	}
 
-}
\ No newline at end of file
+}
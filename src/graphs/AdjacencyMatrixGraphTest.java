@@ -0,0 +1,110 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the packed (bitset) matrix against the int matrix, at sizes around the 64-bit word
+ * boundaries.
+ */
+public class AdjacencyMatrixGraphTest {
+	private static final int[] SIZES = {63, 64, 65, 129};
+
+	private static <T> List<T> toList(Iterator<T> it) {
+		List<T> list = new ArrayList<T>();
+		while (it.hasNext()) list.add(it.next());
+		return list;
+	}
+
+	private static List<Integer> toList(NeighborCursor cursor, int vertex) {
+		List<Integer> list = new ArrayList<Integer>();
+		cursor.reset(vertex);
+		for (int w = cursor.next(); w >= 0; w = cursor.next()) list.add(w);
+		return list;
+	}
+
+	private static void assertSameGraph(Graph<Integer> expected, Graph<Integer> packed) {
+		int n = expected.size();
+		assertEquals(expected.numEdges(), packed.numEdges());
+		NeighborCursor expectedOut = expected.successorCursor(), packedOut = packed.successorCursor();
+		NeighborCursor expectedIn = expected.predecessorCursor(), packedIn = packed.predecessorCursor();
+		for (int v = 0; v < n; v++) {
+			for (int w = 0; w < n; w++) {
+				assertEquals(expected.hasEdge(v, w), packed.hasEdge(v, w));
+			}
+			assertEquals(expected.outDegree(v), packed.outDegree(v));
+			assertEquals(expected.inDegree(v), packed.inDegree(v));
+			assertEquals(expected.successorSet(v), packed.successorSet(v));
+			assertEquals(expected.predecessorSet(v), packed.predecessorSet(v));
+			assertEquals(toList(expected.successorIterator(v)), toList(packed.successorIterator(v)));
+			assertEquals(toList(expected.predecessorIterator(v)), toList(packed.predecessorIterator(v)));
+			int index = expected.indexOf(v);
+			assertEquals(index, packed.indexOf(v));
+			assertEquals(toList(expectedOut, index), toList(packedOut, index));
+			assertEquals(toList(expectedIn, index), toList(packedIn, index));
+		}
+	}
+
+	@Test
+	public void testPackedMatchesIntMatrix() {
+		Random random = new Random(1);
+		for (int n : SIZES) {
+			Graph<Integer> expected = new AdjacencyMatrixGraph<Integer>(keys(n));
+			Graph<Integer> packed = new AdjacencyMatrixGraph<Integer>(keys(n), true);
+			List<int[]> edges = new ArrayList<int[]>();
+			for (int i = 0; i < 3 * n; i++) {
+				int from = random.nextInt(n), to = random.nextInt(n);
+				assertEquals(expected.addEdge(from, to), packed.addEdge(from, to));
+				edges.add(new int[] {from, to});
+			}
+			assertSameGraph(expected, packed);
+			for (int i = 0; i < edges.size(); i += 2) {
+				int[] edge = edges.get(i);
+				assertEquals(expected.removeEdge(edge[0], edge[1]), packed.removeEdge(edge[0], edge[1]));
+			}
+			assertSameGraph(expected, packed);
+		}
+	}
+
+	@Test
+	public void testWordBoundaries() {
+		for (int n : SIZES) {
+			Graph<Integer> expected = new AdjacencyMatrixGraph<Integer>(keys(n));
+			Graph<Integer> packed = new AdjacencyMatrixGraph<Integer>(keys(n), true);
+			// every edge between the first and last vertices and those on either side of a word edge
+			int[] vertices = {0, 1, 62, 63, 64, 65, 127, 128, n - 1};
+			for (int from : vertices) {
+				for (int to : vertices) {
+					if (from < n && to < n) {
+						assertEquals(expected.addEdge(from, to), packed.addEdge(from, to));
+					}
+				}
+			}
+			assertSameGraph(expected, packed);
+			for (int from : vertices) {
+				for (int to : vertices) {
+					if (from < n && to < n && (from + to) % 3 != 0) {
+						assertEquals(expected.removeEdge(from, to), packed.removeEdge(from, to));
+					}
+				}
+			}
+			assertSameGraph(expected, packed);
+			for (int from : vertices) {
+				for (int to : vertices) {
+					if (from < n && to < n) {
+						assertEquals(expected.removeEdge(from, to), packed.removeEdge(from, to));
+					}
+				}
+			}
+			assertEquals(0, packed.numEdges());
+			assertSameGraph(expected, packed);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bidirectional breadth-first search over the Graph ADT. A forward frontier grows from the start
+ * along successors and a backward frontier grows from the end along predecessors. Each round
+ * expands one whole level of whichever frontier is smaller, and the search stops as soon as a vertex
+ * is reached from both sides.
+ *
+ * Stopping there is exact: before that level no vertex was reached from both sides, so the
+ * shortest path is at least (forward radius + backward radius + 1) long, and any meeting found
+ * in that level is at most that long. So the first meeting gives a shortest path.
+ *
+ * The search works on vertex indices through the graph's NeighborCursors and a pooled
+ * SearchWorkspace, so apart from the two cursors and the returned path it does not allocate, and
+ * concurrent searches on an unchanging graph do not interfere.
+ */
+final class BidirectionalSearch {
+
+	private BidirectionalSearch() {
+	}
+
+	/**
+	 * @param graph
+	 * @param start, assumed to be in the graph
+	 * @param end, assumed to be in the graph
+	 * @return the shortest path from start to end, or null if end is unreachable
+	 */
+	static <T> List<T> shortestPath(Graph<T> graph, T start, T end) {
+		int from = graph.indexOf(start), to = graph.indexOf(end);
+		// side 0 searches forward from start and side 1 backward from end; each vertex is marked
+		// with its parent, and each queue holds the current level followed by the next one
+		SearchWorkspace workspace = SearchWorkspace.acquire(graph.size());
+		try {
+			workspace.mark(0, from, from);
+			workspace.mark(1, to, to);
+			workspace.queue(0).add(from);
+			workspace.queue(1).add(to);
+			NeighborCursor forward = graph.successorCursor(), backward = graph.predecessorCursor();
+
+			int meeting = from == to ? from : -1;
+			while (meeting < 0 && !workspace.queue(0).isEmpty() && !workspace.queue(1).isEmpty()) {
+				int side = workspace.queue(0).size() <= workspace.queue(1).size() ? 0 : 1;
+				NeighborCursor cursor = side == 0 ? forward : backward;
+				SearchWorkspace.IntQueue queue = workspace.queue(side);
+				for (int levelSize = queue.size(); levelSize > 0 && meeting < 0; levelSize--) {
+					int v = queue.poll();
+					cursor.reset(v);
+					for (int w = cursor.next(); w >= 0; w = cursor.next()) {
+						if (!workspace.mark(side, w, v)) continue;
+						queue.add(w);
+						if (workspace.isMarked(1 - side, w)) {
+							meeting = w;
+							break;
+						}
+					}
+				}
+			}
+			if (meeting < 0) {
+				return null;
+			}
+			return joinPath(graph, workspace, from, to, meeting);
+		} finally {
+			workspace.release();
+		}
+	}
+
+	private static <T> List<T> joinPath(Graph<T> graph, SearchWorkspace workspace, int from, int to, int meeting) {
+		List<T> path = new ArrayList<T>();
+		for (int v = meeting; ; v = workspace.value(0, v)) {
+			path.add(graph.keyAt(v));
+			if (v == from) break;
+		}
+		Collections.reverse(path);
+		for (int v = meeting; v != to; ) {
+			v = workspace.value(1, v);
+			path.add(graph.keyAt(v));
+		}
+		return path;
+	}
+}
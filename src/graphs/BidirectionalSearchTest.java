@@ -0,0 +1,98 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the lengths of bidirectional paths against a plain breadth-first search.
+ */
+public class BidirectionalSearchTest {
+
+	private static void checkPath(Graph<Integer> g, Map<Integer,Integer> distances, int start, int end) {
+		List<Integer> path = BidirectionalSearch.shortestPath(g, start, end);
+		Integer expected = distances.get(end);
+		if (expected == null) {
+			assertNull(path);
+			return;
+		}
+		assertEquals(expected + 1, path.size());
+		assertEquals(start, (int) path.get(0));
+		assertEquals(end, (int) path.get(path.size() - 1));
+		for (int i = 0; i + 1 < path.size(); i++) {
+			assertTrue(g.hasEdge(path.get(i), path.get(i + 1)));
+		}
+	}
+
+	private static void checkAllPairs(Graph<Integer> g) {
+		for (int start : g.keySet()) {
+			Map<Integer,Integer> distances = g.distancesFrom(start);
+			for (int end : g.keySet()) {
+				checkPath(g, distances, start, end);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomGraphs() {
+		// from mostly unreachable pairs to dense graphs with many equally short paths
+		Random random = new Random(3);
+		for (int round = 0; round < 30; round++) {
+			int n = 2 + random.nextInt(80);
+			int edges = random.nextInt(4 * n);
+			Graph<Integer> list = new AdjacencyListGraph<Integer>(keys(n));
+			Graph<Integer> matrix = new AdjacencyMatrixGraph<Integer>(keys(n));
+			for (int i = 0; i < edges; i++) {
+				int from = random.nextInt(n), to = random.nextInt(n);
+				list.addEdge(from, to);
+				matrix.addEdge(from, to);
+			}
+			checkAllPairs(list);
+			checkAllPairs(matrix);
+			checkAllPairs(CSRGraph.from(list));
+		}
+	}
+
+	@Test
+	public void testStartIsEnd() {
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(3));
+		assertEquals(1, BidirectionalSearch.shortestPath(g, 1, 1).size());
+		g.addEdge(1, 2);
+		g.addEdge(2, 1);
+		assertEquals(1, BidirectionalSearch.shortestPath(g, 1, 1).size());
+		assertNull(BidirectionalSearch.shortestPath(g, 1, 0));
+		assertNull(BidirectionalSearch.shortestPath(g, 0, 1));
+	}
+
+	@Test
+	public void testFrontiersMeetMidLevel() {
+		// Wide layers between start and end where only a few vertices of the middle layer lead on,
+		// so each frontier expands many vertices of a level before one of them meets the other side
+		for (int depth = 2; depth <= 5; depth++) {
+			int width = 20;
+			int n = 2 + depth * width;
+			int start = n - 2, end = n - 1;
+			Random random = new Random(depth);
+			Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+			for (int v = 0; v < width; v++) {
+				g.addEdge(start, v);
+				g.addEdge((depth - 1) * width + v, end);
+			}
+			for (int layer = 0; layer + 1 < depth; layer++) {
+				for (int v = 0; v < width; v++) {
+					if (random.nextInt(3) == 0) {
+						g.addEdge(layer * width + v, (layer + 1) * width + random.nextInt(width));
+					}
+				}
+			}
+			checkAllPairs(g);
+		}
+	}
+}
@@ -0,0 +1,472 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Frozen implementation of the Graph ADT in compressed sparse row (CSR) form. Vertices are
+ * numbered 0..size()-1, and the successors of vertex v are outTargets[outOffsets[v]] up to
+ * (but not including) outTargets[outOffsets[v+1]], sorted ascending. A second pair of arrays
+ * holds the predecessors in the same layout, so that backward traversals are just as cheap.
+ *
+ * The graph cannot be modified once it is built: addEdge and removeEdge throw
+ * UnsupportedOperationException.
+ *
+ * @param <T>
+ */
+public class CSRGraph<T> extends Graph<T> {
+	private final Map<T,Integer> keyToIndex;
+	private final List<T> indexToKey;
+	final int[] outOffsets;
+	final int[] outTargets;
+	final int[] inOffsets;
+	final int[] inTargets;
+	// Built on the first reachability question; the graph never changes, so it never goes stale
+	private volatile ReachabilityIndex reachability;
+	// One search per thread, so concurrent queries neither share nor reallocate its arrays
+	private final ThreadLocal<DirectionOptimizingBFS> searches = new ThreadLocal<DirectionOptimizingBFS>() {
+		@Override
+		protected DirectionOptimizingBFS initialValue() {
+			return new DirectionOptimizingBFS(CSRGraph.this);
+		}
+	};
+
+	/**
+	 * Builds the graph from vertex keys (indexed by position) and a successor CSR. Each successor
+	 * list must be sorted and free of duplicates; the predecessor arrays are derived from it.
+	 * @param indexToKey
+	 * @param outOffsets, of length indexToKey.size() + 1
+	 * @param outTargets
+	 */
+	CSRGraph(List<T> indexToKey, int[] outOffsets, int[] outTargets) {
+		this(indexToKey, outOffsets, outTargets, transpose(indexToKey.size(), outOffsets, outTargets));
+	}
+
+	private CSRGraph(List<T> indexToKey, int[] outOffsets, int[] outTargets, int[][] in) {
+		this(indexToKey, outOffsets, outTargets, in[0], in[1]);
+	}
+
+	/**
+	 * Builds the graph from keys and both CSRs, which must describe the same edges.
+	 */
+	CSRGraph(List<T> indexToKey, int[] outOffsets, int[] outTargets, int[] inOffsets, int[] inTargets) {
+		int n = indexToKey.size();
+		this.indexToKey = indexToKey;
+		this.keyToIndex = new HashMap<T,Integer>(2 * n);
+		for (int i = 0; i < n; i++) {
+			this.keyToIndex.put(indexToKey.get(i), i);
+		}
+		this.outOffsets = outOffsets;
+		this.outTargets = outTargets;
+		this.inOffsets = inOffsets;
+		this.inTargets = inTargets;
+	}
+
+	/**
+	 * Transpose: count in-degrees, prefix sum, then scatter. Scanning sources in increasing order
+	 * leaves each predecessor list sorted as well.
+	 * @return {inOffsets, inTargets}
+	 */
+	private static int[][] transpose(int n, int[] outOffsets, int[] outTargets) {
+		int[] inOffsets = new int[n + 1];
+		for (int e = 0; e < outTargets.length; e++) {
+			inOffsets[outTargets[e] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			inOffsets[v + 1] += inOffsets[v];
+		}
+		int[] inTargets = new int[outTargets.length];
+		int[] fill = Arrays.copyOf(inOffsets, n);
+		for (int v = 0; v < n; v++) {
+			for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+				inTargets[fill[outTargets[e]]++] = v;
+			}
+		}
+		return new int[][] {inOffsets, inTargets};
+	}
+
+	/**
+	 * Freezes any existing graph into CSR form. The source graph is only read.
+	 * @param graph
+	 * @return a CSRGraph with the same vertices and edges
+	 */
+	public static <T> CSRGraph<T> from(Graph<T> graph) {
+		Builder<T> builder = new Builder<T>(graph.keySet());
+		for (T from : graph.keySet()) {
+			int fromIndex = builder.indexOf(from);
+			Iterator<T> it = graph.successorIterator(from);
+			while (it.hasNext()) {
+				builder.addEdge(fromIndex, builder.indexOf(it.next()));
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Freezes a graph and renumbers its vertices in the given order. The keys, and so the graph
+	 * seen through the Graph methods, are unchanged; only indexOf and the storage order differ.
+	 * @param graph, which is frozen into a CSRGraph first unless it already is one
+	 * @param order
+	 * @return the renumbered graph
+	 */
+	public static <T> CSRGraph<T> from(Graph<T> graph, VertexOrder order) {
+		CSRGraph<T> csr = graph instanceof CSRGraph ? (CSRGraph<T>) graph : from(graph);
+		int n = csr.size();
+		int[] oldIndex = order.order(csr);
+		int[] newIndex = new int[n];
+		List<T> keys = new ArrayList<T>(n);
+		for (int v = 0; v < n; v++) {
+			newIndex[oldIndex[v]] = v;
+			keys.add(csr.keyAt(oldIndex[v]));
+		}
+		int[] offsets = new int[n + 1];
+		int[] targets = new int[csr.outTargets.length];
+		int position = 0;
+		for (int v = 0; v < n; v++) {
+			int u = oldIndex[v];
+			offsets[v] = position;
+			for (int e = csr.outOffsets[u]; e < csr.outOffsets[u + 1]; e++) {
+				targets[position++] = newIndex[csr.outTargets[e]];
+			}
+			Arrays.sort(targets, offsets[v], position);
+		}
+		offsets[n] = position;
+		return new CSRGraph<T>(keys, offsets, targets);
+	}
+
+	/**
+	 * Accumulates edges as pairs of vertex indices, then sorts them into a CSRGraph in one pass.
+	 * Duplicate edges are dropped when the graph is built, which is done in parallel.
+	 *
+	 * @param <T>
+	 */
+	public static class Builder<T> {
+		private final Map<T,Integer> keyToIndex;
+		private final List<T> indexToKey;
+		private int[] froms = new int[16];
+		private int[] tos = new int[16];
+		private int edgeCount;
+
+		public Builder(Set<T> keys) {
+			this.keyToIndex = new HashMap<T,Integer>(2 * keys.size());
+			this.indexToKey = new ArrayList<T>(keys.size());
+			for (T key : keys) {
+				this.keyToIndex.put(key, this.indexToKey.size());
+				this.indexToKey.add(key);
+			}
+		}
+
+		/**
+		 * @param key
+		 * @return the index the builder assigned to key
+		 * @throws NoSuchElementException if the key was not given to the builder
+		 */
+		public int indexOf(T key) {
+			Integer index = this.keyToIndex.get(key);
+			if (index == null) throw new NoSuchElementException("Did not find 'key' vertex");
+			return index;
+		}
+
+		public Builder<T> addEdge(T from, T to) {
+			return addEdge(indexOf(from), indexOf(to));
+		}
+
+		public Builder<T> addEdge(int from, int to) {
+			if (from < 0 || from >= this.indexToKey.size() || to < 0 || to >= this.indexToKey.size()) {
+				throw new NoSuchElementException("Vertex index out of range");
+			}
+			if (this.edgeCount == this.froms.length) {
+				this.froms = Arrays.copyOf(this.froms, 2 * this.edgeCount);
+				this.tos = Arrays.copyOf(this.tos, 2 * this.edgeCount);
+			}
+			this.froms[this.edgeCount] = from;
+			this.tos[this.edgeCount] = to;
+			this.edgeCount++;
+			return this;
+		}
+
+		/**
+		 * Adds edges given as consecutive (from, to) index pairs.
+		 * @param pairs
+		 * @param length, the number of ints of pairs to use; must be even
+		 */
+		Builder<T> addEdgePairs(int[] pairs, int length) {
+			int n = this.indexToKey.size();
+			for (int i = 0; i < length; i++) {
+				if (pairs[i] < 0 || pairs[i] >= n) throw new NoSuchElementException("Vertex index out of range");
+			}
+			int needed = this.edgeCount + length / 2;
+			if (needed > this.froms.length) {
+				int capacity = Math.max(needed, 2 * this.froms.length);
+				this.froms = Arrays.copyOf(this.froms, capacity);
+				this.tos = Arrays.copyOf(this.tos, capacity);
+			}
+			for (int i = 0; i + 1 < length; i += 2) {
+				this.froms[this.edgeCount] = pairs[i];
+				this.tos[this.edgeCount] = pairs[i + 1];
+				this.edgeCount++;
+			}
+			return this;
+		}
+
+		public CSRGraph<T> build() {
+			return build(Runtime.getRuntime().availableProcessors());
+		}
+
+		/**
+		 * Groups the edges by source on several threads (see ParallelCSR), sorting and
+		 * de-duplicating each successor list, then transposes the result the same way.
+		 * @param parallelism, the number of threads to use
+		 * @return the graph
+		 */
+		public CSRGraph<T> build(int parallelism) {
+			if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+			int n = this.indexToKey.size();
+			int[][] out = ParallelCSR.group(n, this.froms, this.tos, this.edgeCount, parallelism);
+			int[][] in = ParallelCSR.transpose(n, out[0], out[1], parallelism);
+			return new CSRGraph<T>(this.indexToKey, out[0], out[1], in[0], in[1]);
+		}
+	}
+
+	@Override
+	public int indexOf(T key) {
+		Integer index = this.keyToIndex.get(key);
+		return index == null ? -1 : index;
+	}
+
+	@Override
+	public T keyAt(int index) {
+		return this.indexToKey.get(index);
+	}
+
+	private int checkedIndexOf(T key) {
+		Integer index = this.keyToIndex.get(key);
+		if (index == null) throw new NoSuchElementException("Did not find 'key' vertex");
+		return index;
+	}
+
+	@Override
+	public int size() {
+		return this.indexToKey.size();
+	}
+
+	@Override
+	public int numEdges() {
+		return this.outTargets.length;
+	}
+
+	@Override
+	public boolean addEdge(T from, T to) {
+		checkedIndexOf(from);
+		checkedIndexOf(to);
+		throw new UnsupportedOperationException("CSRGraph is immutable");
+	}
+
+	@Override
+	public boolean hasVertex(T key) {
+		return this.keyToIndex.containsKey(key);
+	}
+
+	@Override
+	public boolean hasEdge(T from, T to) throws NoSuchElementException {
+		int fromIndex = checkedIndexOf(from), toIndex = checkedIndexOf(to);
+		return Arrays.binarySearch(this.outTargets, this.outOffsets[fromIndex], this.outOffsets[fromIndex + 1], toIndex) >= 0;
+	}
+
+	@Override
+	public boolean removeEdge(T from, T to) throws NoSuchElementException {
+		checkedIndexOf(from);
+		checkedIndexOf(to);
+		throw new UnsupportedOperationException("CSRGraph is immutable");
+	}
+
+	@Override
+	public int outDegree(T key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return this.outOffsets[v + 1] - this.outOffsets[v];
+	}
+
+	@Override
+	public int inDegree(T key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return this.inOffsets[v + 1] - this.inOffsets[v];
+	}
+
+	@Override
+	public Set<T> keySet() {
+		return Collections.unmodifiableSet(this.keyToIndex.keySet());
+	}
+
+	@Override
+	public Set<T> successorSet(T key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return toKeySet(this.outTargets, this.outOffsets[v], this.outOffsets[v + 1]);
+	}
+
+	@Override
+	public Set<T> predecessorSet(T key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return toKeySet(this.inTargets, this.inOffsets[v], this.inOffsets[v + 1]);
+	}
+
+	private Set<T> toKeySet(int[] targets, int start, int end) {
+		Set<T> set = new HashSet<T>();
+		for (int e = start; e < end; e++) {
+			set.add(this.indexToKey.get(targets[e]));
+		}
+		return set;
+	}
+
+	@Override
+	public Iterator<T> successorIterator(T key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return new EdgeIterator(this.outTargets, this.outOffsets[v], this.outOffsets[v + 1]);
+	}
+
+	@Override
+	public Iterator<T> predecessorIterator(T key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return new EdgeIterator(this.inTargets, this.inOffsets[v], this.inOffsets[v + 1]);
+	}
+
+	@Override
+	public Set<T> stronglyConnectedComponent(T key) throws NoSuchElementException {
+		int start = checkedIndexOf(key);
+		return sweepComponent(start);
+	}
+
+	@Override
+	public List<T> shortestPath(T startLabel, T endLabel) throws NoSuchElementException {
+		if (!hasVertex(startLabel) || !hasVertex(endLabel)) {
+			throw new NoSuchElementException("Start or end vertex not found");
+		}
+		int start = indexOf(startLabel), end = indexOf(endLabel);
+		if (!reachabilityIndex().isReachable(start, end)) {
+			return null;
+		}
+		DirectionOptimizingBFS bfs = this.searches.get();
+		bfs.search(start, end);
+		if (bfs.parent(end) == -1) {
+			return null;
+		}
+
+		List<T> path = new ArrayList<T>();
+		for (int v = end; v != start; v = bfs.parent(v)) {
+			path.add(this.indexToKey.get(v));
+		}
+		path.add(startLabel);
+		Collections.reverse(path);
+		return path;
+	}
+
+	@Override
+	public boolean isReachable(T from, T to) throws NoSuchElementException {
+		return reachabilityIndex().isReachable(checkedIndexOf(from), checkedIndexOf(to));
+	}
+
+	/**
+	 * @return the reachability index of this graph, building it if needed
+	 */
+	public ReachabilityIndex reachabilityIndex() {
+		ReachabilityIndex index = this.reachability;
+		if (index == null) {
+			// Two threads may both build it; either result is correct
+			index = ReachabilityIndex.of(this);
+			this.reachability = index;
+		}
+		return index;
+	}
+
+	@Override
+	public Map<T,Integer> distancesFrom(T key) throws NoSuchElementException {
+		DirectionOptimizingBFS bfs = this.searches.get();
+		bfs.search(checkedIndexOf(key), -1);
+		Map<T,Integer> distances = new HashMap<T,Integer>();
+		for (int v = 0; v < size(); v++) {
+			if (bfs.distance(v) >= 0) {
+				distances.put(this.indexToKey.get(v), bfs.distance(v));
+			}
+		}
+		return distances;
+	}
+
+	@Override
+	public NeighborCursor successorCursor() {
+		return new ArrayCursor(this.outOffsets, this.outTargets);
+	}
+
+	@Override
+	public NeighborCursor predecessorCursor() {
+		return new ArrayCursor(this.inOffsets, this.inTargets);
+	}
+
+	@Override
+	public void forEachSuccessor(int vertex, IntConsumer action) {
+		for (int e = this.outOffsets[vertex]; e < this.outOffsets[vertex + 1]; e++) {
+			action.accept(this.outTargets[e]);
+		}
+	}
+
+	@Override
+	public void forEachPredecessor(int vertex, IntConsumer action) {
+		for (int e = this.inOffsets[vertex]; e < this.inOffsets[vertex + 1]; e++) {
+			action.accept(this.inTargets[e]);
+		}
+	}
+
+	private static class ArrayCursor implements NeighborCursor {
+		private final int[] offsets;
+		private final int[] targets;
+		private int position;
+		private int end;
+
+		ArrayCursor(int[] offsets, int[] targets) {
+			this.offsets = offsets;
+			this.targets = targets;
+		}
+
+		@Override
+		public void reset(int vertex) {
+			this.position = this.offsets[vertex];
+			this.end = this.offsets[vertex + 1];
+		}
+
+		@Override
+		public int next() {
+			return this.position < this.end ? this.targets[this.position++] : -1;
+		}
+	}
+
+	private class EdgeIterator implements Iterator<T> {
+		private final int[] targets;
+		private final int end;
+		private int position;
+
+		EdgeIterator(int[] targets, int start, int end) {
+			this.targets = targets;
+			this.position = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.position < this.end;
+		}
+
+		@Override
+		public T next() {
+			if (this.position >= this.end) throw new NoSuchElementException();
+			return indexToKey.get(this.targets[this.position++]);
+		}
+	}
+
+}
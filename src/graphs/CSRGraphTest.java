@@ -0,0 +1,164 @@
+package graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks that a CSRGraph frozen from an AdjacencyListGraph answers every Graph query the same way.
+ */
+public class CSRGraphTest {
+
+	private Graph<String> makeExampleALGraph() {
+		Graph<String> g = new AdjacencyListGraph<String>(new HashSet<String>(Arrays.asList("a","b","c","d","e","f")));
+		g.addEdge("a", "b");
+		g.addEdge("a", "c");
+		g.addEdge("b", "d");
+		g.addEdge("c", "d");
+		g.addEdge("d", "c");
+		g.addEdge("d", "e");
+		g.addEdge("d", "f");
+		g.addEdge("f", "c");
+		return g;
+	}
+
+	@Test
+	public void testFromMatchesSource() {
+		Graph<String> source = makeExampleALGraph();
+		CSRGraph<String> g = CSRGraph.from(source);
+		assertEquals(source.size(), g.size());
+		assertEquals(source.numEdges(), g.numEdges());
+		assertEquals(source.keySet(), g.keySet());
+		for (String from : source.keySet()) {
+			assertEquals(source.outDegree(from), g.outDegree(from));
+			assertEquals(source.inDegree(from), g.inDegree(from));
+			assertEquals(source.successorSet(from), g.successorSet(from));
+			assertEquals(source.predecessorSet(from), g.predecessorSet(from));
+			Set<String> iterated = new HashSet<String>();
+			for (Iterator<String> it = g.successorIterator(from); it.hasNext(); ) {
+				iterated.add(it.next());
+			}
+			assertEquals(source.successorSet(from), iterated);
+			for (String to : source.keySet()) {
+				assertEquals(source.hasEdge(from, to), g.hasEdge(from, to));
+			}
+		}
+	}
+
+	@Test
+	public void testBuilderDropsDuplicateEdges() {
+		CSRGraph.Builder<String> builder = new CSRGraph.Builder<String>(new HashSet<String>(Arrays.asList("a","b")));
+		builder.addEdge("a", "b").addEdge("a", "b").addEdge("b", "a");
+		CSRGraph<String> g = builder.build();
+		assertEquals(2, g.numEdges());
+		assertTrue(g.hasEdge("a", "b"));
+		assertFalse(g.hasEdge("a", "a"));
+	}
+
+	/**
+	 * Enough edges for the parallel build, with many duplicates and a hub.
+	 */
+	@Test
+	public void testParallelBuildMatchesEdgeSet() {
+		int n = 3000;
+		Set<Integer> keys = new HashSet<Integer>();
+		for (int i = 0; i < n; i++) keys.add(i);
+		Random random = new Random(22);
+		CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<Integer>(keys);
+		Set<Long> edges = new HashSet<Long>();
+		for (int e = 0; e < 4 * ParallelCSR.MIN_PARALLEL_EDGES; e++) {
+			int from = random.nextInt(4) == 0 ? 7 : random.nextInt(n), to = random.nextInt(n / 3);
+			builder.addEdge(from, to);
+			edges.add((long) from * n + to);
+		}
+		for (int parallelism : new int[] {1, 3, 8}) {
+			CSRGraph<Integer> g = builder.build(parallelism);
+			assertEquals(edges.size(), g.numEdges());
+			for (int v = 0; v < n; v++) {
+				for (int e = g.outOffsets[v]; e < g.outOffsets[v + 1]; e++) {
+					assertTrue(edges.contains((long) v * n + g.outTargets[e]));
+					if (e > g.outOffsets[v]) assertTrue(g.outTargets[e - 1] < g.outTargets[e]);
+				}
+				for (int e = g.inOffsets[v]; e < g.inOffsets[v + 1]; e++) {
+					assertTrue(edges.contains((long) g.inTargets[e] * n + v));
+					if (e > g.inOffsets[v]) assertTrue(g.inTargets[e - 1] < g.inTargets[e]);
+				}
+			}
+			assertEquals(g.numEdges(), g.inOffsets[n]);
+		}
+	}
+
+	@Test
+	public void testStronglyConnectedComponentAndShortestPath() {
+		CSRGraph<String> g = CSRGraph.from(makeExampleALGraph());
+		assertEquals(new HashSet<String>(Arrays.asList("a")), g.stronglyConnectedComponent("a"));
+		assertEquals(new HashSet<String>(Arrays.asList("c","d","f")), g.stronglyConnectedComponent("f"));
+		assertEquals(Arrays.asList("f","c","d","e"), g.shortestPath("f","e"));
+		assertEquals(Arrays.asList("a"), g.shortestPath("a","a"));
+		assertNull(g.shortestPath("b","a"));
+	}
+
+	@Test
+	public void testDistancesFromMatchesGraphDefault() {
+		Graph<String> source = makeExampleALGraph();
+		CSRGraph<String> g = CSRGraph.from(source);
+		for (String key : source.keySet()) {
+			assertEquals(source.distancesFrom(key), g.distancesFrom(key));
+		}
+		DirectionOptimizingBFS bfs = new DirectionOptimizingBFS(g);
+		bfs.search(g.indexOf("a"), -1);
+		assertEquals(3, bfs.distance(g.indexOf("e")));
+		assertTrue(bfs.topDownEdgesExamined() + bfs.bottomUpEdgesExamined() > 0);
+	}
+
+	@Test
+	public void testIsImmutable() {
+		CSRGraph<String> g = CSRGraph.from(makeExampleALGraph());
+		try {
+			g.addEdge("a", "f");
+			fail("Did not throw UnsupportedOperationException");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			g.removeEdge("z", "a");
+			fail("Did not throw NoSuchElementException");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testReorderingKeepsGraph() {
+		Graph<String> source = makeExampleALGraph();
+		source.addEdge("e", "a");
+		for (VertexOrder order : VertexOrder.values()) {
+			CSRGraph<String> g = CSRGraph.from(source, order);
+			assertEquals(source.numEdges(), g.numEdges());
+			Set<String> keys = new HashSet<String>();
+			for (int v = 0; v < g.size(); v++) {
+				keys.add(g.keyAt(v));
+				assertEquals(v, g.indexOf(g.keyAt(v)));
+			}
+			assertEquals(source.keySet(), keys);
+			for (String from : source.keySet()) {
+				assertEquals(source.successorSet(from), g.successorSet(from));
+				assertEquals(source.predecessorSet(from), g.predecessorSet(from));
+				for (String to : source.keySet()) {
+					assertEquals(source.hasEdge(from, to), g.hasEdge(from, to));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,477 @@
+package graphs;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only implementation of the Graph ADT that stores its adjacency lists compressed, in the
+ * style of WebGraph (Boldi and Vigna). Vertices keep the order of the CSRGraph they come from,
+ * so a locality-friendly order gives better compression.
+ *
+ * The successor list of vertex v is written as follows, with every number as a varint:
+ * <ul>
+ * <li>the degree d; nothing else follows if d is 0;</li>
+ * <li>a reference r: 0, or the distance back to one of the WINDOW previous vertices whose list
+ * this one copies from. If r is not 0, a block count k follows and then k block lengths, which
+ * alternately copy and skip elements of the referenced list, starting with copying (the first
+ * length may be 0). The elements after the last block are copied if k is even and skipped
+ * otherwise. References are chosen to give the shortest encoding, and chains of references are at
+ * most MAX_REFERENCE_CHAIN long, which bounds the cost of decoding;</li>
+ * <li>the residuals, the elements that were not copied, in increasing order: the first as the
+ * zig-zag coded difference from v, and each later one as its gap from the previous one minus 1.</li>
+ * </ul>
+ * The lists start at the byte offsets in an offsets index, so any list can be decoded on its own.
+ * Decoding merges the copied and residual elements lazily, and the cursors that do it can be
+ * reused, so iterating over a list does not allocate. Predecessor lists are stored the same way.
+ *
+ * @param <T>
+ */
+public class CompressedGraph<T> extends Graph<T> {
+	static final int WINDOW = 7;
+	static final int MAX_REFERENCE_CHAIN = 3;
+
+	private final Map<T,Integer> keyToIndex;
+	private final List<T> indexToKey;
+	private final int numEdges;
+	private final byte[] successors;
+	private final int[] successorOffsets;
+	private final byte[] predecessors;
+	private final int[] predecessorOffsets;
+
+	/**
+	 * Compresses a graph. It is frozen into a CSRGraph first unless it already is one.
+	 * @param graph
+	 * @return the compressed graph
+	 */
+	public static <T> CompressedGraph<T> from(Graph<T> graph) {
+		CSRGraph<T> csr = graph instanceof CSRGraph ? (CSRGraph<T>) graph : CSRGraph.from(graph);
+		List<T> keys = new ArrayList<T>(csr.size());
+		for (int v = 0; v < csr.size(); v++) {
+			keys.add(csr.keyAt(v));
+		}
+		return new CompressedGraph<T>(keys, csr.numEdges(),
+				new Encoder(csr.outOffsets, csr.outTargets), new Encoder(csr.inOffsets, csr.inTargets));
+	}
+
+	private CompressedGraph(List<T> indexToKey, int numEdges, Encoder successors, Encoder predecessors) {
+		this.indexToKey = indexToKey;
+		this.keyToIndex = new HashMap<T,Integer>(2 * indexToKey.size());
+		for (int i = 0; i < indexToKey.size(); i++) {
+			this.keyToIndex.put(indexToKey.get(i), i);
+		}
+		this.numEdges = numEdges;
+		this.successors = successors.data;
+		this.successorOffsets = successors.offsets;
+		this.predecessors = predecessors.data;
+		this.predecessorOffsets = predecessors.offsets;
+	}
+
+	/**
+	 * Writes the lists of one CSR in the format described above.
+	 */
+	private static class Encoder {
+		final byte[] data;
+		final int[] offsets;
+
+		Encoder(int[] csrOffsets, int[] csrTargets) {
+			int n = csrOffsets.length - 1;
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ByteArrayOutputStream best = new ByteArrayOutputStream();
+			ByteArrayOutputStream candidate = new ByteArrayOutputStream();
+			this.offsets = new int[n + 1];
+			int[] chain = new int[n];
+			for (int v = 0; v < n; v++) {
+				this.offsets[v] = out.size();
+				int start = csrOffsets[v], end = csrOffsets[v + 1];
+				best.reset();
+				encode(v, csrTargets, start, end, 0, csrTargets, 0, 0, best);
+				int bestReference = 0;
+				for (int r = 1; r <= WINDOW && r <= v && end > start; r++) {
+					int u = v - r;
+					if (chain[u] >= MAX_REFERENCE_CHAIN || csrOffsets[u] == csrOffsets[u + 1]) continue;
+					candidate.reset();
+					encode(v, csrTargets, start, end, r, csrTargets, csrOffsets[u], csrOffsets[u + 1], candidate);
+					if (candidate.size() < best.size()) {
+						ByteArrayOutputStream swap = best;
+						best = candidate;
+						candidate = swap;
+						bestReference = r;
+					}
+				}
+				chain[v] = bestReference == 0 ? 0 : chain[v - bestReference] + 1;
+				out.write(best.toByteArray(), 0, best.size());
+			}
+			this.offsets[n] = out.size();
+			this.data = out.toByteArray();
+		}
+
+		/**
+		 * Encodes list[start..end) of vertex v, copying from reference[refStart..refEnd) (the list
+		 * r vertices back) if r is not 0.
+		 */
+		private static void encode(int v, int[] list, int start, int end, int r,
+				int[] reference, int refStart, int refEnd, ByteArrayOutputStream out) {
+			writeVarint(out, end - start);
+			if (end == start) return;
+			writeVarint(out, r);
+			int[] residuals = new int[end - start];
+			int residualCount = 0;
+			if (r == 0) {
+				for (int e = start; e < end; e++) residuals[residualCount++] = list[e];
+			} else {
+				// runs of copied / skipped reference elements, starting with a copy run
+				int[] runs = new int[refEnd - refStart + 1];
+				int runCount = 1;
+				boolean copying = true;
+				int e = start;
+				for (int f = refStart; f < refEnd; f++) {
+					while (e < end && list[e] < reference[f]) residuals[residualCount++] = list[e++];
+					boolean present = e < end && list[e] == reference[f];
+					if (present) e++;
+					if (present != copying) {
+						copying = present;
+						runCount++;
+					}
+					runs[runCount - 1]++;
+				}
+				while (e < end) residuals[residualCount++] = list[e++];
+				// the last run is implicit
+				writeVarint(out, runCount - 1);
+				for (int i = 0; i < runCount - 1; i++) writeVarint(out, runs[i]);
+			}
+			for (int i = 0; i < residualCount; i++) {
+				if (i == 0) {
+					int difference = residuals[0] - v;
+					writeVarint(out, (difference << 1) ^ (difference >> 31));
+				} else {
+					writeVarint(out, residuals[i] - residuals[i - 1] - 1);
+				}
+			}
+		}
+
+		private static void writeVarint(ByteArrayOutputStream out, int value) {
+			while ((value & ~0x7f) != 0) {
+				out.write((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			out.write(value);
+		}
+	}
+
+	/**
+	 * Lazily decodes one adjacency list at a time. A cursor, and the cursors it uses for the
+	 * lists it references, can be reset to another vertex any number of times, so decoding does not
+	 * allocate once a cursor exists. A cursor must not be shared between threads.
+	 */
+	public class Cursor implements NeighborCursor {
+		private final byte[] data;
+		private final int[] offsets;
+		private Cursor reference;
+
+		private int vertex;
+		private int position;
+		private int residualsLeft;
+		private int lastResidual;
+		private int nextResidual;
+		// copy-block state for the referenced list
+		private int copiedLeft;
+		private int blockPosition;
+		private int blocksLeft;
+		private int runLeft;
+		private boolean copying;
+		private int nextCopied;
+
+		Cursor(boolean successors) {
+			this(successors ? CompressedGraph.this.successors : CompressedGraph.this.predecessors,
+					successors ? CompressedGraph.this.successorOffsets : CompressedGraph.this.predecessorOffsets);
+		}
+
+		private Cursor(byte[] data, int[] offsets) {
+			this.data = data;
+			this.offsets = offsets;
+		}
+
+		@Override
+		public void reset(int v) {
+			open(v);
+		}
+
+		/**
+		 * Starts decoding the list of a vertex index.
+		 * @return the degree of the vertex
+		 */
+		int open(int v) {
+			this.vertex = v;
+			this.position = this.offsets[v];
+			int degree = readVarint();
+			this.copiedLeft = 0;
+			this.residualsLeft = 0;
+			if (degree == 0) {
+				this.nextCopied = this.nextResidual = -1;
+				return 0;
+			}
+			int r = readVarint();
+			if (r != 0) {
+				if (this.reference == null) {
+					this.reference = new Cursor(this.data, this.offsets);
+				}
+				int referenceDegree = this.reference.open(v - r);
+				int blocks = readVarint();
+				this.blockPosition = this.position;
+				int listed = 0, copied = 0;
+				for (int i = 0; i < blocks; i++) {
+					int length = readVarint();
+					listed += length;
+					if (i % 2 == 0) copied += length;
+				}
+				if (blocks % 2 == 0) copied += referenceDegree - listed;
+				this.copiedLeft = copied;
+				this.blocksLeft = blocks;
+				this.copying = true;
+				this.runLeft = -1;
+			}
+			this.residualsLeft = degree - this.copiedLeft;
+			this.lastResidual = -1;
+			advanceCopied();
+			advanceResidual();
+			return degree;
+		}
+
+		/**
+		 * @return the next element of the list, in increasing order, or -1 at the end
+		 */
+		@Override
+		public int next() {
+			int result;
+			if (this.nextCopied < 0) {
+				result = this.nextResidual;
+				if (result >= 0) advanceResidual();
+			} else if (this.nextResidual < 0 || this.nextCopied < this.nextResidual) {
+				result = this.nextCopied;
+				advanceCopied();
+			} else {
+				result = this.nextResidual;
+				advanceResidual();
+			}
+			return result;
+		}
+
+		private void advanceResidual() {
+			if (this.residualsLeft == 0) {
+				this.nextResidual = -1;
+				return;
+			}
+			this.residualsLeft--;
+			int value = readVarint();
+			if (this.lastResidual < 0) {
+				this.lastResidual = this.vertex + ((value >>> 1) ^ -(value & 1));
+			} else {
+				this.lastResidual += value + 1;
+			}
+			this.nextResidual = this.lastResidual;
+		}
+
+		private void advanceCopied() {
+			if (this.copiedLeft == 0) {
+				this.nextCopied = -1;
+				return;
+			}
+			this.copiedLeft--;
+			while (true) {
+				int element = this.reference.next();
+				while (this.runLeft == 0 || this.runLeft == -1) {
+					if (this.runLeft == 0) this.copying = !this.copying;
+					this.runLeft = this.blocksLeft > 0 ? readBlock() : Integer.MAX_VALUE;
+				}
+				if (this.runLeft != Integer.MAX_VALUE) this.runLeft--;
+				if (this.copying) {
+					this.nextCopied = element;
+					return;
+				}
+			}
+		}
+
+		private int readBlock() {
+			int saved = this.position;
+			this.position = this.blockPosition;
+			int length = readVarint();
+			this.blockPosition = this.position;
+			this.position = saved;
+			this.blocksLeft--;
+			return length;
+		}
+
+		private int readVarint() {
+			int value = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = this.data[this.position++];
+				value |= (b & 0x7f) << shift;
+				if (b >= 0) return value;
+			}
+		}
+	}
+
+	@Override
+	public int indexOf(T key) {
+		Integer index = this.keyToIndex.get(key);
+		return index == null ? -1 : index;
+	}
+
+	@Override
+	public T keyAt(int index) {
+		return this.indexToKey.get(index);
+	}
+
+	@Override
+	public Cursor successorCursor() {
+		return new Cursor(true);
+	}
+
+	@Override
+	public Cursor predecessorCursor() {
+		return new Cursor(false);
+	}
+
+	/**
+	 * @return the average number of bits used per edge by the successor lists and their offsets
+	 */
+	public double bitsPerEdge() {
+		return 8.0 * (this.successors.length + 4L * this.successorOffsets.length) / Math.max(1, this.numEdges);
+	}
+
+	private int checkedIndexOf(T key) {
+		Integer index = this.keyToIndex.get(key);
+		if (index == null) throw new NoSuchElementException("Did not find 'key' vertex");
+		return index;
+	}
+
+	@Override
+	public int size() {
+		return this.indexToKey.size();
+	}
+
+	@Override
+	public int numEdges() {
+		return this.numEdges;
+	}
+
+	@Override
+	public boolean addEdge(T from, T to) {
+		checkedIndexOf(from);
+		checkedIndexOf(to);
+		throw new UnsupportedOperationException("CompressedGraph is immutable");
+	}
+
+	@Override
+	public boolean hasVertex(T key) {
+		return this.keyToIndex.containsKey(key);
+	}
+
+	@Override
+	public boolean hasEdge(T from, T to) throws NoSuchElementException {
+		int fromIndex = checkedIndexOf(from), toIndex = checkedIndexOf(to);
+		Cursor cursor = new Cursor(true);
+		cursor.reset(fromIndex);
+		for (int w = cursor.next(); w >= 0 && w <= toIndex; w = cursor.next()) {
+			if (w == toIndex) return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeEdge(T from, T to) throws NoSuchElementException {
+		checkedIndexOf(from);
+		checkedIndexOf(to);
+		throw new UnsupportedOperationException("CompressedGraph is immutable");
+	}
+
+	@Override
+	public int outDegree(T key) throws NoSuchElementException {
+		return new Cursor(true).open(checkedIndexOf(key));
+	}
+
+	@Override
+	public int inDegree(T key) throws NoSuchElementException {
+		return new Cursor(false).open(checkedIndexOf(key));
+	}
+
+	@Override
+	public Set<T> keySet() {
+		return Collections.unmodifiableSet(this.keyToIndex.keySet());
+	}
+
+	@Override
+	public Set<T> successorSet(T key) throws NoSuchElementException {
+		return toKeySet(successorIterator(key));
+	}
+
+	@Override
+	public Set<T> predecessorSet(T key) throws NoSuchElementException {
+		return toKeySet(predecessorIterator(key));
+	}
+
+	private Set<T> toKeySet(Iterator<T> it) {
+		Set<T> set = new HashSet<T>();
+		while (it.hasNext()) {
+			set.add(it.next());
+		}
+		return set;
+	}
+
+	@Override
+	public Iterator<T> successorIterator(T key) throws NoSuchElementException {
+		return new EdgeIterator(true, checkedIndexOf(key));
+	}
+
+	@Override
+	public Iterator<T> predecessorIterator(T key) throws NoSuchElementException {
+		return new EdgeIterator(false, checkedIndexOf(key));
+	}
+
+	@Override
+	public Set<T> stronglyConnectedComponent(T key) throws NoSuchElementException {
+		int start = checkedIndexOf(key);
+		return sweepComponent(start);
+	}
+
+	@Override
+	public List<T> shortestPath(T startLabel, T endLabel) throws NoSuchElementException {
+		if (!hasVertex(startLabel) || !hasVertex(endLabel)) {
+			throw new NoSuchElementException("Start or end vertex not found");
+		}
+		return BidirectionalSearch.shortestPath(this, startLabel, endLabel);
+	}
+
+	private class EdgeIterator implements Iterator<T> {
+		private final Cursor cursor;
+		private int next;
+
+		EdgeIterator(boolean successors, int vertex) {
+			this.cursor = new Cursor(successors);
+			this.cursor.reset(vertex);
+			this.next = this.cursor.next();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next >= 0;
+		}
+
+		@Override
+		public T next() {
+			if (this.next < 0) throw new NoSuchElementException();
+			T key = indexToKey.get(this.next);
+			this.next = this.cursor.next();
+			return key;
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks CompressedGraph against the CSRGraph it was built from.
+ */
+public class CompressedGraphTest {
+
+	/**
+	 * Neighboring vertices get similar successor lists, so that references are used.
+	 */
+	private Graph<Integer> similarLists(Random random, int n) {
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+		for (int v = 0; v < n; v++) {
+			int block = v / 8 * 8;
+			for (int i = 0; i < 20; i++) {
+				int target = (block + 37 * i) % n;
+				if (random.nextInt(4) != 0) g.addEdge(v, target);
+			}
+			for (int i = random.nextInt(5); i > 0; i--) {
+				g.addEdge(v, random.nextInt(n));
+			}
+		}
+		return g;
+	}
+
+	private void assertSameGraph(CSRGraph<Integer> csr, CompressedGraph<Integer> compressed) {
+		assertEquals(csr.size(), compressed.size());
+		assertEquals(csr.numEdges(), compressed.numEdges());
+		CompressedGraph<Integer>.Cursor cursor = compressed.successorCursor();
+		for (int v = 0; v < csr.size(); v++) {
+			Integer key = csr.keyAt(v);
+			assertEquals(csr.successorSet(key), compressed.successorSet(key));
+			assertEquals(csr.predecessorSet(key), compressed.predecessorSet(key));
+			assertEquals(csr.inDegree(key), compressed.inDegree(key));
+			// the cursor yields the CSR order exactly
+			assertEquals(csr.outDegree(key), compressed.outDegree(key));
+			cursor.reset(compressed.indexOf(key));
+			for (int e = csr.outOffsets[v]; e < csr.outOffsets[v + 1]; e++) {
+				assertEquals(csr.keyAt(csr.outTargets[e]), compressed.keyAt(cursor.next()));
+			}
+			assertEquals(-1, cursor.next());
+		}
+	}
+
+	@Test
+	public void testSimilarLists() {
+		Random random = new Random(5);
+		CSRGraph<Integer> csr = CSRGraph.from(similarLists(random, 2000));
+		CompressedGraph<Integer> compressed = CompressedGraph.from(csr);
+		assertSameGraph(csr, compressed);
+		// references and gaps should beat 32 bits per edge by a wide margin
+		assertTrue(compressed.bitsPerEdge() < 16);
+		for (int trial = 0; trial < 100; trial++) {
+			int from = random.nextInt(2000), to = random.nextInt(2000);
+			assertEquals(csr.hasEdge(from, to), compressed.hasEdge(from, to));
+			List<Integer> expected = csr.shortestPath(from, to);
+			List<Integer> path = compressed.shortestPath(from, to);
+			assertEquals(expected == null, path == null);
+			if (path != null) {
+				assertEquals(expected.size(), path.size());
+			}
+		}
+	}
+
+	@Test
+	public void testRandomGraphs() {
+		Random random = new Random(9);
+		for (int trial = 0; trial < 20; trial++) {
+			int n = 1 + random.nextInt(200);
+			Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+			for (int e = random.nextInt(5 * n); e > 0; e--) {
+				g.addEdge(random.nextInt(n), random.nextInt(n));
+			}
+			CSRGraph<Integer> csr = CSRGraph.from(g);
+			CompressedGraph<Integer> compressed = CompressedGraph.from(g);
+			assertSameGraph(CSRGraph.from(compressed), compressed);
+			for (int v = 0; v < n; v++) {
+				assertEquals(csr.stronglyConnectedComponent(v), compressed.stronglyConnectedComponent(v));
+			}
+		}
+	}
+}
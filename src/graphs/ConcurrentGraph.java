@@ -0,0 +1,518 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Mutable graph that can be read by any number of threads while edges are added and removed.
+ *
+ * All edges live in an immutable Snapshot. A writer builds the next snapshot by copy-on-write and
+ * publishes it through a volatile field; readers take whatever snapshot is current and never lock
+ * or wait. Every query runs entirely against the one snapshot it started with, so a long
+ * shortestPath or stronglyConnectedComponent sees a consistent graph even while updates go on.
+ * Use snapshot() to run several queries against the same version.
+ *
+ * Each vertex has sorted int arrays of successor and predecessor indices, reached through a page
+ * table of PAGE_SIZE vertices per page. An update copies the page table, the two affected pages and
+ * the two affected arrays, so it costs O(size() / PAGE_SIZE + PAGE_SIZE + degree) however large the
+ * graph is, and snapshots share everything else. Writers are serialized by a lock that readers
+ * never take.
+ *
+ * @param <T>
+ */
+public class ConcurrentGraph<T> extends Graph<T> {
+	static final int PAGE_BITS = 10;
+	static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int[] NO_NEIGHBORS = new int[0];
+
+	private final Map<T,Integer> keyToIndex;
+	private final List<T> indexToKey;
+	private final Object writeLock = new Object();
+	private volatile Snapshot<T> current;
+
+	ConcurrentGraph(Set<T> keys) {
+		this.keyToIndex = new HashMap<T,Integer>(2 * keys.size());
+		this.indexToKey = new ArrayList<T>(keys.size());
+		for (T key : keys) {
+			this.keyToIndex.put(key, this.indexToKey.size());
+			this.indexToKey.add(key);
+		}
+		int pages = (keys.size() + PAGE_SIZE - 1) >>> PAGE_BITS;
+		int[][][] empty = new int[pages][][];
+		for (int p = 0; p < pages; p++) {
+			empty[p] = new int[Math.min(PAGE_SIZE, keys.size() - (p << PAGE_BITS))][];
+			Arrays.fill(empty[p], NO_NEIGHBORS);
+		}
+		this.current = new Snapshot<T>(this.keyToIndex, this.indexToKey, empty, empty, 0, 0);
+	}
+
+	/**
+	 * Copies any graph into a new ConcurrentGraph. The source graph is only read.
+	 * @param graph
+	 * @return a ConcurrentGraph with the same vertices and edges
+	 */
+	public static <T> ConcurrentGraph<T> from(Graph<T> graph) {
+		ConcurrentGraph<T> copy = new ConcurrentGraph<T>(graph.keySet());
+		int n = copy.indexToKey.size();
+		int[][] successors = new int[n][];
+		int[][] predecessors = new int[n][];
+		int[] inDegree = new int[n];
+		long edgeCount = 0;
+		for (int v = 0; v < n; v++) {
+			Set<T> keys = graph.successorSet(copy.indexToKey.get(v));
+			successors[v] = new int[keys.size()];
+			int i = 0;
+			for (T key : keys) {
+				int w = copy.keyToIndex.get(key);
+				successors[v][i++] = w;
+				inDegree[w]++;
+			}
+			Arrays.sort(successors[v]);
+			edgeCount += i;
+		}
+		for (int v = 0; v < n; v++) {
+			predecessors[v] = inDegree[v] == 0 ? NO_NEIGHBORS : new int[inDegree[v]];
+			inDegree[v] = 0;
+		}
+		// scanning sources in increasing order keeps each predecessor array sorted
+		for (int v = 0; v < n; v++) {
+			for (int w : successors[v]) {
+				predecessors[w][inDegree[w]++] = v;
+			}
+		}
+		copy.current = new Snapshot<T>(copy.keyToIndex, copy.indexToKey, paged(successors), paged(predecessors), edgeCount, 0);
+		return copy;
+	}
+
+	private static int[][][] paged(int[][] lists) {
+		int[][][] pages = new int[(lists.length + PAGE_SIZE - 1) >>> PAGE_BITS][][];
+		for (int p = 0; p < pages.length; p++) {
+			int start = p << PAGE_BITS;
+			pages[p] = Arrays.copyOfRange(lists, start, Math.min(lists.length, start + PAGE_SIZE));
+		}
+		return pages;
+	}
+
+	/**
+	 * @return the current version of the graph, which stays the same however it changes later
+	 */
+	public Snapshot<T> snapshot() {
+		return this.current;
+	}
+
+	/**
+	 * @return the number of successful updates so far
+	 */
+	public long version() {
+		return this.current.version;
+	}
+
+	private int checkedIndexOf(T key) {
+		Integer index = this.keyToIndex.get(key);
+		if (index == null) throw new NoSuchElementException("Did not find 'key' vertex");
+		return index;
+	}
+
+	@Override
+	public boolean addEdge(T from, T to) throws NoSuchElementException {
+		int fromIndex = checkedIndexOf(from), toIndex = checkedIndexOf(to);
+		synchronized (this.writeLock) {
+			Snapshot<T> before = this.current;
+			int[] successors = before.successors(fromIndex);
+			int at = Arrays.binarySearch(successors, toIndex);
+			if (at >= 0) return false;
+			int[] predecessors = before.predecessors(toIndex);
+			this.current = new Snapshot<T>(this.keyToIndex, this.indexToKey,
+					replace(before.out, fromIndex, inserted(successors, -at - 1, toIndex)),
+					replace(before.in, toIndex, inserted(predecessors, -Arrays.binarySearch(predecessors, fromIndex) - 1, fromIndex)),
+					before.edgeCount + 1, before.version + 1);
+			return true;
+		}
+	}
+
+	@Override
+	public boolean removeEdge(T from, T to) throws NoSuchElementException {
+		int fromIndex = checkedIndexOf(from), toIndex = checkedIndexOf(to);
+		synchronized (this.writeLock) {
+			Snapshot<T> before = this.current;
+			int[] successors = before.successors(fromIndex);
+			int at = Arrays.binarySearch(successors, toIndex);
+			if (at < 0) return false;
+			int[] predecessors = before.predecessors(toIndex);
+			this.current = new Snapshot<T>(this.keyToIndex, this.indexToKey,
+					replace(before.out, fromIndex, removed(successors, at)),
+					replace(before.in, toIndex, removed(predecessors, Arrays.binarySearch(predecessors, fromIndex))),
+					before.edgeCount - 1, before.version + 1);
+			return true;
+		}
+	}
+
+	private static int[] inserted(int[] list, int position, int value) {
+		int[] result = new int[list.length + 1];
+		System.arraycopy(list, 0, result, 0, position);
+		result[position] = value;
+		System.arraycopy(list, position, result, position + 1, list.length - position);
+		return result;
+	}
+
+	private static int[] removed(int[] list, int position) {
+		if (list.length == 1) return NO_NEIGHBORS;
+		int[] result = new int[list.length - 1];
+		System.arraycopy(list, 0, result, 0, position);
+		System.arraycopy(list, position + 1, result, position, result.length - position);
+		return result;
+	}
+
+	/**
+	 * @return a page table that differs from pages only in the list of vertex v
+	 */
+	private static int[][][] replace(int[][][] pages, int v, int[] list) {
+		int[][][] table = pages.clone();
+		int[][] page = pages[v >>> PAGE_BITS].clone();
+		page[v & (PAGE_SIZE - 1)] = list;
+		table[v >>> PAGE_BITS] = page;
+		return table;
+	}
+
+	// Every read takes the current snapshot once and answers from it alone
+
+	@Override
+	public int size() {
+		return this.indexToKey.size();
+	}
+
+	@Override
+	public int numEdges() {
+		return this.current.numEdges();
+	}
+
+	@Override
+	public boolean hasVertex(T key) {
+		return this.keyToIndex.containsKey(key);
+	}
+
+	@Override
+	public boolean hasEdge(T from, T to) throws NoSuchElementException {
+		return this.current.hasEdge(from, to);
+	}
+
+	@Override
+	public int outDegree(T key) throws NoSuchElementException {
+		return this.current.outDegree(key);
+	}
+
+	@Override
+	public int inDegree(T key) throws NoSuchElementException {
+		return this.current.inDegree(key);
+	}
+
+	@Override
+	public Set<T> keySet() {
+		return Collections.unmodifiableSet(this.keyToIndex.keySet());
+	}
+
+	@Override
+	public Set<T> successorSet(T key) throws NoSuchElementException {
+		return this.current.successorSet(key);
+	}
+
+	@Override
+	public Set<T> predecessorSet(T key) throws NoSuchElementException {
+		return this.current.predecessorSet(key);
+	}
+
+	/**
+	 * The iterator walks the successors of the version current when it was created.
+	 */
+	@Override
+	public Iterator<T> successorIterator(T key) throws NoSuchElementException {
+		return this.current.successorIterator(key);
+	}
+
+	/**
+	 * The iterator walks the predecessors of the version current when it was created.
+	 */
+	@Override
+	public Iterator<T> predecessorIterator(T key) throws NoSuchElementException {
+		return this.current.predecessorIterator(key);
+	}
+
+	@Override
+	public Set<T> stronglyConnectedComponent(T key) throws NoSuchElementException {
+		return this.current.stronglyConnectedComponent(key);
+	}
+
+	@Override
+	public List<T> shortestPath(T startLabel, T endLabel) throws NoSuchElementException {
+		return this.current.shortestPath(startLabel, endLabel);
+	}
+
+	@Override
+	public Map<T,Integer> distancesFrom(T key) throws NoSuchElementException {
+		return this.current.distancesFrom(key);
+	}
+
+	@Override
+	public boolean isReachable(T from, T to) throws NoSuchElementException {
+		return this.current.isReachable(from, to);
+	}
+
+	@Override
+	public int indexOf(T key) {
+		Integer index = this.keyToIndex.get(key);
+		return index == null ? -1 : index;
+	}
+
+	@Override
+	public T keyAt(int index) {
+		return this.indexToKey.get(index);
+	}
+
+	/**
+	 * The cursor reads the version current when it was created.
+	 */
+	@Override
+	public NeighborCursor successorCursor() {
+		return this.current.successorCursor();
+	}
+
+	/**
+	 * The cursor reads the version current when it was created.
+	 */
+	@Override
+	public NeighborCursor predecessorCursor() {
+		return this.current.predecessorCursor();
+	}
+
+	@Override
+	public void forEachSuccessor(int vertex, IntConsumer action) {
+		this.current.forEachSuccessor(vertex, action);
+	}
+
+	@Override
+	public void forEachPredecessor(int vertex, IntConsumer action) {
+		this.current.forEachPredecessor(vertex, action);
+	}
+
+	/**
+	 * One immutable version of a ConcurrentGraph. It can be shared freely between threads, and
+	 * addEdge and removeEdge throw UnsupportedOperationException.
+	 *
+	 * @param <T>
+	 */
+	public static final class Snapshot<T> extends Graph<T> {
+		private final Map<T,Integer> keyToIndex;
+		private final List<T> indexToKey;
+		// out[v >>> PAGE_BITS][v & (PAGE_SIZE - 1)] is the sorted successor array of v; in likewise
+		private final int[][][] out;
+		private final int[][][] in;
+		private final long edgeCount;
+		private final long version;
+
+		private Snapshot(Map<T,Integer> keyToIndex, List<T> indexToKey, int[][][] out, int[][][] in, long edgeCount, long version) {
+			this.keyToIndex = keyToIndex;
+			this.indexToKey = indexToKey;
+			this.out = out;
+			this.in = in;
+			this.edgeCount = edgeCount;
+			this.version = version;
+		}
+
+		/**
+		 * @return the number of updates made to the graph before this version
+		 */
+		public long version() {
+			return this.version;
+		}
+
+		int[] successors(int v) {
+			return this.out[v >>> PAGE_BITS][v & (PAGE_SIZE - 1)];
+		}
+
+		int[] predecessors(int v) {
+			return this.in[v >>> PAGE_BITS][v & (PAGE_SIZE - 1)];
+		}
+
+		private int checkedIndexOf(T key) {
+			Integer index = this.keyToIndex.get(key);
+			if (index == null) throw new NoSuchElementException("Did not find 'key' vertex");
+			return index;
+		}
+
+		@Override
+		public int size() {
+			return this.indexToKey.size();
+		}
+
+		@Override
+		public int numEdges() {
+			return (int) this.edgeCount;
+		}
+
+		@Override
+		public boolean addEdge(T from, T to) {
+			checkedIndexOf(from);
+			checkedIndexOf(to);
+			throw new UnsupportedOperationException("Snapshot is immutable");
+		}
+
+		@Override
+		public boolean removeEdge(T from, T to) throws NoSuchElementException {
+			checkedIndexOf(from);
+			checkedIndexOf(to);
+			throw new UnsupportedOperationException("Snapshot is immutable");
+		}
+
+		@Override
+		public boolean hasVertex(T key) {
+			return this.keyToIndex.containsKey(key);
+		}
+
+		@Override
+		public boolean hasEdge(T from, T to) throws NoSuchElementException {
+			int fromIndex = checkedIndexOf(from), toIndex = checkedIndexOf(to);
+			return Arrays.binarySearch(successors(fromIndex), toIndex) >= 0;
+		}
+
+		@Override
+		public int outDegree(T key) throws NoSuchElementException {
+			return successors(checkedIndexOf(key)).length;
+		}
+
+		@Override
+		public int inDegree(T key) throws NoSuchElementException {
+			return predecessors(checkedIndexOf(key)).length;
+		}
+
+		@Override
+		public Set<T> keySet() {
+			return Collections.unmodifiableSet(this.keyToIndex.keySet());
+		}
+
+		@Override
+		public Set<T> successorSet(T key) throws NoSuchElementException {
+			return toKeySet(successors(checkedIndexOf(key)));
+		}
+
+		@Override
+		public Set<T> predecessorSet(T key) throws NoSuchElementException {
+			return toKeySet(predecessors(checkedIndexOf(key)));
+		}
+
+		private Set<T> toKeySet(int[] list) {
+			Set<T> set = new HashSet<T>();
+			for (int w : list) {
+				set.add(this.indexToKey.get(w));
+			}
+			return set;
+		}
+
+		@Override
+		public Iterator<T> successorIterator(T key) throws NoSuchElementException {
+			return new EdgeIterator(successors(checkedIndexOf(key)));
+		}
+
+		@Override
+		public Iterator<T> predecessorIterator(T key) throws NoSuchElementException {
+			return new EdgeIterator(predecessors(checkedIndexOf(key)));
+		}
+
+		@Override
+		public Set<T> stronglyConnectedComponent(T key) throws NoSuchElementException {
+			return sweepComponent(checkedIndexOf(key));
+		}
+
+		@Override
+		public List<T> shortestPath(T startLabel, T endLabel) throws NoSuchElementException {
+			if (!hasVertex(startLabel) || !hasVertex(endLabel)) {
+				throw new NoSuchElementException("Start or end vertex not found");
+			}
+			return BidirectionalSearch.shortestPath(this, startLabel, endLabel);
+		}
+
+		@Override
+		public int indexOf(T key) {
+			Integer index = this.keyToIndex.get(key);
+			return index == null ? -1 : index;
+		}
+
+		@Override
+		public T keyAt(int index) {
+			return this.indexToKey.get(index);
+		}
+
+		@Override
+		public NeighborCursor successorCursor() {
+			return new ArrayCursor(true);
+		}
+
+		@Override
+		public NeighborCursor predecessorCursor() {
+			return new ArrayCursor(false);
+		}
+
+		@Override
+		public void forEachSuccessor(int vertex, IntConsumer action) {
+			for (int w : successors(vertex)) {
+				action.accept(w);
+			}
+		}
+
+		@Override
+		public void forEachPredecessor(int vertex, IntConsumer action) {
+			for (int w : predecessors(vertex)) {
+				action.accept(w);
+			}
+		}
+
+		private class ArrayCursor implements NeighborCursor {
+			private final boolean successors;
+			private int[] list = NO_NEIGHBORS;
+			private int position;
+
+			ArrayCursor(boolean successors) {
+				this.successors = successors;
+			}
+
+			@Override
+			public void reset(int vertex) {
+				this.list = this.successors ? successors(vertex) : predecessors(vertex);
+				this.position = 0;
+			}
+
+			@Override
+			public int next() {
+				return this.position < this.list.length ? this.list[this.position++] : -1;
+			}
+		}
+
+		private class EdgeIterator implements Iterator<T> {
+			private final int[] targets;
+			private int position;
+
+			EdgeIterator(int[] targets) {
+				this.targets = targets;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return this.position < this.targets.length;
+			}
+
+			@Override
+			public T next() {
+				if (this.position >= this.targets.length) throw new NoSuchElementException();
+				return indexToKey.get(this.targets[this.position++]);
+			}
+		}
+	}
+}
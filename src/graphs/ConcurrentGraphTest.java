@@ -0,0 +1,124 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ConcurrentGraphTest {
+
+	@Test
+	public void testMatchesAdjacencyList() {
+		// more vertices than one page, so updates cross pages
+		int n = 3 * ConcurrentGraph.PAGE_SIZE;
+		Random random = new Random(23);
+		Graph<Integer> expected = new AdjacencyListGraph<Integer>(keys(n));
+		ConcurrentGraph<Integer> g = new ConcurrentGraph<Integer>(keys(n));
+		for (int step = 0; step < 40000; step++) {
+			int from = random.nextInt(n), to = random.nextInt(n);
+			if (random.nextInt(3) > 0) {
+				assertEquals(expected.addEdge(from, to), g.addEdge(from, to));
+			} else {
+				assertEquals(expected.removeEdge(from, to), g.removeEdge(from, to));
+			}
+		}
+		assertEquals(expected.numEdges(), g.numEdges());
+		for (int v = 0; v < n; v++) {
+			assertEquals(expected.successorSet(v), g.successorSet(v));
+			assertEquals(expected.predecessorSet(v), g.predecessorSet(v));
+		}
+		for (int i = 0; i < 50; i++) {
+			int from = random.nextInt(n), to = random.nextInt(n);
+			assertEquals(expected.stronglyConnectedComponent(from), g.stronglyConnectedComponent(from));
+			List<Integer> path = g.shortestPath(from, to), expectedPath = expected.shortestPath(from, to);
+			assertEquals(expectedPath == null ? -1 : expectedPath.size(), path == null ? -1 : path.size());
+		}
+
+		ConcurrentGraph<Integer> copy = ConcurrentGraph.from(expected);
+		assertEquals(expected.numEdges(), copy.numEdges());
+		for (int v = 0; v < n; v++) {
+			assertEquals(expected.predecessorSet(v), copy.predecessorSet(v));
+		}
+	}
+
+	@Test
+	public void testSnapshotsDoNotChange() {
+		ConcurrentGraph<Integer> g = new ConcurrentGraph<Integer>(keys(5));
+		g.addEdge(0, 1);
+		ConcurrentGraph.Snapshot<Integer> before = g.snapshot();
+		g.addEdge(1, 2);
+		g.removeEdge(0, 1);
+		assertTrue(before.hasEdge(0, 1));
+		assertFalse(before.hasEdge(1, 2));
+		assertEquals(1, before.numEdges());
+		assertEquals(1, before.version());
+		assertEquals(3, g.version());
+		assertFalse(g.hasEdge(0, 1));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSnapshotIsImmutable() {
+		new ConcurrentGraph<Integer>(keys(2)).snapshot().addEdge(0, 1);
+	}
+
+	/**
+	 * A writer keeps changing the graph while readers check that every snapshot they take is
+	 * internally consistent and that versions never go back.
+	 */
+	@Test
+	public void testReadersSeeConsistentSnapshots() throws Exception {
+		final int n = 2000;
+		final ConcurrentGraph<Integer> g = new ConcurrentGraph<Integer>(keys(n));
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int t = 0; t < 3; t++) {
+			final Random random = new Random(t);
+			readers.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						long lastVersion = -1;
+						while (!done.get()) {
+							ConcurrentGraph.Snapshot<Integer> s = g.snapshot();
+							assertTrue(s.version() >= lastVersion);
+							lastVersion = s.version();
+							int outDegrees = 0, inDegrees = 0;
+							for (int v = 0; v < n; v++) {
+								outDegrees += s.outDegree(v);
+								inDegrees += s.inDegree(v);
+								for (int w : s.successors(v)) {
+									assertTrue(s.predecessorSet(w).contains(v));
+								}
+							}
+							assertEquals(s.numEdges(), outDegrees);
+							assertEquals(s.numEdges(), inDegrees);
+							g.shortestPath(random.nextInt(n), random.nextInt(n));
+							g.stronglyConnectedComponent(random.nextInt(n));
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			});
+		}
+		for (Thread reader : readers) reader.start();
+		Random random = new Random(230);
+		for (int step = 0; step < 60000; step++) {
+			int from = random.nextInt(n), to = random.nextInt(n);
+			if (random.nextInt(3) > 0) g.addEdge(from, to);
+			else g.removeEdge(from, to);
+		}
+		done.set(true);
+		for (Thread reader : readers) reader.join();
+		if (failure.get() != null) throw new AssertionError(failure.get());
+	}
+}
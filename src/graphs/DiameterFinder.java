@@ -0,0 +1,269 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the diameter of the largest strongly connected component of a graph, together with a
+ * farthest pair and a shortest path between them, without running a BFS from every vertex.
+ *
+ * The search follows DiFUB (Crescenzi, Grossi, Lanzi and Marino), the directed version of iFUB:
+ * <ol>
+ * <li>A double sweep from the highest-degree vertex gives a first lower bound, and the middle
+ * vertex of the path it finds is used as the center u.</li>
+ * <li>Forward and backward BFS from u split the component into levels F_i (i edges from u) and
+ * B_i (i edges to u).</li>
+ * <li>Going down from the deepest level i, the backward eccentricity of every vertex in F_i and
+ * the forward eccentricity of every vertex in B_i raise the lower bound. Any pair (x, y) with
+ * d(x, y) > 2(i - 1) must have y in some F_j or x in some B_j with j >= i, because otherwise
+ * d(x, y) <= d(x, u) + d(u, y) <= 2(i - 1). So once the lower bound exceeds 2(i - 1), it is
+ * the diameter.</li>
+ * </ol>
+ * Every BFS also tightens per-vertex bounds on the forward eccentricity, which are kept as a
+ * by-product.
+ *
+ * @param <T>
+ */
+public class DiameterFinder<T> {
+	private final CSRGraph<T> graph;
+	private final boolean[] inComponent;
+	private final int componentSize;
+	private final int[] distance;
+	private final int[] queue;
+	private final int[] eccentricityLower;
+	private final int[] eccentricityUpper;
+	private int bfsCount;
+
+	// Best pair found so far
+	private int lowerBound = -1;
+	private int bestFrom = -1;
+	private int bestTo = -1;
+
+	/**
+	 * The result of a diameter search.
+	 *
+	 * @param <T>
+	 */
+	public static class Result<T> {
+		public final T from;
+		public final T to;
+		public final int diameter;
+		public final List<T> path;
+		public final int bfsCount;
+
+		Result(T from, T to, int diameter, List<T> path, int bfsCount) {
+			this.from = from;
+			this.to = to;
+			this.diameter = diameter;
+			this.path = path;
+			this.bfsCount = bfsCount;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("[%s, %s] at distance %d (%d BFS runs): %s", this.from, this.to, this.diameter, this.bfsCount, this.path);
+		}
+	}
+
+	/**
+	 * @param graph, which is frozen into a CSRGraph unless it already is one
+	 */
+	public DiameterFinder(Graph<T> graph) {
+		this.graph = graph instanceof CSRGraph ? (CSRGraph<T>) graph : CSRGraph.from(graph);
+		int n = this.graph.size();
+		this.distance = new int[n];
+		this.queue = new int[n];
+		this.eccentricityLower = new int[n];
+		this.eccentricityUpper = new int[n];
+		Arrays.fill(this.eccentricityUpper, Integer.MAX_VALUE);
+
+		// Restrict everything to the largest strongly connected component. The components come
+		// from the graph's reachability index, so its own shortestPath and isReachable reuse them
+		this.inComponent = new boolean[n];
+		ReachabilityIndex index = this.graph.reachabilityIndex();
+		int[] sizes = new int[index.componentCount() + 1];
+		int largest = 0;
+		for (int v = 0; v < n; v++) {
+			int c = index.componentOf(v);
+			if (++sizes[c] > sizes[largest]) largest = c;
+		}
+		int size = 0;
+		for (int v = 0; v < n; v++) {
+			if (index.componentOf(v) == largest) {
+				this.inComponent[v] = true;
+				size++;
+			}
+		}
+		this.componentSize = size;
+	}
+
+	/**
+	 * @return the number of vertices in the largest strongly connected component
+	 */
+	public int componentSize() {
+		return this.componentSize;
+	}
+
+	/**
+	 * Runs the search. Calling it again repeats the work.
+	 * @return the farthest pair within the largest strongly connected component, or null if the
+	 * graph has no vertices
+	 */
+	public Result<T> find() {
+		if (this.componentSize == 0) {
+			return null;
+		}
+		int n = this.graph.size();
+		int hub = -1;
+		for (int v = 0; v < n; v++) {
+			if (this.inComponent[v] && (hub == -1 || degree(v) > degree(hub))) hub = v;
+		}
+
+		// Double sweep: hub -> farthest a (forward), then farthest b with a path b -> a (backward)
+		int a = bfs(hub, true);
+		int b = bfs(a, false);
+		int[] sweepParent = new int[n];
+		shortestPathParents(b, sweepParent);
+		List<Integer> sweep = new ArrayList<Integer>();
+		for (int v = a; v != b; v = sweepParent[v]) sweep.add(v);
+		sweep.add(b);
+		int center = sweep.get(sweep.size() / 2);
+
+		// Forward and backward levels around the center
+		bfs(center, true);
+		int[] forwardLevel = this.distance.clone();
+		int forwardEccentricity = maxDistance();
+		bfs(center, false);
+		int[] backwardLevel = this.distance.clone();
+		int backwardEccentricity = maxDistance();
+
+		int[][] forwardByLevel = groupByLevel(forwardLevel, forwardEccentricity);
+		int[][] backwardByLevel = groupByLevel(backwardLevel, backwardEccentricity);
+		for (int i = Math.max(forwardEccentricity, backwardEccentricity); i > 0; i--) {
+			if (i < forwardByLevel.length) {
+				for (int v : forwardByLevel[i]) bfs(v, false);
+			}
+			if (i < backwardByLevel.length) {
+				for (int v : backwardByLevel[i]) bfs(v, true);
+			}
+			if (this.lowerBound > 2 * (i - 1)) {
+				break;
+			}
+		}
+
+		List<T> path = this.graph.shortestPath(this.graph.keyAt(this.bestFrom), this.graph.keyAt(this.bestTo));
+		return new Result<T>(this.graph.keyAt(this.bestFrom), this.graph.keyAt(this.bestTo), this.lowerBound, path, this.bfsCount);
+	}
+
+	/**
+	 * Bounds on the forward eccentricity of a vertex (its largest distance to another vertex of the
+	 * component), as tightened by the BFS runs of the last call to find().
+	 * @param key
+	 * @return {lower, upper}, or null if key is not in the largest strongly connected component
+	 */
+	public int[] eccentricityBounds(T key) {
+		int v = this.graph.indexOf(key);
+		if (v < 0 || !this.inComponent[v]) return null;
+		return new int[] {this.eccentricityLower[v], this.eccentricityUpper[v]};
+	}
+
+	private int degree(int v) {
+		return this.graph.outOffsets[v + 1] - this.graph.outOffsets[v] + this.graph.inOffsets[v + 1] - this.graph.inOffsets[v];
+	}
+
+	/**
+	 * BFS from source inside the component, along successors if forward and along predecessors
+	 * otherwise. Leaves the distances in distance[] (-1 for unreached), updates the lower bound and
+	 * the eccentricity bounds, and returns a farthest vertex.
+	 */
+	private int bfs(int source, boolean forward) {
+		this.bfsCount++;
+		int[] offsets = forward ? this.graph.outOffsets : this.graph.inOffsets;
+		int[] targets = forward ? this.graph.outTargets : this.graph.inTargets;
+		Arrays.fill(this.distance, -1);
+		int head = 0, tail = 0;
+		this.queue[tail++] = source;
+		this.distance[source] = 0;
+		while (head < tail) {
+			int v = this.queue[head++];
+			for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+				int w = targets[e];
+				if (this.inComponent[w] && this.distance[w] == -1) {
+					this.distance[w] = this.distance[v] + 1;
+					this.queue[tail++] = w;
+				}
+			}
+		}
+		int farthest = this.queue[tail - 1];
+		int eccentricity = this.distance[farthest];
+		if (eccentricity > this.lowerBound) {
+			this.lowerBound = eccentricity;
+			this.bestFrom = forward ? source : farthest;
+			this.bestTo = forward ? farthest : source;
+		}
+
+		if (forward) {
+			this.eccentricityLower[source] = this.eccentricityUpper[source] = eccentricity;
+		} else {
+			// d(v, source) <= ecc(v) <= d(v, source) + ecc(source), the latter once ecc(source) is known
+			for (int i = 0; i < tail; i++) {
+				int v = this.queue[i];
+				if (this.distance[v] > this.eccentricityLower[v]) this.eccentricityLower[v] = this.distance[v];
+				if (this.eccentricityUpper[source] != Integer.MAX_VALUE) {
+					int upper = this.distance[v] + this.eccentricityUpper[source];
+					if (upper < this.eccentricityUpper[v]) this.eccentricityUpper[v] = upper;
+				}
+			}
+		}
+		return farthest;
+	}
+
+	private int maxDistance() {
+		int max = 0;
+		for (int d : this.distance) if (d > max) max = d;
+		return max;
+	}
+
+	/**
+	 * Forward BFS from source inside the component that records parents instead of distances.
+	 */
+	private void shortestPathParents(int source, int[] parent) {
+		Arrays.fill(parent, -1);
+		int head = 0, tail = 0;
+		this.queue[tail++] = source;
+		parent[source] = source;
+		while (head < tail) {
+			int v = this.queue[head++];
+			for (int e = this.graph.outOffsets[v]; e < this.graph.outOffsets[v + 1]; e++) {
+				int w = this.graph.outTargets[e];
+				if (this.inComponent[w] && parent[w] == -1) {
+					parent[w] = v;
+					this.queue[tail++] = w;
+				}
+			}
+		}
+	}
+
+	private static int[][] groupByLevel(int[] level, int maxLevel) {
+		int[] counts = new int[maxLevel + 1];
+		for (int d : level) if (d >= 0) counts[d]++;
+		int[][] groups = new int[maxLevel + 1][];
+		for (int i = 0; i <= maxLevel; i++) groups[i] = new int[counts[i]];
+		for (int v = 0; v < level.length; v++) {
+			int d = level[v];
+			if (d >= 0) groups[d][--counts[d]] = v;
+		}
+		return groups;
+	}
+
+	/**
+	 * Finds the challenge pair for the LivingPeople graph.
+	 */
+	public static void main(String[] args) {
+		CSRGraph<String> graph = WikiSurfing.wikiLivingPeopleGraphCSR(true);
+		DiameterFinder<String> finder = new DiameterFinder<String>(graph);
+		System.out.printf("Largest strongly connected component has %d vertices%n", finder.componentSize());
+		System.out.println(finder.find());
+	}
+}
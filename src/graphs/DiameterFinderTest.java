@@ -0,0 +1,119 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks DiameterFinder against a breadth-first search from every vertex of the largest strongly
+ * connected component.
+ */
+public class DiameterFinderTest {
+
+	private static void checkAgainstAllPairs(Graph<Integer> g) {
+		DiameterFinder<Integer> finder = new DiameterFinder<Integer>(g);
+		DiameterFinder.Result<Integer> result = finder.find();
+
+		// The component the finder chose, which must be one of the largest
+		List<Integer> component = new ArrayList<Integer>();
+		for (int v : g.keySet()) {
+			if (finder.eccentricityBounds(v) != null) component.add(v);
+		}
+		assertEquals(finder.componentSize(), component.size());
+		assertEquals(new HashSet<Integer>(component), g.stronglyConnectedComponent(component.get(0)));
+		for (int v : g.keySet()) {
+			assertTrue(g.stronglyConnectedComponent(v).size() <= component.size());
+		}
+
+		// Paths between members of a component never leave it, so plain BFS distances will do
+		int diameter = 0;
+		for (int v : component) {
+			Map<Integer,Integer> distances = g.distancesFrom(v);
+			int eccentricity = 0;
+			for (int w : component) {
+				eccentricity = Math.max(eccentricity, distances.get(w));
+			}
+			int[] bounds = finder.eccentricityBounds(v);
+			assertTrue(bounds[0] <= eccentricity && eccentricity <= bounds[1]);
+			diameter = Math.max(diameter, eccentricity);
+		}
+		assertEquals(diameter, result.diameter);
+		assertEquals((int) g.distancesFrom(result.from).get(result.to), diameter);
+
+		List<Integer> path = result.path;
+		assertEquals(diameter + 1, path.size());
+		assertEquals(result.from, path.get(0));
+		assertEquals(result.to, path.get(path.size() - 1));
+		for (int i = 0; i + 1 < path.size(); i++) {
+			assertTrue(g.hasEdge(path.get(i), path.get(i + 1)));
+		}
+	}
+
+	@Test
+	public void testRandomGraphs() {
+		Random random = new Random(7);
+		for (int round = 0; round < 200; round++) {
+			int n = 2 + random.nextInt(60);
+			// from sparse graphs with a few small components to dense ones
+			int edges = n + random.nextInt(3 * n);
+			Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+			for (int i = 0; i < edges; i++) {
+				g.addEdge(random.nextInt(n), random.nextInt(n));
+			}
+			checkAgainstAllPairs(g);
+		}
+	}
+
+	@Test
+	public void testLongCycleWithChords() {
+		// a long cycle keeps the diameter large, so find() goes through many levels
+		int n = 200;
+		Random random = new Random(8);
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+		for (int v = 0; v < n; v++) g.addEdge(v, (v + 1) % n);
+		for (int i = 0; i < 10; i++) g.addEdge(random.nextInt(n), random.nextInt(n));
+		checkAgainstAllPairs(g);
+	}
+
+	@Test
+	public void testDeepChainOfSmallComponents() {
+		// 2-cycles joined one way in index order, above the sequential threshold of ParallelSCC
+		int n = 5 * ParallelSCC.SEQUENTIAL_THRESHOLD;
+		CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<Integer>(keys(n));
+		for (int v = 0; v < n; v += 2) {
+			builder.addEdge(v, v + 1);
+			builder.addEdge(v + 1, v);
+			if (v + 2 < n) builder.addEdge(v + 1, v + 2);
+		}
+		CSRGraph<Integer> g = builder.build();
+		DiameterFinder<Integer> finder = new DiameterFinder<Integer>(g);
+		assertEquals(2, finder.componentSize());
+		DiameterFinder.Result<Integer> result = finder.find();
+		assertEquals(1, result.diameter);
+		assertEquals(2, result.path.size());
+		assertTrue(g.hasEdge(result.from, result.to));
+	}
+
+	@Test
+	public void testSmallGraphs() {
+		assertNull(new DiameterFinder<Integer>(new AdjacencyListGraph<Integer>(keys(0))).find());
+
+		DiameterFinder.Result<Integer> result = new DiameterFinder<Integer>(new AdjacencyListGraph<Integer>(keys(1))).find();
+		assertEquals(0, result.diameter);
+		assertEquals(1, result.path.size());
+
+		// no cycles: every component is a single vertex
+		Graph<Integer> path = new AdjacencyListGraph<Integer>(keys(4));
+		for (int v = 0; v + 1 < 4; v++) path.addEdge(v, v + 1);
+		assertEquals(0, new DiameterFinder<Integer>(path).find().diameter);
+	}
+}
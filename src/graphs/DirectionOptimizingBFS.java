@@ -0,0 +1,195 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Direction-optimizing breadth-first search over a CSRGraph (Beamer, Asanovic and Patterson).
+ *
+ * A top-down step expands every frontier vertex along its successors. Once the frontier reaches
+ * the hubs, most of those edges lead to vertices that are already visited, so the search switches
+ * to bottom-up steps: every unvisited vertex scans its predecessors and stops at the first one that
+ * is in the frontier. The switch is made when the edges leaving the frontier outnumber the edges
+ * entering unvisited vertices by more than ALPHA, and the search goes back to top-down once the
+ * frontier shrinks below 1/BETA of the vertices.
+ *
+ * Bottom-up steps need the predecessor lists as flat offset and target arrays, so the search
+ * only runs on a CSRGraph, whose shortestPath and distancesFrom use it. The other graphs search
+ * top-down only, with the breadth-first searches in Graph and BidirectionalSearch.
+ *
+ * An instance can be reused for several searches over the same graph; the counters describe the
+ * most recent search.
+ */
+public class DirectionOptimizingBFS {
+	static final int ALPHA = 14;
+	static final int BETA = 24;
+
+	private final int[] outOffsets;
+	private final int[] outTargets;
+	private final int[] inOffsets;
+	private final int[] inTargets;
+	private final int vertexCount;
+
+	private final int[] distance;
+	private final int[] parent;
+	private int[] frontier;
+	private int[] nextFrontier;
+	private final long[] frontierBits;
+	private final long[] nextBits;
+
+	private long topDownEdges;
+	private long bottomUpEdges;
+	private int topDownSteps;
+	private int bottomUpSteps;
+
+	public DirectionOptimizingBFS(CSRGraph<?> graph) {
+		this.outOffsets = graph.outOffsets;
+		this.outTargets = graph.outTargets;
+		this.inOffsets = graph.inOffsets;
+		this.inTargets = graph.inTargets;
+		this.vertexCount = graph.size();
+		this.distance = new int[this.vertexCount];
+		this.parent = new int[this.vertexCount];
+		this.frontier = new int[this.vertexCount];
+		this.nextFrontier = new int[this.vertexCount];
+		this.frontierBits = new long[(this.vertexCount + 63) >>> 6];
+		this.nextBits = new long[this.frontierBits.length];
+	}
+
+	/**
+	 * Runs a search from source. If target is a vertex index, the search stops after the level in
+	 * which target is reached; pass -1 to compute the distance of every reachable vertex.
+	 * @param source
+	 * @param target
+	 */
+	public void search(int source, int target) {
+		Arrays.fill(this.distance, -1);
+		Arrays.fill(this.parent, -1);
+		this.topDownEdges = this.bottomUpEdges = 0;
+		this.topDownSteps = this.bottomUpSteps = 0;
+
+		this.distance[source] = 0;
+		this.parent[source] = source;
+		this.frontier[0] = source;
+		int frontierSize = 1;
+		long frontierEdges = outDegree(source);
+		long unvisitedEdges = this.inTargets.length - inDegree(source);
+		boolean bottomUp = false;
+
+		for (int level = 0; frontierSize > 0 && (target < 0 || this.distance[target] < 0); level++) {
+			if (!bottomUp && frontierEdges > unvisitedEdges / ALPHA) {
+				bottomUp = true;
+				Arrays.fill(this.frontierBits, 0L);
+				for (int i = 0; i < frontierSize; i++) {
+					int v = this.frontier[i];
+					this.frontierBits[v >>> 6] |= 1L << v;
+				}
+			} else if (bottomUp && frontierSize < this.vertexCount / BETA) {
+				bottomUp = false;
+				frontierSize = 0;
+				for (int v = 0; v < this.vertexCount; v++) {
+					if ((this.frontierBits[v >>> 6] & (1L << v)) != 0) {
+						this.frontier[frontierSize++] = v;
+					}
+				}
+			}
+
+			int nextSize = 0;
+			long nextEdges = 0;
+			if (bottomUp) {
+				this.bottomUpSteps++;
+				Arrays.fill(this.nextBits, 0L);
+				long examined = 0;
+				for (int v = 0; v < this.vertexCount; v++) {
+					if (this.distance[v] >= 0) continue;
+					for (int e = this.inOffsets[v]; e < this.inOffsets[v + 1]; e++) {
+						examined++;
+						int u = this.inTargets[e];
+						if ((this.frontierBits[u >>> 6] & (1L << u)) != 0) {
+							this.distance[v] = level + 1;
+							this.parent[v] = u;
+							this.nextBits[v >>> 6] |= 1L << v;
+							nextSize++;
+							nextEdges += outDegree(v);
+							unvisitedEdges -= inDegree(v);
+							break;
+						}
+					}
+				}
+				this.bottomUpEdges += examined;
+				System.arraycopy(this.nextBits, 0, this.frontierBits, 0, this.nextBits.length);
+			} else {
+				this.topDownSteps++;
+				long examined = 0;
+				for (int i = 0; i < frontierSize; i++) {
+					int v = this.frontier[i];
+					for (int e = this.outOffsets[v]; e < this.outOffsets[v + 1]; e++) {
+						examined++;
+						int w = this.outTargets[e];
+						if (this.distance[w] < 0) {
+							this.distance[w] = level + 1;
+							this.parent[w] = v;
+							this.nextFrontier[nextSize++] = w;
+							nextEdges += outDegree(w);
+							unvisitedEdges -= inDegree(w);
+						}
+					}
+				}
+				this.topDownEdges += examined;
+				int[] swap = this.frontier;
+				this.frontier = this.nextFrontier;
+				this.nextFrontier = swap;
+			}
+			frontierSize = nextSize;
+			frontierEdges = nextEdges;
+		}
+	}
+
+	private int outDegree(int v) {
+		return this.outOffsets[v + 1] - this.outOffsets[v];
+	}
+
+	private int inDegree(int v) {
+		return this.inOffsets[v + 1] - this.inOffsets[v];
+	}
+
+	/**
+	 * @param v
+	 * @return the distance of v from the last source, or -1 if it was not reached
+	 */
+	public int distance(int v) {
+		return this.distance[v];
+	}
+
+	/**
+	 * @param v
+	 * @return the vertex before v on a shortest path from the last source (the source is its own
+	 * parent), or -1 if v was not reached
+	 */
+	public int parent(int v) {
+		return this.parent[v];
+	}
+
+	/** @return successor edges examined by top-down steps in the last search */
+	public long topDownEdgesExamined() {
+		return this.topDownEdges;
+	}
+
+	/** @return predecessor edges examined by bottom-up steps in the last search */
+	public long bottomUpEdgesExamined() {
+		return this.bottomUpEdges;
+	}
+
+	public int topDownSteps() {
+		return this.topDownSteps;
+	}
+
+	public int bottomUpSteps() {
+		return this.bottomUpSteps;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("top-down: %d steps, %d edges; bottom-up: %d steps, %d edges",
+				this.topDownSteps, this.topDownEdges, this.bottomUpSteps, this.bottomUpEdges);
+	}
+}
@@ -0,0 +1,92 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DirectionOptimizingBFSTest {
+	private static final int N = 20000;
+	private static final int TAIL = 30;
+
+	/**
+	 * A random graph with eight edges per vertex, which the search should cross bottom-up, and a
+	 * path of TAIL vertices hanging off it, whose single-vertex levels send it back to top-down.
+	 */
+	private static Graph<Integer> randomGraphWithTail(long seed) {
+		Random random = new Random(seed);
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(N + TAIL));
+		for (int i = 0; i < 8 * N; i++) {
+			g.addEdge(random.nextInt(N), random.nextInt(N));
+		}
+		g.addEdge(random.nextInt(N), N);
+		for (int v = N; v + 1 < N + TAIL; v++) {
+			g.addEdge(v, v + 1);
+		}
+		return g;
+	}
+
+	private static void checkAgainstBFS(Graph<Integer> g, CSRGraph<Integer> csr, DirectionOptimizingBFS bfs, int source) {
+		Map<Integer,Integer> expected = g.distancesFrom(csr.keyAt(source));
+		for (int v = 0; v < csr.size(); v++) {
+			Integer d = expected.get(csr.keyAt(v));
+			assertEquals(d == null ? -1 : (int) d, bfs.distance(v));
+			if (d != null && d > 0) {
+				int parent = bfs.parent(v);
+				assertEquals(d - 1, bfs.distance(parent));
+				assertTrue(g.hasEdge(csr.keyAt(parent), csr.keyAt(v)));
+			}
+		}
+	}
+
+	@Test
+	public void testSwitchesBothWays() {
+		for (long seed = 0; seed < 3; seed++) {
+			Graph<Integer> g = randomGraphWithTail(seed);
+			CSRGraph<Integer> csr = CSRGraph.from(g);
+			DirectionOptimizingBFS bfs = new DirectionOptimizingBFS(csr);
+			int source = csr.indexOf(0);
+			bfs.search(source, -1);
+			checkAgainstBFS(g, csr, bfs, source);
+			// the random part is crossed in a handful of levels, so most of the tail's levels
+			// must come after a switch back to top-down
+			assertTrue(bfs.bottomUpSteps() > 0);
+			assertTrue(bfs.topDownSteps() > TAIL / 2);
+			assertTrue(bfs.bottomUpEdgesExamined() > 0);
+		}
+	}
+
+	@Test
+	public void testStopsAtTarget() {
+		Graph<Integer> g = randomGraphWithTail(3);
+		CSRGraph<Integer> csr = CSRGraph.from(g);
+		DirectionOptimizingBFS bfs = new DirectionOptimizingBFS(csr);
+		int source = csr.indexOf(0);
+		Map<Integer,Integer> expected = g.distancesFrom(0);
+		for (int key : new int[] {0, 1, N / 2, N, N + TAIL - 1}) {
+			bfs.search(source, csr.indexOf(key));
+			assertEquals((int) expected.get(key), bfs.distance(csr.indexOf(key)));
+		}
+		// the same instance still gives complete answers afterwards
+		bfs.search(source, -1);
+		checkAgainstBFS(g, csr, bfs, source);
+	}
+
+	@Test
+	public void testUnreachableVertices() {
+		// the tail cannot get back into the random part
+		Graph<Integer> g = randomGraphWithTail(4);
+		CSRGraph<Integer> csr = CSRGraph.from(g);
+		DirectionOptimizingBFS bfs = new DirectionOptimizingBFS(csr);
+		int source = csr.indexOf(N + 1);
+		bfs.search(source, -1);
+		checkAgainstBFS(g, csr, bfs, source);
+		assertEquals(-1, bfs.distance(csr.indexOf(0)));
+		assertEquals(TAIL - 2, bfs.distance(csr.indexOf(N + TAIL - 1)));
+		assertEquals(0, bfs.bottomUpSteps());
+	}
+}
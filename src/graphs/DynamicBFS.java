@@ -0,0 +1,180 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first tree from one source, kept up to date edge by edge: distance(v) is the number of
+ * edges on a shortest path from the source and parent(v) the vertex before v on one such path.
+ * The repairs follow Ramalingam and Reps' dynamic shortest paths, specialized to unit weights:
+ * <ul>
+ * <li>Adding u->v only matters if it makes v closer. Then v hangs under u and a breadth-first
+ * search from v lowers whatever the new edge brings closer; nothing else is touched.</li>
+ * <li>Removing u->v only matters if it is a tree edge. Then only the subtree under v can get
+ * farther. Each vertex of the subtree gets the best distance offered by a predecessor outside the
+ * subtree, and a breadth-first search seeded with those, in order of distance, settles the subtree
+ * again. Vertices it does not reach become unreachable.</li>
+ * </ul>
+ * Mutations must not run concurrently with anything else; queries may run concurrently with
+ * each other.
+ */
+final class DynamicBFS {
+	static final int UNREACHABLE = -1;
+
+	private final IndexedAdjacency graph;
+	private final int source;
+	private final int[] distance;
+	private final int[] parent;
+	// Scratch for removals: marks the subtree being repaired, equal to epoch while it is
+	private final int[] affected;
+	private int epoch;
+
+	/**
+	 * Runs a breadth-first search from the source.
+	 * @param graph
+	 * @param source, a vertex index
+	 */
+	DynamicBFS(IndexedAdjacency graph, int source) {
+		this.graph = graph;
+		this.source = source;
+		int n = graph.size();
+		this.distance = new int[n];
+		this.parent = new int[n];
+		this.affected = new int[n];
+		Arrays.fill(this.distance, UNREACHABLE);
+		Arrays.fill(this.parent, UNREACHABLE);
+		this.distance[source] = 0;
+		SearchWorkspace.IntQueue queue = new SearchWorkspace.IntQueue();
+		queue.add(source);
+		lowerFrom(queue);
+	}
+
+	int source() {
+		return this.source;
+	}
+
+	/**
+	 * @param v, a vertex index
+	 * @return the number of edges from the source to v, or UNREACHABLE
+	 */
+	int distance(int v) {
+		return this.distance[v];
+	}
+
+	/**
+	 * @param v, a vertex index
+	 * @return the vertex before v on a shortest path from the source, or UNREACHABLE for the
+	 * source itself and for unreachable vertices
+	 */
+	int parent(int v) {
+		return this.parent[v];
+	}
+
+	/**
+	 * Updates the tree after the edge from u to v has been added to the graph.
+	 */
+	void edgeAdded(int u, int v) {
+		if (this.distance[u] == UNREACHABLE) return;
+		if (this.distance[v] != UNREACHABLE && this.distance[v] <= this.distance[u] + 1) return;
+		this.distance[v] = this.distance[u] + 1;
+		this.parent[v] = u;
+		SearchWorkspace.IntQueue queue = new SearchWorkspace.IntQueue();
+		queue.add(v);
+		lowerFrom(queue);
+	}
+
+	/**
+	 * Breadth-first search from the queued vertices, which must be in order of distance, lowering
+	 * the distance of every vertex it reaches sooner than before.
+	 */
+	private void lowerFrom(SearchWorkspace.IntQueue queue) {
+		while (!queue.isEmpty()) {
+			int x = queue.poll();
+			int next = this.distance[x] + 1;
+			for (int i = 0; i < this.graph.outDegree(x); i++) {
+				int w = this.graph.successor(x, i);
+				if (this.distance[w] == UNREACHABLE || this.distance[w] > next) {
+					this.distance[w] = next;
+					this.parent[w] = x;
+					queue.add(w);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Updates the tree after the edge from u to v has been removed from the graph.
+	 */
+	void edgeRemoved(int u, int v) {
+		if (this.parent[v] != u) return;
+		if (++this.epoch == 0) {
+			Arrays.fill(this.affected, 0);
+			this.epoch = 1;
+		}
+
+		// The subtree under v, found level by level through the tree edges; it lists the vertices
+		// in order of their old distance
+		int[] subtree = new int[16];
+		int size = 0;
+		this.affected[v] = this.epoch;
+		subtree[size++] = v;
+		for (int head = 0; head < size; head++) {
+			int x = subtree[head];
+			for (int i = 0; i < this.graph.outDegree(x); i++) {
+				int w = this.graph.successor(x, i);
+				if (this.parent[w] != x || this.affected[w] == this.epoch) continue;
+				this.affected[w] = this.epoch;
+				if (size == subtree.length) subtree = Arrays.copyOf(subtree, 2 * size);
+				subtree[size++] = w;
+			}
+		}
+
+		// Seed each subtree vertex with its best predecessor outside the subtree, whose distance
+		// the removal cannot have changed
+		long[] seeds = new long[size];
+		int seedCount = 0;
+		for (int k = 0; k < size; k++) {
+			int x = subtree[k];
+			int best = UNREACHABLE, bestParent = UNREACHABLE;
+			for (int i = 0; i < this.graph.inDegree(x); i++) {
+				int p = this.graph.predecessor(x, i);
+				if (this.affected[p] == this.epoch || this.distance[p] == UNREACHABLE) continue;
+				if (best == UNREACHABLE || this.distance[p] + 1 < best) {
+					best = this.distance[p] + 1;
+					bestParent = p;
+				}
+			}
+			this.distance[x] = best;
+			this.parent[x] = bestParent;
+			if (best != UNREACHABLE) seeds[seedCount++] = ((long) best << 32) | x;
+		}
+		Arrays.sort(seeds, 0, seedCount);
+
+		// Settle the subtree in order of distance, taking the nearer of the next seed and the next
+		// vertex of the search; both come in order of distance
+		SearchWorkspace.IntQueue queue = new SearchWorkspace.IntQueue();
+		int nextSeed = 0;
+		while (nextSeed < seedCount || !queue.isEmpty()) {
+			int x;
+			if (nextSeed < seedCount && (queue.isEmpty() || (int) (seeds[nextSeed] >>> 32) <= this.distance[queue.peek()])) {
+				x = (int) seeds[nextSeed++];
+				// the search may have settled it nearer already
+				if (this.affected[x] != this.epoch) continue;
+				this.affected[x] = 0;
+			} else {
+				x = queue.poll();
+			}
+			int next = this.distance[x] + 1;
+			for (int i = 0; i < this.graph.outDegree(x); i++) {
+				int w = this.graph.successor(x, i);
+				// a seed at least as near settles w itself when its turn comes
+				if (this.affected[w] != this.epoch) continue;
+				if (this.distance[w] != UNREACHABLE && this.distance[w] <= next) continue;
+				// everything nearer is settled, so this is w's distance
+				this.distance[w] = next;
+				this.parent[w] = x;
+				this.affected[w] = 0;
+				queue.add(w);
+			}
+		}
+	}
+}
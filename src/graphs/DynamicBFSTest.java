@@ -0,0 +1,83 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DynamicBFSTest {
+
+	private static void checkPath(Graph<Integer> g, Graph<Integer> expected, int from, int to) {
+		List<Integer> path = g.shortestPath(from, to), expectedPath = expected.shortestPath(from, to);
+		if (expectedPath == null) {
+			assertNull(path);
+			return;
+		}
+		assertEquals(expectedPath.size(), path.size());
+		assertEquals(from, (int) path.get(0));
+		assertEquals(to, (int) path.get(path.size() - 1));
+		for (int i = 0; i + 1 < path.size(); i++) {
+			assertTrue(g.hasEdge(path.get(i), path.get(i + 1)));
+		}
+	}
+
+	@Test
+	public void testPinnedSourcesMatchSearch() {
+		// removals mostly pick existing edges, so tree edges keep being cut
+		for (long seed = 0; seed < 4; seed++) {
+			int n = 300;
+			Random random = new Random(seed);
+			AdjacencyListGraph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+			Graph<Integer> expected = new AdjacencyMatrixGraph<Integer>(keys(n));
+			int[] sources = {0, 1, 2};
+			for (int source : sources) assertTrue(g.pinSource(source));
+			List<int[]> edges = new ArrayList<int[]>();
+			for (int step = 0; step < 4000; step++) {
+				if (random.nextInt(5) < 3 || edges.isEmpty()) {
+					int from = random.nextInt(n), to = random.nextInt(n);
+					assertEquals(expected.addEdge(from, to), g.addEdge(from, to));
+					edges.add(new int[] {from, to});
+				} else {
+					int[] edge = edges.remove(random.nextInt(edges.size()));
+					assertEquals(expected.removeEdge(edge[0], edge[1]), g.removeEdge(edge[0], edge[1]));
+				}
+				int source = sources[random.nextInt(sources.length)];
+				checkPath(g, expected, source, random.nextInt(n));
+				if (step % 200 == 0) {
+					for (int s : sources) {
+						assertEquals(expected.distancesFrom(s), g.distancesFrom(s));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPinAndUnpin() {
+		AdjacencyListGraph<Integer> g = new AdjacencyListGraph<Integer>(keys(5));
+		g.addEdge(0, 1);
+		g.addEdge(1, 2);
+		assertTrue(g.pinSource(0));
+		assertFalse(g.pinSource(0));
+		assertEquals(3, g.shortestPath(0, 2).size());
+		assertEquals(1, g.shortestPath(0, 0).size());
+		assertNull(g.shortestPath(0, 3));
+		g.addEdge(0, 2);
+		assertEquals(2, g.shortestPath(0, 2).size());
+		g.removeEdge(0, 2);
+		g.removeEdge(0, 1);
+		assertNull(g.shortestPath(0, 2));
+		assertEquals(1, g.distancesFrom(0).size());
+		assertTrue(g.unpinSource(0));
+		assertFalse(g.unpinSource(0));
+		g.addEdge(0, 1);
+		assertEquals(3, g.shortestPath(0, 2).size());
+	}
+}
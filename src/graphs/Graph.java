@@ -1,9 +1,13 @@
 package graphs;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.IntConsumer;
 
 /**
  * Abstract class to represent the Graph ADT. It is assumed that every vertex contains some 
@@ -140,6 +144,160 @@ public abstract class Graph<T> {
 	 * @throws NoSuchElementException if either key is not found in the graph
 	 */
 	public abstract List<T> shortestPath(T startLabel, T endLabel) throws NoSuchElementException;
+	
+	/**
+	 * Returns the index of a vertex. Vertices are numbered 0..size()-1, and the numbering stays
+	 * the same as long as no vertices are added or removed.
+	 * @param key
+	 * @return the index of the vertex containing key, or -1 if there is none
+	 */
+	public abstract int indexOf(T key);
+	
+	/**
+	 * Returns the key of the vertex with the given index.
+	 * @param index
+	 * @return
+	 */
+	public abstract T keyAt(int index);
+	
+	/**
+	 * Returns a new cursor over successors, by vertex index.
+	 * @return
+	 */
+	public abstract NeighborCursor successorCursor();
+	
+	/**
+	 * Returns a new cursor over predecessors, by vertex index.
+	 * @return
+	 */
+	public abstract NeighborCursor predecessorCursor();
+	
+	/**
+	 * Calls action with the index of every successor of a vertex. Implementations that store
+	 * adjacency directly override this with a loop over their own storage.
+	 * @param vertex, a vertex index
+	 * @param action
+	 */
+	public void forEachSuccessor(int vertex, IntConsumer action) {
+		forEach(successorCursor(), vertex, action);
+	}
+	
+	/**
+	 * Calls action with the index of every predecessor of a vertex.
+	 * @param vertex, a vertex index
+	 * @param action
+	 */
+	public void forEachPredecessor(int vertex, IntConsumer action) {
+		forEach(predecessorCursor(), vertex, action);
+	}
+	
+	private static void forEach(NeighborCursor cursor, int vertex, IntConsumer action) {
+		cursor.reset(vertex);
+		for (int w = cursor.next(); w >= 0; w = cursor.next()) {
+			action.accept(w);
+		}
+	}
+	
+	/**
+	 * Computes the breadth-first distance from the given key to every vertex reachable from it.
+	 * @param key
+	 * @return a map from each reachable key to its number of edges from key (key itself maps to 0)
+	 * @throws NoSuchElementException if the key is not found in the graph
+	 */
+	public Map<T,Integer> distancesFrom(T key) throws NoSuchElementException {
+		int start = indexOf(key);
+		if (start < 0) {
+			throw new NoSuchElementException("Vertex not found");
+		}
+		Map<T,Integer> distances = new HashMap<T,Integer>();
+		SearchWorkspace workspace = SearchWorkspace.acquire(size());
+		try {
+			NeighborCursor cursor = successorCursor();
+			SearchWorkspace.IntQueue queue = workspace.queue(0);
+			workspace.mark(0, start, 0);
+			queue.add(start);
+			while (!queue.isEmpty()) {
+				int v = queue.poll();
+				int distance = workspace.value(0, v);
+				distances.put(keyAt(v), distance);
+				cursor.reset(v);
+				for (int w = cursor.next(); w >= 0; w = cursor.next()) {
+					if (workspace.mark(0, w, distance + 1)) {
+						queue.add(w);
+					}
+				}
+			}
+		} finally {
+			workspace.release();
+		}
+		return distances;
+	}
+	
+	/**
+	 * Determines whether there is a path from one vertex to another.
+	 * @param from
+	 * @param to
+	 * @return true if to can be reached from from (every vertex reaches itself)
+	 * @throws NoSuchElementException if either key is not found in the graph
+	 */
+	public boolean isReachable(T from, T to) throws NoSuchElementException {
+		int start = indexOf(from), end = indexOf(to);
+		if (start < 0 || end < 0) {
+			throw new NoSuchElementException("Vertex not found");
+		}
+		SearchWorkspace workspace = SearchWorkspace.acquire(size());
+		try {
+			NeighborCursor cursor = successorCursor();
+			SearchWorkspace.IntQueue queue = workspace.queue(0);
+			workspace.mark(0, start, 0);
+			queue.add(start);
+			while (!queue.isEmpty() && !workspace.isMarked(0, end)) {
+				cursor.reset(queue.poll());
+				for (int w = cursor.next(); w >= 0; w = cursor.next()) {
+					if (workspace.mark(0, w, 0)) {
+						queue.add(w);
+					}
+				}
+			}
+			return workspace.isMarked(0, end);
+		} finally {
+			workspace.release();
+		}
+	}
+	
+	/**
+	 * Finds the strongly connected component of a vertex as the intersection of what it reaches
+	 * and what reaches it, with a breadth-first sweep in each direction.
+	 * @param start, a vertex index
+	 * @return the keys of the component
+	 */
+	Set<T> sweepComponent(int start) {
+		Set<T> component = new HashSet<T>();
+		SearchWorkspace workspace = SearchWorkspace.acquire(size());
+		try {
+			for (int side = 0; side < 2; side++) {
+				NeighborCursor cursor = side == 0 ? successorCursor() : predecessorCursor();
+				SearchWorkspace.IntQueue queue = workspace.queue(side);
+				workspace.mark(side, start, 0);
+				queue.add(start);
+				while (!queue.isEmpty()) {
+					int v = queue.poll();
+					// the backward sweep runs second, so forward marks are final by then
+					if (side == 1 && workspace.isMarked(0, v)) {
+						component.add(keyAt(v));
+					}
+					cursor.reset(v);
+					for (int w = cursor.next(); w >= 0; w = cursor.next()) {
+						if (workspace.mark(side, w, 0)) {
+							queue.add(w);
+						}
+					}
+				}
+			}
+		} finally {
+			workspace.release();
+		}
+		return component;
+	}
 		
 }
-
@@ -0,0 +1,422 @@
+package graphs;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Deterministic generator of large synthetic directed graphs, for benchmarks and scaling tests
+ * when the Wikipedia files are not available. Vertices are numbered 0 to vertexCount() - 1.
+ *
+ * The edges are produced in blocks of BLOCK_EDGES on a ForkJoin pool. Every block draws from its
+ * own random stream derived from the seed and the block number, so the graph depends only on the
+ * model, its parameters and the seed, never on the parallelism. Blocks are handed on in order, so
+ * the edge order is deterministic too. Self-loops are dropped and duplicate edges are kept, so a
+ * graph built from the edges has slightly fewer than edgeCount() of them.
+ */
+public class GraphGenerator {
+	static final int BLOCK_EDGES = 1 << 16;
+	static final int CHUNKS_PER_THREAD = 4;
+	// Graph500 R-MAT quadrant probabilities; the fourth is 1 - A - B - C
+	static final double RMAT_A = 0.57;
+	static final double RMAT_B = 0.19;
+	static final double RMAT_C = 0.19;
+	// the cumulative probabilities in units of 2^-16
+	private static final int RMAT_A_16 = (int) (RMAT_A * 65536);
+	private static final int RMAT_AB = (int) ((RMAT_A + RMAT_B) * 65536);
+	private static final int RMAT_ABC = (int) ((RMAT_A + RMAT_B + RMAT_C) * 65536);
+
+	public enum Model {
+		/**
+		 * Recursive matrix (Kronecker) graphs: each edge picks one quadrant of the adjacency matrix
+		 * per bit of the vertex numbers, which gives skewed, community-like degree distributions.
+		 */
+		RMAT,
+		/**
+		 * Preferential attachment: vertex v links to edgesPerVertex earlier vertices chosen in
+		 * proportion to their degree, which gives a power-law in-degree distribution.
+		 */
+		BARABASI_ALBERT,
+		/**
+		 * Uniformly random endpoints for every edge.
+		 */
+		ERDOS_RENYI
+	}
+
+	private final Model model;
+	private final int vertexCount;
+	private final long edgeCount;
+	private final long seed;
+	// R-MAT: log2 of vertexCount; Barabasi-Albert: edges per vertex
+	private final int parameter;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private GraphGenerator(Model model, int vertexCount, long edgeCount, long seed, int parameter) {
+		if (edgeCount < 0) throw new IllegalArgumentException("edge count must not be negative");
+		this.model = model;
+		this.vertexCount = vertexCount;
+		this.edgeCount = edgeCount;
+		this.seed = seed;
+		this.parameter = parameter;
+	}
+
+	/**
+	 * @param scale, log2 of the number of vertices (at most 30)
+	 * @param edgeCount
+	 * @param seed
+	 * @return an R-MAT generator with the Graph500 parameters
+	 */
+	public static GraphGenerator rmat(int scale, long edgeCount, long seed) {
+		if (scale < 1 || scale > 30) throw new IllegalArgumentException("scale must be between 1 and 30");
+		return new GraphGenerator(Model.RMAT, 1 << scale, edgeCount, seed, scale);
+	}
+
+	/**
+	 * @param vertexCount
+	 * @param edgesPerVertex, the number of edges from each vertex to earlier ones
+	 * @param seed
+	 * @return a Barabasi-Albert generator
+	 */
+	public static GraphGenerator barabasiAlbert(int vertexCount, int edgesPerVertex, long seed) {
+		if (vertexCount < 1 || edgesPerVertex < 1) throw new IllegalArgumentException("counts must be positive");
+		return new GraphGenerator(Model.BARABASI_ALBERT, vertexCount, (long) vertexCount * edgesPerVertex, seed, edgesPerVertex);
+	}
+
+	/**
+	 * @param vertexCount
+	 * @param edgeCount
+	 * @param seed
+	 * @return an Erdos-Renyi generator (edges drawn independently and uniformly)
+	 */
+	public static GraphGenerator erdosRenyi(int vertexCount, long edgeCount, long seed) {
+		if (vertexCount < 2) throw new IllegalArgumentException("need at least two vertices");
+		return new GraphGenerator(Model.ERDOS_RENYI, vertexCount, edgeCount, seed, 0);
+	}
+
+	/**
+	 * @param parallelism, the number of worker threads to use
+	 * @return this generator
+	 */
+	public GraphGenerator parallelism(int parallelism) {
+		if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	public Model model() {
+		return this.model;
+	}
+
+	public int vertexCount() {
+		return this.vertexCount;
+	}
+
+	/**
+	 * @return the number of edges drawn, including the self-loops that are dropped
+	 */
+	public long edgeCount() {
+		return this.edgeCount;
+	}
+
+	/**
+	 * Adds the edges to a graph, one at a time and in order.
+	 * @param graph, a graph that supports addEdge
+	 * @param keys, the key of every vertex number; its size must be at least vertexCount()
+	 * @return graph
+	 */
+	public <T> Graph<T> addEdgesTo(final Graph<T> graph, final List<T> keys) {
+		if (keys.size() < this.vertexCount) throw new IllegalArgumentException("need a key for every vertex");
+		try {
+			generate(new BlockSink() {
+				@Override
+				public void accept(int[] pairs, int length) {
+					for (int i = 0; i < length; i += 2) {
+						graph.addEdge(keys.get(pairs[i]), keys.get(pairs[i + 1]));
+					}
+				}
+			});
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return graph;
+	}
+
+	/**
+	 * @return the generated graph as a CSRGraph whose keys are the vertex numbers
+	 */
+	public CSRGraph<Integer> csrGraph() {
+		final CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<Integer>(new VertexNumbers(this.vertexCount));
+		try {
+			generate(new BlockSink() {
+				@Override
+				public void accept(int[] pairs, int length) {
+					builder.addEdgePairs(pairs, length);
+				}
+			});
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		return builder.build(this.parallelism);
+	}
+
+	/**
+	 * Writes the graph in the format ParallelGraphLoader and WikiSurfing read: a page-names file
+	 * with "v v" on each line, so every vertex is named by its number, and a links file with one
+	 * "from to" pair per line.
+	 * @param pageNamesFile
+	 * @param linksFile
+	 * @throws IOException if a file cannot be written
+	 */
+	public void writeFiles(File pageNamesFile, File linksFile) throws IOException {
+		OutputStream names = new BufferedOutputStream(new FileOutputStream(pageNamesFile), 1 << 16);
+		try {
+			byte[] line = new byte[32];
+			for (int v = 0; v < this.vertexCount; v++) {
+				int length = appendInt(line, 0, v);
+				line[length++] = ' ';
+				length = appendInt(line, length, v);
+				line[length++] = '\n';
+				names.write(line, 0, length);
+			}
+		} finally {
+			names.close();
+		}
+
+		final OutputStream links = new BufferedOutputStream(new FileOutputStream(linksFile), 1 << 16);
+		try {
+			generate(new BlockSink() {
+				private final byte[] text = new byte[BLOCK_EDGES * 24];
+
+				@Override
+				public void accept(int[] pairs, int length) throws IOException {
+					int size = 0;
+					for (int i = 0; i < length; i += 2) {
+						size = appendInt(this.text, size, pairs[i]);
+						this.text[size++] = ' ';
+						size = appendInt(this.text, size, pairs[i + 1]);
+						this.text[size++] = '\n';
+					}
+					links.write(this.text, 0, size);
+				}
+			});
+		} finally {
+			links.close();
+		}
+	}
+
+	/**
+	 * Writes the decimal digits of a non-negative int.
+	 * @return the position after the last digit
+	 */
+	private static int appendInt(byte[] out, int position, int value) {
+		int digits = 1;
+		for (int rest = value / 10; rest > 0; rest /= 10) digits++;
+		for (int i = position + digits - 1; i >= position; i--) {
+			out[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		return position + digits;
+	}
+
+	private interface BlockSink {
+		/**
+		 * @param pairs, consecutive (from, to) vertex numbers
+		 * @param length, the number of ints of pairs to use
+		 */
+		void accept(int[] pairs, int length) throws IOException;
+	}
+
+	/**
+	 * Generates the blocks in waves of CHUNKS_PER_THREAD * parallelism, so only one wave is held
+	 * in memory at a time, and hands them to sink in block order.
+	 */
+	private void generate(BlockSink sink) throws IOException {
+		long blocks = (this.edgeCount + BLOCK_EDGES - 1) / BLOCK_EDGES;
+		int wave = CHUNKS_PER_THREAD * this.parallelism;
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			for (long first = 0; first < blocks; first += wave) {
+				List<BlockTask> tasks = new ArrayList<BlockTask>();
+				for (long block = first; block < Math.min(blocks, first + wave); block++) {
+					BlockTask task = new BlockTask(block);
+					tasks.add(task);
+					pool.execute(task);
+				}
+				for (BlockTask task : tasks) {
+					int[] pairs = task.join();
+					sink.accept(pairs, task.length);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private class BlockTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		private final long block;
+		private int length;
+
+		BlockTask(long block) {
+			this.block = block;
+		}
+
+		@Override
+		protected int[] compute() {
+			long first = this.block * BLOCK_EDGES;
+			int count = (int) Math.min(BLOCK_EDGES, GraphGenerator.this.edgeCount - first);
+			int[] pairs = new int[2 * count];
+			SplittableRandom random = new SplittableRandom(mix(GraphGenerator.this.seed + this.block));
+			int length = 0;
+			for (long edge = first; edge < first + count; edge++) {
+				int from, to;
+				switch (GraphGenerator.this.model) {
+				case RMAT: {
+					long pair = rmatEdge(random, GraphGenerator.this.parameter);
+					from = (int) (pair >>> 32);
+					to = (int) pair;
+					break;
+				}
+				case BARABASI_ALBERT:
+					from = (int) (edge / GraphGenerator.this.parameter);
+					to = attachmentTarget(edge);
+					break;
+				default:
+					from = random.nextInt(GraphGenerator.this.vertexCount);
+					to = random.nextInt(GraphGenerator.this.vertexCount);
+				}
+				if (from != to) {
+					pairs[length++] = from;
+					pairs[length++] = to;
+				}
+			}
+			this.length = length;
+			return pairs;
+		}
+	}
+
+	/**
+	 * One R-MAT edge, as from in the high and to in the low 32 bits. Vertex numbers are then
+	 * scrambled by a fixed bijection so the hubs are not all at small numbers.
+	 */
+	private static long rmatEdge(SplittableRandom random, int scale) {
+		int from = 0, to = 0;
+		long bits = 0;
+		for (int bit = 0; bit < scale; bit++) {
+			// each level uses 16 random bits, so one long serves four levels
+			if ((bit & 3) == 0) bits = random.nextLong();
+			int r = (int) (bits & 0xFFFF);
+			bits >>>= 16;
+			// branch-free quadrant choice, since the branches would be unpredictable:
+			// each term is 1 when r is at or above that threshold
+			int atLeastA = (RMAT_A_16 - 1 - r) >>> 31;
+			int atLeastAB = (RMAT_AB - 1 - r) >>> 31;
+			int atLeastABC = (RMAT_ABC - 1 - r) >>> 31;
+			from = (from << 1) | atLeastAB;
+			to = (to << 1) | (atLeastA - atLeastAB + atLeastABC);
+		}
+		int mask = (1 << scale) - 1;
+		return ((long) scramble(from, mask) << 32) | scramble(to, mask);
+	}
+
+	private static int scramble(int vertex, int mask) {
+		// multiplying by an odd number and adding a constant is a bijection modulo a power of two
+		return (vertex * 0x9E3779B1 + 0x7F4A7C15) & mask;
+	}
+
+	/**
+	 * Preferential attachment without shared state (Sanders and Schulz): think of all edges as
+	 * one array in which slot 2i holds the source of edge i and slot 2i+1 its target. The target
+	 * of edge i copies a uniformly random earlier slot, so a vertex is picked in proportion to its
+	 * degree. A source slot is known directly; a target slot is resolved by repeating the same
+	 * draw, which depends only on the seed and the edge, for that earlier edge.
+	 */
+	private int attachmentTarget(long edge) {
+		while (edge > 0) {
+			long slot = (mix(this.seed ^ (edge * 0x9E3779B97F4A7C15L)) >>> 1) % (2 * edge);
+			if ((slot & 1) == 0) {
+				return (int) (slot / 2 / this.parameter);
+			}
+			edge = slot / 2;
+		}
+		return 0;
+	}
+
+	/**
+	 * SplitMix64 finalizer.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * The Integers 0 to size - 1, without storing them, for CSRGraph.Builder.
+	 */
+	private static class VertexNumbers extends AbstractSet<Integer> {
+		private final int size;
+
+		VertexNumbers(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public Iterator<Integer> iterator() {
+			return new Iterator<Integer>() {
+				private int next;
+
+				@Override
+				public boolean hasNext() {
+					return this.next < VertexNumbers.this.size;
+				}
+
+				@Override
+				public Integer next() {
+					if (!hasNext()) throw new NoSuchElementException();
+					return this.next++;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Generates a graph and reports how long each way of consuming it takes.
+	 * Usage: GraphGenerator [rmat|ba|er] [vertices] [edges]
+	 */
+	public static void main(String[] args) throws IOException {
+		String model = args.length > 0 ? args[0] : "rmat";
+		int vertices = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 20;
+		long edges = args.length > 2 ? Long.parseLong(args[2]) : 16L * vertices;
+		GraphGenerator generator = model.equals("ba") ? barabasiAlbert(vertices, (int) (edges / vertices), 1)
+				: model.equals("er") ? erdosRenyi(vertices, edges, 1)
+				: rmat(32 - Integer.numberOfLeadingZeros(vertices - 1), edges, 1);
+
+		long start = System.nanoTime();
+		CSRGraph<Integer> graph = generator.csrGraph();
+		System.out.printf("%s: %d vertices, %d edges in CSR in %d ms%n", generator.model(), graph.size(),
+				graph.numEdges(), (System.nanoTime() - start) / 1000000);
+
+		File names = File.createTempFile("names", ".txt"), links = File.createTempFile("links", ".txt");
+		names.deleteOnExit();
+		links.deleteOnExit();
+		start = System.nanoTime();
+		generator.writeFiles(names, links);
+		System.out.printf("wrote %d MB of links in %d ms%n", links.length() >> 20, (System.nanoTime() - start) / 1000000);
+	}
+}
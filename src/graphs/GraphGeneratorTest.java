@@ -0,0 +1,76 @@
+package graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class GraphGeneratorTest {
+
+	private static void assertSameEdges(Graph<Integer> expected, Graph<Integer> actual) {
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.numEdges(), actual.numEdges());
+		for (Integer v : expected.keySet()) {
+			assertEquals(expected.successorSet(v), actual.successorSet(v));
+		}
+	}
+
+	@Test
+	public void testParallelismDoesNotChangeTheGraph() {
+		GraphGenerator[] generators = {
+				GraphGenerator.rmat(12, 200000, 5),
+				GraphGenerator.barabasiAlbert(20000, 6, 5),
+				GraphGenerator.erdosRenyi(5000, 150000, 5)};
+		for (GraphGenerator generator : generators) {
+			CSRGraph<Integer> sequential = generator.parallelism(1).csrGraph();
+			CSRGraph<Integer> parallel = generator.parallelism(4).csrGraph();
+			assertSameEdges(sequential, parallel);
+			assertTrue(sequential.numEdges() > generator.edgeCount() / 2);
+		}
+	}
+
+	@Test
+	public void testEveryOutputHasTheSameEdges() throws IOException {
+		GraphGenerator generator = GraphGenerator.rmat(10, 20000, 7).parallelism(3);
+		CSRGraph<Integer> csr = generator.csrGraph();
+
+		Set<Integer> keys = new LinkedHashSet<Integer>();
+		for (int v = 0; v < generator.vertexCount(); v++) keys.add(v);
+		List<Integer> keyList = new ArrayList<Integer>(keys);
+		assertSameEdges(csr, generator.addEdgesTo(new AdjacencyListGraph<Integer>(keys), keyList));
+
+		File names = File.createTempFile("names", ".txt"), links = File.createTempFile("links", ".txt");
+		names.deleteOnExit();
+		links.deleteOnExit();
+		generator.writeFiles(names, links);
+		CSRGraph<String> loaded = new ParallelGraphLoader(2).load(names, links);
+		assertEquals(csr.size(), loaded.size());
+		assertEquals(csr.numEdges(), loaded.numEdges());
+		for (int v = 0; v < csr.size(); v++) {
+			for (Integer w : csr.successorSet(v)) {
+				assertTrue(loaded.hasEdge(String.valueOf(v), String.valueOf(w)));
+			}
+		}
+	}
+
+	@Test
+	public void testBarabasiAlbertPrefersOldHighDegreeVertices() {
+		int n = 50000, m = 4;
+		CSRGraph<Integer> g = GraphGenerator.barabasiAlbert(n, m, 11).csrGraph();
+		int maxInDegree = 0;
+		for (int v = 0; v < n; v++) {
+			assertTrue(g.outDegree(v) <= m);
+			for (Integer w : g.successorSet(v)) assertTrue(w < v);
+			maxInDegree = Math.max(maxInDegree, g.inDegree(v));
+		}
+		// uniform attachment would leave the largest in-degree near m * ln(n), about 43
+		assertTrue(maxInDegree > 200);
+	}
+}
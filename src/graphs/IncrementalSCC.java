@@ -0,0 +1,508 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components of a changing graph, kept up to date edge by edge instead of being
+ * recomputed. Components are identified by ids that stay the same until the component is merged
+ * or split; members(c) lists the vertices of component c, so a component is read in time
+ * proportional to its size.
+ *
+ * Besides the components, the structure keeps a topological order of the condensation (the DAG of
+ * components), with holes left by merged components:
+ * <ul>
+ * <li>Adding an edge u->v inside a component, or one that goes forward in the order, changes
+ * nothing. Otherwise (Marchetti-Spaccamela et al., extended to cycles) the components placed
+ * between v and u are searched, forward from v and backward from u, stepping whichever search has
+ * done less work until one of them finishes; neither expands the other's starting component, so
+ * the giant component is only scanned when both sides would have to. If the finished search
+ * met the other endpoint, the components it visited that lie on a path between the two close a
+ * cycle with the new edge and are merged. The order is then repaired inside that stretch only, by
+ * moving the visited components past u's (merged) component, or before it.</li>
+ * <li>Removing an edge between components changes nothing. Removing u->v inside component C first
+ * checks, with a bidirectional search restricted to C, whether u still reaches v; if it does, C is
+ * still strongly connected. Only otherwise is Tarjan's algorithm rerun, on C alone, and C replaced
+ * by its pieces in the order.</li>
+ * </ul>
+ * Mutations must not run concurrently with anything else; queries may run concurrently with
+ * each other.
+ */
+final class IncrementalSCC {
+
+	private final IndexedAdjacency graph;
+	private final int[] componentOf;
+	// By component id; an unused id has no members and position -1
+	private int[][] members = new int[16][];
+	private int[] memberCount = new int[16];
+	private int[] position = new int[16];
+	private int idBound;
+	private int[] freeIds = new int[16];
+	private int freeCount;
+	// The topological order: order[p] is the component at position p, or -1 for a hole
+	private int[] order;
+	private int orderSize;
+	private int holes;
+
+	// Scratch for Tarjan's algorithm, left at -1 / 0 / false between runs
+	private final int[] tarjanIndex;
+	private final int[] lowlink;
+	private final int[] nextEdge;
+	private final boolean[] onStack;
+	// Component marks for insertions, equal to epoch when set during the current one
+	private int[] forwardMarks = new int[16];
+	private int[] backwardMarks = new int[16];
+	private int[] onCycle = new int[16];
+	private int epoch;
+
+	/**
+	 * Computes the components from scratch.
+	 * @param graph
+	 */
+	IncrementalSCC(IndexedAdjacency graph) {
+		this.graph = graph;
+		int n = graph.size();
+		this.componentOf = new int[n];
+		this.tarjanIndex = new int[n];
+		this.lowlink = new int[n];
+		this.nextEdge = new int[n];
+		this.onStack = new boolean[n];
+		Arrays.fill(this.tarjanIndex, -1);
+		int[] all = new int[n];
+		for (int v = 0; v < n; v++) all[v] = v;
+		int[][] found = tarjan(all, n, -1);
+		int count = found.length;
+		this.order = new int[Math.max(16, count)];
+		this.orderSize = count;
+		// Tarjan finds sink components first, so it lists them in reverse topological order
+		for (int i = 0; i < count; i++) {
+			int id = newComponent(found[i], found[i].length);
+			this.order[count - 1 - i] = id;
+			this.position[id] = count - 1 - i;
+		}
+	}
+
+	/**
+	 * @param v, a vertex index
+	 * @return the id of v's component
+	 */
+	int componentOf(int v) {
+		return this.componentOf[v];
+	}
+
+	/**
+	 * @param cu, a component id
+	 * @param cv, a component id
+	 * @return false if cu cannot reach cv, because it comes after cv in the topological order;
+	 * true does not mean that it can
+	 */
+	boolean mayReach(int cu, int cv) {
+		return cu == cv || this.position[cu] < this.position[cv];
+	}
+
+	/**
+	 * @return an upper bound on the component ids
+	 */
+	int idBound() {
+		return this.idBound;
+	}
+
+	/**
+	 * @return a copy of the component id of every vertex
+	 */
+	int[] componentIds() {
+		return this.componentOf.clone();
+	}
+
+	int memberCount(int component) {
+		return this.memberCount[component];
+	}
+
+	/**
+	 * @param component
+	 * @param i, from 0 to memberCount(component) - 1
+	 * @return a vertex of the component
+	 */
+	int member(int component, int i) {
+		return this.members[component][i];
+	}
+
+	private int newComponent(int[] vertices, int count) {
+		int id;
+		if (this.freeCount > 0) {
+			id = this.freeIds[--this.freeCount];
+		} else {
+			id = this.idBound++;
+			if (id == this.members.length) {
+				int capacity = 2 * id;
+				this.members = Arrays.copyOf(this.members, capacity);
+				this.memberCount = Arrays.copyOf(this.memberCount, capacity);
+				this.position = Arrays.copyOf(this.position, capacity);
+				this.forwardMarks = Arrays.copyOf(this.forwardMarks, capacity);
+				this.backwardMarks = Arrays.copyOf(this.backwardMarks, capacity);
+				this.onCycle = Arrays.copyOf(this.onCycle, capacity);
+			}
+		}
+		this.members[id] = vertices.length == count ? vertices : Arrays.copyOf(vertices, count);
+		this.memberCount[id] = count;
+		for (int i = 0; i < count; i++) {
+			this.componentOf[vertices[i]] = id;
+		}
+		return id;
+	}
+
+	private void freeComponent(int id) {
+		this.members[id] = null;
+		this.memberCount[id] = 0;
+		this.position[id] = -1;
+		if (this.freeCount == this.freeIds.length) {
+			this.freeIds = Arrays.copyOf(this.freeIds, 2 * this.freeCount);
+		}
+		this.freeIds[this.freeCount++] = id;
+	}
+
+	/**
+	 * Updates the components after the edge from u to v has been added to the graph.
+	 */
+	void edgeAdded(int u, int v) {
+		int cu = this.componentOf[u], cv = this.componentOf[v];
+		if (cu == cv || this.position[cu] < this.position[cv]) return;
+		int lower = this.position[cv], upper = this.position[cu];
+		if (++this.epoch == 0) {
+			Arrays.fill(this.forwardMarks, 0);
+			Arrays.fill(this.backwardMarks, 0);
+			Arrays.fill(this.onCycle, 0);
+			this.epoch = 1;
+		}
+
+		// Either search alone is enough, so expand whichever has done less work until one finishes
+		Search forward = new Search(true, cv, cu, lower, upper);
+		Search backward = new Search(false, cu, cv, lower, upper);
+		Search done;
+		while (true) {
+			if (forward.isDone()) {
+				done = forward;
+				break;
+			}
+			if (backward.isDone()) {
+				done = backward;
+				break;
+			}
+			if (forward.work + forward.nextCost() <= backward.work + backward.nextCost()) {
+				forward.expand();
+			} else {
+				backward.expand();
+			}
+		}
+
+		int merged = cu;
+		if (done.isMarked(done.end)) {
+			merged = merge(done.cycle());
+		}
+		reorder(lower, upper, merged, done);
+	}
+
+	/**
+	 * Breadth-first search over components, from start towards end, visiting only components placed
+	 * between the two. The end component is not expanded: everything it leads to (or comes from)
+	 * lies outside that stretch, and it may be the giant component. The component edges followed
+	 * out of the i-th component visited are recorded in edgeTo[edgeStart[i]..edgeStart[i+1]).
+	 */
+	private final class Search {
+		final boolean forward;
+		final int end;
+		final int lower;
+		final int upper;
+		final int[] marks;
+		int[] queue = new int[16];
+		int[] edgeStart = new int[17];
+		int size;
+		int head;
+		int[] edgeTo = new int[16];
+		int edgeCount;
+		// the number of members expanded so far
+		long work;
+
+		Search(boolean forward, int start, int end, int lower, int upper) {
+			this.forward = forward;
+			this.end = end;
+			this.lower = lower;
+			this.upper = upper;
+			this.marks = forward ? IncrementalSCC.this.forwardMarks : IncrementalSCC.this.backwardMarks;
+			this.marks[start] = IncrementalSCC.this.epoch;
+			this.queue[this.size++] = start;
+		}
+
+		boolean isDone() {
+			return this.head == this.size;
+		}
+
+		boolean isMarked(int c) {
+			return this.marks[c] == IncrementalSCC.this.epoch;
+		}
+
+		long nextCost() {
+			int c = this.queue[this.head];
+			return c == this.end ? 0 : IncrementalSCC.this.memberCount[c];
+		}
+
+		void expand() {
+			int c = this.queue[this.head];
+			this.edgeStart[this.head++] = this.edgeCount;
+			if (c != this.end) {
+				int[] vertices = IncrementalSCC.this.members[c];
+				for (int i = 0; i < IncrementalSCC.this.memberCount[c]; i++) {
+					int x = vertices[i];
+					int degree = this.forward ? IncrementalSCC.this.graph.outDegree(x) : IncrementalSCC.this.graph.inDegree(x);
+					for (int j = 0; j < degree; j++) {
+						int w = this.forward ? IncrementalSCC.this.graph.successor(x, j) : IncrementalSCC.this.graph.predecessor(x, j);
+						follow(c, IncrementalSCC.this.componentOf[w]);
+					}
+				}
+				this.work += IncrementalSCC.this.memberCount[c];
+			}
+			this.edgeStart[this.head] = this.edgeCount;
+		}
+
+		private void follow(int c, int cw) {
+			int p = IncrementalSCC.this.position[cw];
+			if (cw == c || p < this.lower || p > this.upper) return;
+			if (this.edgeCount == this.edgeTo.length) this.edgeTo = Arrays.copyOf(this.edgeTo, 2 * this.edgeCount);
+			this.edgeTo[this.edgeCount++] = cw;
+			if (this.marks[cw] == IncrementalSCC.this.epoch) return;
+			this.marks[cw] = IncrementalSCC.this.epoch;
+			if (this.size == this.queue.length) {
+				this.queue = Arrays.copyOf(this.queue, 2 * this.size);
+				this.edgeStart = Arrays.copyOf(this.edgeStart, 2 * this.size + 1);
+			}
+			this.queue[this.size++] = cw;
+		}
+
+		/**
+		 * @return the visited components that lead to (or, searching backward, come from) end,
+		 * which together with the new edge close a cycle
+		 */
+		int[] cycle() {
+			int[] onCycle = IncrementalSCC.this.onCycle;
+			int epoch = IncrementalSCC.this.epoch;
+			onCycle[this.end] = epoch;
+			// Recorded edges lead further from the start in the order, so going through the
+			// visited components from the farthest settles each one after those it leads to
+			long[] byPosition = new long[this.size];
+			for (int i = 0; i < this.size; i++) {
+				int p = IncrementalSCC.this.position[this.queue[i]];
+				byPosition[i] = ((long) (this.forward ? p : this.upper - p) << 32) | i;
+			}
+			Arrays.sort(byPosition);
+			int[] cycle = new int[this.size];
+			int count = 0;
+			for (int k = this.size - 1; k >= 0; k--) {
+				int i = (int) byPosition[k];
+				for (int e = this.edgeStart[i]; e < this.edgeStart[i + 1]; e++) {
+					if (onCycle[this.edgeTo[e]] == epoch) {
+						onCycle[this.queue[i]] = epoch;
+						break;
+					}
+				}
+				if (onCycle[this.queue[i]] == epoch) cycle[count++] = this.queue[i];
+			}
+			return Arrays.copyOf(cycle, count);
+		}
+	}
+
+	/**
+	 * Merges the components into the largest of them, leaving holes in the order where the others
+	 * were.
+	 * @return the id of the merged component
+	 */
+	private int merge(int[] components) {
+		int largest = components[0], total = 0;
+		for (int c : components) {
+			total += this.memberCount[c];
+			if (this.memberCount[c] > this.memberCount[largest]) largest = c;
+		}
+		int[] vertices = Arrays.copyOf(this.members[largest], Math.max(total, this.members[largest].length));
+		int size = this.memberCount[largest];
+		for (int c : components) {
+			if (c == largest) continue;
+			for (int j = 0; j < this.memberCount[c]; j++) {
+				int x = this.members[c][j];
+				vertices[size++] = x;
+				this.componentOf[x] = largest;
+			}
+			this.order[this.position[c]] = -1;
+			this.holes++;
+			freeComponent(c);
+		}
+		this.members[largest] = vertices;
+		this.memberCount[largest] = size;
+		return largest;
+	}
+
+	/**
+	 * Rewrites positions lower..upper. After a forward search: the components it did not visit,
+	 * then the component of u (possibly merged), then the visited ones. After a backward search:
+	 * the visited components, then the component of u, then the others. Each group keeps its old
+	 * relative order.
+	 */
+	private void reorder(int lower, int upper, int target, Search search) {
+		int[] region = new int[upper - lower + 1];
+		int size = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			if (pass == 1) region[size++] = target;
+			// the group before target is the unvisited one after a forward search
+			boolean visited = search.forward == (pass == 1);
+			for (int p = lower; p <= upper; p++) {
+				int c = this.order[p];
+				if (c >= 0 && c != target && search.isMarked(c) == visited) region[size++] = c;
+			}
+		}
+		for (int i = 0; i < region.length; i++) {
+			int p = lower + i;
+			if (i < size) {
+				this.order[p] = region[i];
+				this.position[region[i]] = p;
+			} else {
+				this.order[p] = -1;
+			}
+		}
+		if (this.holes > this.orderSize / 2) {
+			rebuildOrder(-1, null, 0);
+		}
+	}
+
+	/**
+	 * Updates the components after the edge from u to v has been removed from the graph.
+	 */
+	void edgeRemoved(int u, int v) {
+		int c = this.componentOf[u];
+		if (c != this.componentOf[v] || reachesWithin(c, u, v)) return;
+
+		int count = this.memberCount[c];
+		int[] vertices = this.members[c];
+		int[][] pieces = tarjan(vertices, count, c);
+		freeComponent(c);
+		// Tarjan lists the pieces sinks first; the order needs them sources first
+		int[] ids = new int[pieces.length];
+		for (int i = 0; i < pieces.length; i++) {
+			ids[pieces.length - 1 - i] = newComponent(pieces[i], pieces[i].length);
+		}
+		rebuildOrder(c, ids, ids.length);
+	}
+
+	/**
+	 * Bidirectional breadth-first search from u forward and v backward, within component c.
+	 */
+	private boolean reachesWithin(int c, int u, int v) {
+		SearchWorkspace workspace = SearchWorkspace.acquire(this.componentOf.length);
+		try {
+			workspace.mark(0, u, 0);
+			workspace.mark(1, v, 0);
+			workspace.queue(0).add(u);
+			workspace.queue(1).add(v);
+			while (!workspace.queue(0).isEmpty() && !workspace.queue(1).isEmpty()) {
+				int side = workspace.queue(0).size() <= workspace.queue(1).size() ? 0 : 1;
+				SearchWorkspace.IntQueue queue = workspace.queue(side);
+				for (int levelSize = queue.size(); levelSize > 0; levelSize--) {
+					int x = queue.poll();
+					int degree = side == 0 ? this.graph.outDegree(x) : this.graph.inDegree(x);
+					for (int i = 0; i < degree; i++) {
+						int w = side == 0 ? this.graph.successor(x, i) : this.graph.predecessor(x, i);
+						if (this.componentOf[w] != c || !workspace.mark(side, w, 0)) continue;
+						if (workspace.isMarked(1 - side, w)) return true;
+						queue.add(w);
+					}
+				}
+			}
+			return false;
+		} finally {
+			workspace.release();
+		}
+	}
+
+	/**
+	 * Compacts the order, dropping holes and putting replacement[0..count) where the component
+	 * replaced was.
+	 */
+	private void rebuildOrder(int replaced, int[] replacement, int count) {
+		int[] rebuilt = new int[Math.max(16, this.orderSize - this.holes + count)];
+		int size = 0;
+		for (int p = 0; p < this.orderSize; p++) {
+			int c = this.order[p];
+			if (c == replaced && replacement != null) {
+				for (int i = 0; i < count; i++) {
+					this.position[replacement[i]] = size;
+					rebuilt[size++] = replacement[i];
+				}
+			} else if (c >= 0) {
+				this.position[c] = size;
+				rebuilt[size++] = c;
+			}
+		}
+		this.order = rebuilt;
+		this.orderSize = size;
+		this.holes = 0;
+	}
+
+	/**
+	 * Iterative Tarjan from the given roots. The recursion is replaced by an explicit call stack of
+	 * vertices plus, for each vertex, the position of the next successor to visit.
+	 * @param roots
+	 * @param rootCount
+	 * @param within, a component id to stay inside, or -1 for the whole graph
+	 * @return the vertices of each component found, sink components first
+	 */
+	private int[][] tarjan(int[] roots, int rootCount, int within) {
+		int[] stack = new int[rootCount];
+		int[] callStack = new int[rootCount];
+		int[][] found = new int[16][];
+		int foundCount = 0;
+		int counter = 0, stackSize = 0;
+		for (int r = 0; r < rootCount; r++) {
+			int root = roots[r];
+			if (this.tarjanIndex[root] != -1) continue;
+			int depth = 0;
+			callStack[depth++] = root;
+			this.tarjanIndex[root] = this.lowlink[root] = counter++;
+			stack[stackSize++] = root;
+			this.onStack[root] = true;
+
+			while (depth > 0) {
+				int v = callStack[depth - 1];
+				if (this.nextEdge[v] < this.graph.outDegree(v)) {
+					int w = this.graph.successor(v, this.nextEdge[v]++);
+					if (within >= 0 && this.componentOf[w] != within) continue;
+					if (this.tarjanIndex[w] == -1) {
+						this.tarjanIndex[w] = this.lowlink[w] = counter++;
+						stack[stackSize++] = w;
+						this.onStack[w] = true;
+						callStack[depth++] = w;
+					} else if (this.onStack[w]) {
+						this.lowlink[v] = Math.min(this.lowlink[v], this.tarjanIndex[w]);
+					}
+					continue;
+				}
+
+				// All successors of v are done: close its component if it is a root, then return
+				depth--;
+				if (this.lowlink[v] == this.tarjanIndex[v]) {
+					int end = stackSize;
+					do {
+						this.onStack[stack[--stackSize]] = false;
+					} while (stack[stackSize] != v);
+					if (foundCount == found.length) found = Arrays.copyOf(found, 2 * foundCount);
+					found[foundCount++] = Arrays.copyOfRange(stack, stackSize, end);
+				}
+				if (depth > 0) {
+					int parent = callStack[depth - 1];
+					this.lowlink[parent] = Math.min(this.lowlink[parent], this.lowlink[v]);
+				}
+			}
+		}
+		// leave the scratch arrays clean for the next run
+		for (int r = 0; r < rootCount; r++) {
+			this.tarjanIndex[roots[r]] = -1;
+			this.nextEdge[roots[r]] = 0;
+		}
+		return Arrays.copyOf(found, foundCount);
+	}
+}
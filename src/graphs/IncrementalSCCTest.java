@@ -0,0 +1,83 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IncrementalSCCTest {
+
+	/**
+	 * Applies the same random insertions and deletions to an adjacency list graph, whose components
+	 * are maintained incrementally, and to an adjacency matrix graph, which recomputes them for
+	 * every query.
+	 */
+	private static void checkAgainstBatch(int n, int initialEdges, int steps, int addsPerRemove, long seed) {
+		Random random = new Random(seed);
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+		Graph<Integer> expected = new AdjacencyMatrixGraph<Integer>(keys(n));
+		for (int i = 0; i < initialEdges; i++) {
+			int from = random.nextInt(n), to = random.nextInt(n);
+			g.addEdge(from, to);
+			expected.addEdge(from, to);
+		}
+		// the first query builds the structure; everything after is maintained
+		g.stronglyConnectedComponent(0);
+		for (int step = 0; step < steps; step++) {
+			int from = random.nextInt(n), to = random.nextInt(n);
+			if (random.nextInt(addsPerRemove + 1) > 0) {
+				assertEquals(expected.addEdge(from, to), g.addEdge(from, to));
+			} else {
+				assertEquals(expected.removeEdge(from, to), g.removeEdge(from, to));
+			}
+			assertEquals(expected.stronglyConnectedComponent(from), g.stronglyConnectedComponent(from));
+			assertEquals(expected.stronglyConnectedComponent(to), g.stronglyConnectedComponent(to));
+			int a = random.nextInt(n), b = random.nextInt(n);
+			assertEquals(expected.isReachable(a, b), g.isReachable(a, b));
+			if (step % 100 == 0) {
+				for (int v = 0; v < n; v++) {
+					assertEquals(expected.stronglyConnectedComponent(v), g.stronglyConnectedComponent(v));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSparseGraphs() {
+		// around one edge per vertex, where components keep forming and falling apart
+		for (long seed = 0; seed < 5; seed++) {
+			checkAgainstBatch(60, 50, 1500, 1, seed);
+		}
+	}
+
+	@Test
+	public void testDenseGraphs() {
+		checkAgainstBatch(40, 120, 1500, 1, 5);
+		checkAgainstBatch(200, 0, 3000, 3, 6);
+	}
+
+	@Test
+	public void testCycleMergesAndSplits() {
+		int n = 1000;
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+		for (int v = 0; v + 1 < n; v++) g.addEdge(v, v + 1);
+		assertEquals(1, g.stronglyConnectedComponent(500).size());
+		// closing the path merges every vertex at once
+		g.addEdge(n - 1, 0);
+		assertEquals(keys(n), g.stronglyConnectedComponent(500));
+		// a chord keeps the cycle through the vertices it skips, so removing it changes nothing
+		g.addEdge(100, 200);
+		g.removeEdge(100, 200);
+		assertEquals(n, g.stronglyConnectedComponent(0).size());
+		// breaking the cycle splits it back into single vertices
+		g.removeEdge(499, 500);
+		assertEquals(1, g.stronglyConnectedComponent(0).size());
+		assertEquals(1, g.stronglyConnectedComponent(999).size());
+		// a back edge over part of the path merges just that part
+		g.addEdge(300, 100);
+		assertEquals(201, g.stronglyConnectedComponent(200).size());
+		assertEquals(1, g.stronglyConnectedComponent(301).size());
+	}
+}
@@ -0,0 +1,27 @@
+package graphs;
+
+/**
+ * Random access to the adjacency lists of a mutable graph by vertex index, for the structures it
+ * keeps up to date as edges change (IncrementalSCC, DynamicBFS).
+ */
+interface IndexedAdjacency {
+	int size();
+
+	int outDegree(int v);
+
+	/**
+	 * @param v
+	 * @param i, from 0 to outDegree(v) - 1
+	 * @return the index of a successor of v
+	 */
+	int successor(int v, int i);
+
+	int inDegree(int v);
+
+	/**
+	 * @param v
+	 * @param i, from 0 to inDegree(v) - 1
+	 * @return the index of a predecessor of v
+	 */
+	int predecessor(int v, int i);
+}
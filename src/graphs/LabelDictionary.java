@@ -0,0 +1,265 @@
+package graphs;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Sorted, front-coded dictionary of vertex labels. Every distinct label gets a dense id, its rank
+ * in unsigned UTF-8 byte order (which is code point order), and all labels live in one byte array.
+ *
+ * Labels are stored in buckets of BUCKET_SIZE. The first label of a bucket is written in full
+ * (varint length, then bytes); each later one as the varint length of the prefix it shares with
+ * the label before it, the varint length of the rest, and the rest. Finding a label is a binary
+ * search over the bucket heads followed by a scan of one bucket, and the labels with a given
+ * prefix are a contiguous run of ids, so they are enumerated without looking at any other label.
+ */
+public class LabelDictionary {
+	static final int BUCKET_SIZE = 16;
+
+	private final byte[] data;
+	private final int[] bucketOffsets;
+	private final int size;
+
+	/**
+	 * @param labels, in any order; repeated labels are stored once
+	 * @return the dictionary
+	 */
+	public static LabelDictionary of(Collection<String> labels) {
+		byte[][] sorted = new byte[labels.size()][];
+		int count = 0;
+		for (String label : labels) {
+			sorted[count++] = label.getBytes(StandardCharsets.UTF_8);
+		}
+		Arrays.sort(sorted, new Comparator<byte[]>() {
+			@Override
+			public int compare(byte[] a, byte[] b) {
+				return WikiSurfing.compareUnsigned(a, b);
+			}
+		});
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int[] bucketOffsets = new int[(count + BUCKET_SIZE - 1) / BUCKET_SIZE];
+		byte[] previous = null;
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			byte[] label = sorted[i];
+			if (previous != null && Arrays.equals(previous, label)) continue;
+			if (size % BUCKET_SIZE == 0) {
+				bucketOffsets[size / BUCKET_SIZE] = out.size();
+				writeVarint(out, label.length);
+				out.write(label, 0, label.length);
+			} else {
+				int shared = 0;
+				int limit = Math.min(previous.length, label.length);
+				while (shared < limit && previous[shared] == label[shared]) shared++;
+				writeVarint(out, shared);
+				writeVarint(out, label.length - shared);
+				out.write(label, shared, label.length - shared);
+			}
+			previous = label;
+			size++;
+		}
+		return new LabelDictionary(out.toByteArray(), Arrays.copyOf(bucketOffsets, (size + BUCKET_SIZE - 1) / BUCKET_SIZE), size);
+	}
+
+	private LabelDictionary(byte[] data, int[] bucketOffsets, int size) {
+		this.data = data;
+		this.bucketOffsets = bucketOffsets;
+		this.size = size;
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * @return the number of distinct labels
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the number of bytes used by the encoded labels and the bucket index
+	 */
+	public long sizeInBytes() {
+		return this.data.length + 4L * this.bucketOffsets.length;
+	}
+
+	/**
+	 * @param label
+	 * @return the id of label, or -1 if it is not in the dictionary
+	 */
+	public int id(String label) {
+		byte[] key = label.getBytes(StandardCharsets.UTF_8);
+		int id = lowerBound(key);
+		if (id == this.size) return -1;
+		Cursor cursor = new Cursor(id);
+		cursor.next();
+		return cursor.compareTo(key) == 0 ? id : -1;
+	}
+
+	/**
+	 * @param id
+	 * @return the label with the given id
+	 * @throws NoSuchElementException if id is not in 0..size()-1
+	 */
+	public String label(int id) {
+		if (id < 0 || id >= this.size) throw new NoSuchElementException("Label id out of range");
+		Cursor cursor = new Cursor(id);
+		cursor.next();
+		return cursor.toString();
+	}
+
+	/**
+	 * Lists the labels that start with prefix, in order.
+	 * @param prefix
+	 * @param limit, the largest number of labels to return
+	 * @return at most limit labels
+	 */
+	public List<String> withPrefix(String prefix, int limit) {
+		byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+		List<String> labels = new ArrayList<String>();
+		int id = lowerBound(key);
+		Cursor cursor = new Cursor(id);
+		for (; id < this.size && labels.size() < limit; id++) {
+			cursor.next();
+			if (!cursor.startsWith(key)) break;
+			labels.add(cursor.toString());
+		}
+		return labels;
+	}
+
+	/**
+	 * Suggests labels for a string that may not be in the dictionary: the labels sharing the
+	 * longest possible prefix with it, found by dropping characters from its end until some label
+	 * matches.
+	 * @param label
+	 * @param limit, the largest number of suggestions
+	 * @return at most limit labels, empty only if the dictionary is
+	 */
+	public List<String> suggestions(String label, int limit) {
+		for (int length = label.length(); length >= 0; length--) {
+			// do not split a surrogate pair
+			if (length > 0 && length < label.length() && Character.isHighSurrogate(label.charAt(length - 1))) continue;
+			List<String> matches = withPrefix(label.substring(0, length), limit);
+			if (!matches.isEmpty()) return matches;
+		}
+		return new ArrayList<String>();
+	}
+
+	/**
+	 * @return the smallest id whose label is not less than key, or size() if there is none
+	 */
+	private int lowerBound(byte[] key) {
+		// last bucket whose head is <= key
+		int low = 0, high = this.bucketOffsets.length - 1, bucket = -1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			Cursor head = new Cursor(middle * BUCKET_SIZE);
+			head.next();
+			if (head.compareTo(key) <= 0) {
+				bucket = middle;
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		if (bucket < 0) return 0;
+		int id = bucket * BUCKET_SIZE;
+		int end = Math.min(this.size, id + BUCKET_SIZE);
+		Cursor cursor = new Cursor(id);
+		for (; id < end; id++) {
+			cursor.next();
+			if (cursor.compareTo(key) >= 0) return id;
+		}
+		return id;
+	}
+
+	/**
+	 * Decodes labels in id order, starting at a given id. The current label is held in bytes[0..length).
+	 */
+	private class Cursor {
+		private byte[] bytes = new byte[64];
+		private int length;
+		private int position;
+		private int next;
+		private int skip;
+
+		Cursor(int id) {
+			if (id < LabelDictionary.this.size) {
+				this.next = id - id % BUCKET_SIZE;
+				this.position = LabelDictionary.this.bucketOffsets[this.next / BUCKET_SIZE];
+			} else {
+				this.next = id;
+			}
+			this.skip = id - this.next;
+		}
+
+		/**
+		 * Moves to the next label; the first call moves to the id given to the constructor.
+		 */
+		void next() {
+			do {
+				if (this.next % BUCKET_SIZE == 0) {
+					this.length = 0;
+					append(readVarint());
+				} else {
+					this.length = readVarint();
+					append(readVarint());
+				}
+				this.next++;
+			} while (this.skip-- > 0);
+		}
+
+		private void append(int count) {
+			if (this.length + count > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(2 * this.bytes.length, this.length + count));
+			}
+			System.arraycopy(LabelDictionary.this.data, this.position, this.bytes, this.length, count);
+			this.length += count;
+			this.position += count;
+		}
+
+		private int readVarint() {
+			int value = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = LabelDictionary.this.data[this.position++];
+				value |= (b & 0x7f) << shift;
+				if (b >= 0) return value;
+			}
+		}
+
+		int compareTo(byte[] key) {
+			int common = Math.min(this.length, key.length);
+			for (int i = 0; i < common; i++) {
+				int difference = (this.bytes[i] & 0xff) - (key[i] & 0xff);
+				if (difference != 0) return difference;
+			}
+			return this.length - key.length;
+		}
+
+		boolean startsWith(byte[] prefix) {
+			if (prefix.length > this.length) return false;
+			for (int i = 0; i < prefix.length; i++) {
+				if (this.bytes[i] != prefix[i]) return false;
+			}
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return new String(this.bytes, 0, this.length, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Checks LabelDictionary lookups against a sorted list of the same labels.
+ */
+public class LabelDictionaryTest {
+
+	private static List<String> sortedByBytes(Iterable<String> labels) {
+		TreeSet<String> set = new TreeSet<String>(new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return WikiSurfing.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+			}
+		});
+		for (String label : labels) {
+			set.add(label);
+		}
+		return new ArrayList<String>(set);
+	}
+
+	@Test
+	public void testIdsAndLabels() {
+		Random random = new Random(11);
+		String[] stems = {"Smith", "Smithson", "Zo\u00eb", "\ud83d\ude00 emoji", "A", ""};
+		List<String> labels = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			labels.add(stems[random.nextInt(stems.length)] + (random.nextBoolean() ? " " + random.nextInt(300) : ""));
+		}
+		LabelDictionary dictionary = LabelDictionary.of(labels);
+		List<String> expected = sortedByBytes(labels);
+		assertEquals(expected.size(), dictionary.size());
+		for (int id = 0; id < expected.size(); id++) {
+			assertEquals(expected.get(id), dictionary.label(id));
+			assertEquals(id, dictionary.id(expected.get(id)));
+		}
+		assertEquals(-1, dictionary.id("Smith 1000"));
+		assertEquals(-1, dictionary.id("zzz"));
+	}
+
+	@Test
+	public void testPrefixes() {
+		List<String> labels = Arrays.asList("Ada", "Adam", "Adams", "Bob", "Bobby", "Carol", "Adamant");
+		LabelDictionary dictionary = LabelDictionary.of(labels);
+		assertEquals(Arrays.asList("Adam", "Adamant", "Adams"), dictionary.withPrefix("Adam", 10));
+		assertEquals(Arrays.asList("Adam", "Adamant"), dictionary.withPrefix("Adam", 2));
+		assertEquals(Collections.emptyList(), dictionary.withPrefix("Dave", 10));
+		assertEquals(sortedByBytes(labels), dictionary.withPrefix("", 100));
+		assertEquals(Arrays.asList("Bobby"), dictionary.suggestions("Bobbie", 10));
+		assertEquals(Arrays.asList("Bob", "Bobby"), dictionary.suggestions("Bobcat", 10));
+		assertTrue(dictionary.suggestions("Xavier", 3).size() == 3);
+	}
+}
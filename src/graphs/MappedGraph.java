@@ -0,0 +1,352 @@
+package graphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only implementation of the Graph ADT whose labels and adjacency arrays stay in a
+ * memory-mapped snapshot file (see WikiSurfing.writeSnapshot) instead of on the heap.
+ *
+ * Opening the graph only maps the file and checks the header; pages are read by the operating
+ * system as they are touched. Every process that maps the same file shares one copy in the page
+ * cache, and since the graph holds no per-vertex objects, its size does not affect garbage
+ * collection. Labels are decoded when they are returned, and a label is found by binary search
+ * over the sorted-id section of the snapshot.
+ *
+ * A single mapping is limited to 2GB, so the snapshot must be smaller than that. The mapping is
+ * released when the graph is garbage collected. addEdge and removeEdge throw
+ * UnsupportedOperationException.
+ */
+public class MappedGraph extends Graph<String> {
+	private final int size;
+	private final int numEdges;
+	private final IntBuffer labelOffsets;
+	private final ByteBuffer labels;
+	private final IntBuffer sortedIds;
+	private final IntBuffer outOffsets;
+	private final IntBuffer outTargets;
+	private final IntBuffer inOffsets;
+	private final IntBuffer inTargets;
+
+	/**
+	 * Maps a snapshot file. Only absolute reads are used on the buffers, so the graph can be
+	 * shared between threads.
+	 * @param file
+	 * @return the graph
+	 * @throws IOException if the file cannot be mapped or is not a snapshot
+	 */
+	public static MappedGraph open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			// the mapping stays valid after the channel is closed
+			return new MappedGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private MappedGraph(ByteBuffer buffer, File file) throws IOException {
+		IntBuffer header = buffer.asIntBuffer();
+		if (header.limit() < WikiSurfing.SNAPSHOT_HEADER_INTS
+				|| header.get(0) != WikiSurfing.SNAPSHOT_MAGIC || header.get(1) != WikiSurfing.SNAPSHOT_VERSION) {
+			throw new IOException("Not a version " + WikiSurfing.SNAPSHOT_VERSION + " graph snapshot: " + file);
+		}
+		this.size = header.get(2);
+		this.numEdges = header.get(3);
+		int labelBytes = header.get(4);
+		long expected = 4L * (WikiSurfing.SNAPSHOT_HEADER_INTS + 4L * this.size + 3 + 2L * this.numEdges)
+				+ 4L * ((labelBytes + 3L) / 4);
+		if (this.size < 0 || this.numEdges < 0 || labelBytes < 0 || buffer.capacity() != expected) {
+			throw new IOException("Corrupt graph snapshot: " + file);
+		}
+		int position = 4 * WikiSurfing.SNAPSHOT_HEADER_INTS;
+		this.labelOffsets = intSection(buffer, position, this.size + 1);
+		position += 4 * (this.size + 1);
+		this.labels = section(buffer, position, labelBytes);
+		position += 4 * ((labelBytes + 3) / 4);
+		this.sortedIds = intSection(buffer, position, this.size);
+		position += 4 * this.size;
+		this.outOffsets = intSection(buffer, position, this.size + 1);
+		position += 4 * (this.size + 1);
+		this.outTargets = intSection(buffer, position, this.numEdges);
+		position += 4 * this.numEdges;
+		this.inOffsets = intSection(buffer, position, this.size + 1);
+		position += 4 * (this.size + 1);
+		this.inTargets = intSection(buffer, position, this.numEdges);
+	}
+
+	private static ByteBuffer section(ByteBuffer buffer, int position, int length) {
+		ByteBuffer copy = buffer.duplicate();
+		copy.position(position);
+		copy.limit(position + length);
+		return copy.slice();
+	}
+
+	private static IntBuffer intSection(ByteBuffer buffer, int position, int count) {
+		return section(buffer, position, 4 * count).asIntBuffer();
+	}
+
+	@Override
+	public int indexOf(String key) {
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		int low = 0, high = this.size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int id = this.sortedIds.get(middle);
+			int comparison = compareLabel(id, bytes);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the label of vertex id with the given UTF-8 bytes, as unsigned bytes.
+	 */
+	private int compareLabel(int id, byte[] bytes) {
+		int start = this.labelOffsets.get(id), length = this.labelOffsets.get(id + 1) - start;
+		int common = Math.min(length, bytes.length);
+		for (int i = 0; i < common; i++) {
+			int difference = (this.labels.get(start + i) & 0xff) - (bytes[i] & 0xff);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return length - bytes.length;
+	}
+
+	@Override
+	public String keyAt(int index) {
+		if (index < 0 || index >= this.size) throw new NoSuchElementException("Vertex index out of range");
+		int start = this.labelOffsets.get(index);
+		byte[] bytes = new byte[this.labelOffsets.get(index + 1) - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = this.labels.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private int checkedIndexOf(String key) {
+		int index = indexOf(key);
+		if (index < 0) throw new NoSuchElementException("Did not find 'key' vertex");
+		return index;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public int numEdges() {
+		return this.numEdges;
+	}
+
+	@Override
+	public boolean addEdge(String from, String to) {
+		checkedIndexOf(from);
+		checkedIndexOf(to);
+		throw new UnsupportedOperationException("MappedGraph is immutable");
+	}
+
+	@Override
+	public boolean hasVertex(String key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public boolean hasEdge(String from, String to) throws NoSuchElementException {
+		int fromIndex = checkedIndexOf(from), toIndex = checkedIndexOf(to);
+		int low = this.outOffsets.get(fromIndex), high = this.outOffsets.get(fromIndex + 1) - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int target = this.outTargets.get(middle);
+			if (target < toIndex) {
+				low = middle + 1;
+			} else if (target > toIndex) {
+				high = middle - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeEdge(String from, String to) throws NoSuchElementException {
+		checkedIndexOf(from);
+		checkedIndexOf(to);
+		throw new UnsupportedOperationException("MappedGraph is immutable");
+	}
+
+	@Override
+	public int outDegree(String key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return this.outOffsets.get(v + 1) - this.outOffsets.get(v);
+	}
+
+	@Override
+	public int inDegree(String key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return this.inOffsets.get(v + 1) - this.inOffsets.get(v);
+	}
+
+	/**
+	 * @return a read-only view that decodes labels as it is iterated
+	 */
+	@Override
+	public Set<String> keySet() {
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<String>() {
+					private int next;
+
+					@Override
+					public boolean hasNext() {
+						return this.next < MappedGraph.this.size;
+					}
+
+					@Override
+					public String next() {
+						if (this.next >= MappedGraph.this.size) throw new NoSuchElementException();
+						return keyAt(this.next++);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return MappedGraph.this.size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof String && hasVertex((String) o);
+			}
+		};
+	}
+
+	@Override
+	public Set<String> successorSet(String key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return toKeySet(this.outTargets, this.outOffsets.get(v), this.outOffsets.get(v + 1));
+	}
+
+	@Override
+	public Set<String> predecessorSet(String key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return toKeySet(this.inTargets, this.inOffsets.get(v), this.inOffsets.get(v + 1));
+	}
+
+	private Set<String> toKeySet(IntBuffer targets, int start, int end) {
+		Set<String> set = new HashSet<String>();
+		for (int e = start; e < end; e++) {
+			set.add(keyAt(targets.get(e)));
+		}
+		return set;
+	}
+
+	@Override
+	public Iterator<String> successorIterator(String key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return new EdgeIterator(this.outTargets, this.outOffsets.get(v), this.outOffsets.get(v + 1));
+	}
+
+	@Override
+	public Iterator<String> predecessorIterator(String key) throws NoSuchElementException {
+		int v = checkedIndexOf(key);
+		return new EdgeIterator(this.inTargets, this.inOffsets.get(v), this.inOffsets.get(v + 1));
+	}
+
+	@Override
+	public Set<String> stronglyConnectedComponent(String key) throws NoSuchElementException {
+		int start = checkedIndexOf(key);
+		return sweepComponent(start);
+	}
+
+	/**
+	 * Only the labels on the returned path are decoded.
+	 */
+	@Override
+	public List<String> shortestPath(String startLabel, String endLabel) throws NoSuchElementException {
+		if (!hasVertex(startLabel) || !hasVertex(endLabel)) {
+			throw new NoSuchElementException("Start or end vertex not found");
+		}
+		return BidirectionalSearch.shortestPath(this, startLabel, endLabel);
+	}
+
+	@Override
+	public NeighborCursor successorCursor() {
+		return new BufferCursor(this.outOffsets, this.outTargets);
+	}
+
+	@Override
+	public NeighborCursor predecessorCursor() {
+		return new BufferCursor(this.inOffsets, this.inTargets);
+	}
+
+	private static class BufferCursor implements NeighborCursor {
+		private final IntBuffer offsets;
+		private final IntBuffer targets;
+		private int position;
+		private int end;
+
+		BufferCursor(IntBuffer offsets, IntBuffer targets) {
+			this.offsets = offsets;
+			this.targets = targets;
+		}
+
+		@Override
+		public void reset(int vertex) {
+			this.position = this.offsets.get(vertex);
+			this.end = this.offsets.get(vertex + 1);
+		}
+
+		@Override
+		public int next() {
+			return this.position < this.end ? this.targets.get(this.position++) : -1;
+		}
+	}
+
+	private class EdgeIterator implements Iterator<String> {
+		private final IntBuffer targets;
+		private final int end;
+		private int position;
+
+		EdgeIterator(IntBuffer targets, int start, int end) {
+			this.targets = targets;
+			this.position = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.position < this.end;
+		}
+
+		@Override
+		public String next() {
+			if (this.position >= this.end) throw new NoSuchElementException();
+			return keyAt(this.targets.get(this.position++));
+		}
+	}
+
+}
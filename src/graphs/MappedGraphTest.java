@@ -0,0 +1,109 @@
+package graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Writes small graphs as snapshots and checks the mapped view against the originals.
+ */
+public class MappedGraphTest {
+
+	private MappedGraph map(Graph<String> graph) throws IOException {
+		File file = File.createTempFile("graph", ".snapshot");
+		file.deleteOnExit();
+		WikiSurfing.writeSnapshot(CSRGraph.from(graph), file.getPath());
+		return MappedGraph.open(file);
+	}
+
+	@Test
+	public void testMatchesAdjacencyList() throws IOException {
+		Random random = new Random(7);
+		Set<String> keys = new HashSet<String>();
+		for (int i = 0; i < 200; i++) {
+			// mix in non-ASCII labels, which sort by unsigned UTF-8 bytes
+			keys.add(i % 5 == 0 ? "Zo\u00eb " + i : "person " + i);
+		}
+		List<String> list = new ArrayList<String>(keys);
+		Graph<String> al = new AdjacencyListGraph<String>(keys);
+		for (int e = 0; e < 600; e++) {
+			al.addEdge(list.get(random.nextInt(200)), list.get(random.nextInt(200)));
+		}
+		MappedGraph mapped = map(al);
+
+		assertEquals(al.size(), mapped.size());
+		assertEquals(al.numEdges(), mapped.numEdges());
+		assertEquals(al.keySet(), new HashSet<String>(mapped.keySet()));
+		assertFalse(mapped.hasVertex("nobody"));
+		for (String key : list) {
+			assertEquals(key, mapped.keyAt(mapped.indexOf(key)));
+			assertEquals(al.successorSet(key), mapped.successorSet(key));
+			assertEquals(al.predecessorSet(key), mapped.predecessorSet(key));
+			assertEquals(al.inDegree(key), mapped.inDegree(key));
+			assertEquals(al.stronglyConnectedComponent(key), mapped.stronglyConnectedComponent(key));
+		}
+		for (int trial = 0; trial < 300; trial++) {
+			String from = list.get(random.nextInt(200)), to = list.get(random.nextInt(200));
+			assertEquals(al.hasEdge(from, to), mapped.hasEdge(from, to));
+			List<String> expected = al.shortestPath(from, to);
+			List<String> path = mapped.shortestPath(from, to);
+			if (expected == null) {
+				assertNull(path);
+				continue;
+			}
+			assertEquals(expected.size(), path.size());
+			assertEquals(from, path.get(0));
+			assertEquals(to, path.get(path.size() - 1));
+			for (int i = 0; i + 1 < path.size(); i++) {
+				assertTrue(al.hasEdge(path.get(i), path.get(i + 1)));
+			}
+		}
+	}
+
+	@Test
+	public void testImmutableAndMissingVertices() throws IOException {
+		Set<String> keys = new HashSet<String>();
+		keys.add("a");
+		keys.add("b");
+		Graph<String> al = new AdjacencyListGraph<String>(keys);
+		al.addEdge("a", "b");
+		MappedGraph mapped = map(al);
+		try {
+			mapped.addEdge("a", "b");
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			mapped.successorSet("c");
+			fail();
+		} catch (NoSuchElementException e) {
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsTruncatedFile() throws IOException {
+		Set<String> keys = new HashSet<String>();
+		keys.add("a");
+		File file = File.createTempFile("graph", ".snapshot");
+		file.deleteOnExit();
+		WikiSurfing.writeSnapshot(CSRGraph.from(new AdjacencyListGraph<String>(keys)), file.getPath());
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 4);
+		raf.close();
+		MappedGraph.open(file);
+	}
+}
@@ -0,0 +1,183 @@
+package graphs;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Bit-parallel multi-source BFS (MS-BFS, Then et al.) over the successor lists of a CSRGraph.
+ *
+ * Up to 64 * words sources are searched together. Every vertex carries a bitmask with one bit
+ * per source in the batch: seen (the source has reached the vertex), visit (the vertex is in that
+ * source's current frontier) and next (it will be in the next frontier). One scan of a frontier
+ * vertex's successors then advances every source whose bit is set, so an edge is read once per
+ * level for the whole batch instead of once per source. Larger source lists are split into batches.
+ * A batch never uses more lanes than its sources fill, nor more than fit in one array of n * lanes
+ * masks, so wide settings on a large graph run in smaller batches instead of overflowing.
+ *
+ * @param <T>
+ */
+public class MultiSourceBFS<T> {
+	private final CSRGraph<T> graph;
+	private final int words;
+	
+	/** The largest array length every VM allocates */
+	static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Receives each (source, vertex, distance) triple as it is found.
+	 */
+	public interface Visitor {
+		/**
+		 * @param source, the position of the source in the list passed to run
+		 * @param vertex, the index of the reached vertex in the graph
+		 * @param distance
+		 */
+		void reached(int source, int vertex, int distance);
+	}
+
+	/**
+	 * @param graph
+	 * @param words, the largest number of 64-bit lanes per vertex; each batch holds up to
+	 * 64 * words sources
+	 */
+	public MultiSourceBFS(CSRGraph<T> graph, int words) {
+		if (words < 1) throw new IllegalArgumentException("words must be positive");
+		this.graph = graph;
+		this.words = words;
+	}
+
+	public MultiSourceBFS(CSRGraph<T> graph) {
+		this(graph, 1);
+	}
+
+	/**
+	 * @param sources
+	 * @return for each source, an array over vertex indices holding its distance from that source,
+	 * or -1 where it is unreachable. Needs sources.size() * size() ints, so keep batches modest.
+	 */
+	public int[][] distances(List<T> sources) {
+		final int[][] distances = new int[sources.size()][this.graph.size()];
+		for (int[] row : distances) {
+			Arrays.fill(row, -1);
+		}
+		run(sources, new Visitor() {
+			@Override
+			public void reached(int source, int vertex, int distance) {
+				distances[source][vertex] = distance;
+			}
+		});
+		return distances;
+	}
+
+	/**
+	 * @param sources
+	 * @return for each source, the largest distance to any vertex it can reach
+	 */
+	public int[] eccentricities(List<T> sources) {
+		return run(sources, null);
+	}
+
+	/**
+	 * Runs the searches, batch by batch.
+	 * @param sources
+	 * @param visitor, called for every reached vertex (including each source at distance 0),
+	 * or null if only eccentricities are wanted
+	 * @return the eccentricity of each source
+	 * @throws NoSuchElementException if a source is not in the graph
+	 */
+	public int[] run(List<T> sources, Visitor visitor) {
+		int[] indices = new int[sources.size()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = this.graph.indexOf(sources.get(i));
+			if (indices[i] < 0) throw new NoSuchElementException("Did not find source vertex");
+		}
+		int[] eccentricity = new int[indices.length];
+		int lanes = lanes(this.words, this.graph.size(), indices.length);
+		for (int first = 0, end; first < indices.length; first = end) {
+			end = (int) Math.min(indices.length, first + 64L * lanes);
+			runBatch(indices, first, end, lanes, visitor, eccentricity);
+		}
+		return eccentricity;
+	}
+
+	/**
+	 * @param words, the lanes asked for
+	 * @param n, the number of vertices
+	 * @param sources, the number of sources
+	 * @return the lanes per batch: no more than words, than the sources fill, or than fit in an
+	 * array of n * lanes masks
+	 * @throws IllegalArgumentException if not even one lane fits
+	 */
+	static int lanes(int words, int n, int sources) {
+		long needed = Math.max(1, (sources + 63L) / 64);
+		long fit = MAX_CELLS / Math.max(n, 1);
+		if (fit < 1) throw new IllegalArgumentException("Graph has too many vertices for a bit-parallel search: " + n);
+		return (int) Math.min(words, Math.min(needed, fit));
+	}
+
+	private void runBatch(int[] sources, int first, int end, int lanes, Visitor visitor, int[] eccentricity) {
+		int n = this.graph.size();
+		int[] offsets = this.graph.outOffsets;
+		int[] targets = this.graph.outTargets;
+		long[] seen = new long[n * lanes];
+		long[] visit = new long[n * lanes];
+		long[] next = new long[n * lanes];
+		long[] reachedThisLevel = new long[lanes];
+
+		for (int s = first; s < end; s++) {
+			int bit = s - first;
+			int cell = sources[s] * lanes + (bit >>> 6);
+			seen[cell] |= 1L << bit;
+			visit[cell] |= 1L << bit;
+			if (visitor != null) visitor.reached(s, sources[s], 0);
+		}
+
+		for (int level = 1; ; level++) {
+			boolean active = false;
+			Arrays.fill(reachedThisLevel, 0L);
+			for (int v = 0; v < n; v++) {
+				int base = v * lanes;
+				boolean any = false;
+				for (int l = 0; l < lanes; l++) {
+					if (visit[base + l] != 0) {
+						any = true;
+						break;
+					}
+				}
+				if (!any) continue;
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					int wBase = targets[e] * lanes;
+					for (int l = 0; l < lanes; l++) {
+						long discovered = visit[base + l] & ~seen[wBase + l];
+						if (discovered != 0) {
+							seen[wBase + l] |= discovered;
+							next[wBase + l] |= discovered;
+							reachedThisLevel[l] |= discovered;
+							active = true;
+							if (visitor != null) {
+								report(visitor, first, l, discovered, targets[e], level);
+							}
+						}
+					}
+				}
+			}
+			if (!active) break;
+			for (int l = 0; l < lanes; l++) {
+				for (long bits = reachedThisLevel[l]; bits != 0; bits &= bits - 1) {
+					eccentricity[first + (l << 6) + Long.numberOfTrailingZeros(bits)] = level;
+				}
+			}
+			long[] swap = visit;
+			visit = next;
+			next = swap;
+			Arrays.fill(next, 0L);
+		}
+	}
+
+	private static void report(Visitor visitor, int first, int lane, long bits, int vertex, int level) {
+		for (; bits != 0; bits &= bits - 1) {
+			visitor.reached(first + (lane << 6) + Long.numberOfTrailingZeros(bits), vertex, level);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MultiSourceBFSTest {
+
+	private static CSRGraph<Integer> randomGraph(int n, int edges, long seed) {
+		Random random = new Random(seed);
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+		for (int i = 0; i < edges; i++) {
+			g.addEdge(random.nextInt(n), random.nextInt(n));
+		}
+		return CSRGraph.from(g);
+	}
+
+	/**
+	 * Runs every source in one list, which for more than 64 * words sources is split into batches,
+	 * and compares each row with a single-source search.
+	 */
+	private static void checkAgainstBFS(CSRGraph<Integer> g, List<Integer> sources, int words) {
+		MultiSourceBFS<Integer> search = new MultiSourceBFS<Integer>(g, words);
+		int[][] distances = search.distances(sources);
+		int[] eccentricities = search.eccentricities(sources);
+		assertEquals(sources.size(), distances.length);
+		for (int s = 0; s < sources.size(); s++) {
+			int[] expected = new int[g.size()];
+			int eccentricity = 0;
+			Map<Integer,Integer> reached = g.distancesFrom(sources.get(s));
+			for (int v = 0; v < g.size(); v++) {
+				Integer d = reached.get(g.keyAt(v));
+				expected[v] = d == null ? -1 : d;
+				if (d != null) eccentricity = Math.max(eccentricity, d);
+			}
+			assertArrayEquals(expected, distances[s]);
+			assertEquals(eccentricity, eccentricities[s]);
+		}
+	}
+
+	@Test
+	public void testBatchesAndLanes() {
+		// sparse enough that some sources reach only part of the graph
+		CSRGraph<Integer> g = randomGraph(500, 700, 1);
+		Random random = new Random(2);
+		List<Integer> sources = new ArrayList<Integer>();
+		for (int i = 0; i < 300; i++) {
+			sources.add(random.nextInt(g.size()));
+		}
+		// 300 sources make several batches for one lane, and a partly filled last lane for three
+		checkAgainstBFS(g, sources, 1);
+		checkAgainstBFS(g, sources, 2);
+		checkAgainstBFS(g, sources, 3);
+		checkAgainstBFS(g, sources, 5);
+	}
+
+	@Test
+	public void testEveryVertexAsSource() {
+		CSRGraph<Integer> g = randomGraph(200, 600, 3);
+		List<Integer> sources = new ArrayList<Integer>(g.keySet());
+		checkAgainstBFS(g, sources, 2);
+		checkAgainstBFS(g, sources.subList(0, 64), 1);
+		checkAgainstBFS(g, sources.subList(0, 65), 1);
+		checkAgainstBFS(g, sources.subList(0, 128), 2);
+	}
+
+	@Test
+	public void testWideBatchesShrink() {
+		// 64 * words and n * words overflow an int; the batch shrinks to what the sources fill
+		CSRGraph<Integer> g = randomGraph(100, 300, 4);
+		List<Integer> sources = new ArrayList<Integer>(g.keySet());
+		checkAgainstBFS(g, sources, Integer.MAX_VALUE);
+		checkAgainstBFS(g, sources.subList(0, 1), 1 << 26);
+
+		assertEquals(2, MultiSourceBFS.lanes(Integer.MAX_VALUE, 100, 100));
+		assertEquals(1, MultiSourceBFS.lanes(4, 100, 0));
+		// a graph too large for n * words masks in one array runs with fewer lanes per batch
+		assertEquals(MultiSourceBFS.MAX_CELLS / 50000000, MultiSourceBFS.lanes(1000, 50000000, 1000000));
+		assertEquals(1, MultiSourceBFS.lanes(8, MultiSourceBFS.MAX_CELLS, 1000));
+		try {
+			MultiSourceBFS.lanes(1, Integer.MAX_VALUE, 1);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package graphs;
+
+/**
+ * Reusable cursor over the successors or predecessors of one vertex at a time, by vertex index
+ * (see Graph.indexOf). Once a cursor exists, moving it and reading from it do not allocate.
+ * A cursor must not be shared between threads, and it is only valid while the graph is unchanged.
+ */
+public interface NeighborCursor {
+
+	/**
+	 * Moves the cursor to the neighbors of a vertex.
+	 * @param vertex, a vertex index
+	 */
+	void reset(int vertex);
+
+	/**
+	 * @return the index of the next neighbor, or -1 once there are no more
+	 */
+	int next();
+}
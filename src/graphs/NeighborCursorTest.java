@@ -0,0 +1,87 @@
+package graphs;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import org.junit.Test;
+
+/**
+ * Checks the index-based traversal API of every Graph implementation against its key-based sets.
+ */
+public class NeighborCursorTest {
+
+	private static <T> void assertConsistent(Graph<T> g) {
+		NeighborCursor successors = g.successorCursor(), predecessors = g.predecessorCursor();
+		for (T key : g.keySet()) {
+			int v = g.indexOf(key);
+			assertEquals(key, g.keyAt(v));
+			assertEquals(g.successorSet(key), collect(g, successors, v));
+			assertEquals(g.predecessorSet(key), collect(g, predecessors, v));
+			final Set<T> visited = new HashSet<T>();
+			final Graph<T> graph = g;
+			g.forEachSuccessor(v, new IntConsumer() {
+				@Override
+				public void accept(int w) {
+					visited.add(graph.keyAt(w));
+				}
+			});
+			assertEquals(g.successorSet(key), visited);
+			visited.clear();
+			g.forEachPredecessor(v, new IntConsumer() {
+				@Override
+				public void accept(int w) {
+					visited.add(graph.keyAt(w));
+				}
+			});
+			assertEquals(g.predecessorSet(key), visited);
+		}
+	}
+
+	private static <T> Set<T> collect(Graph<T> g, NeighborCursor cursor, int v) {
+		Set<T> keys = new HashSet<T>();
+		cursor.reset(v);
+		for (int w = cursor.next(); w >= 0; w = cursor.next()) {
+			keys.add(g.keyAt(w));
+		}
+		return keys;
+	}
+
+	@Test
+	public void testAllImplementations() throws IOException {
+		Random random = new Random(17);
+		Set<String> keys = new HashSet<String>();
+		for (int i = 0; i < 150; i++) {
+			keys.add("v" + i);
+		}
+		List<String> list = new ArrayList<String>(keys);
+		List<Graph<String>> graphs = new ArrayList<Graph<String>>();
+		graphs.add(new AdjacencyListGraph<String>(keys));
+		graphs.add(new AdjacencyMatrixGraph<String>(keys));
+		graphs.add(new AdjacencyMatrixGraph<String>(keys, true));
+		for (int e = 0; e < 500; e++) {
+			String from = list.get(random.nextInt(list.size())), to = list.get(random.nextInt(list.size()));
+			for (Graph<String> g : graphs) {
+				g.addEdge(from, to);
+			}
+		}
+		CSRGraph<String> csr = CSRGraph.from(graphs.get(0));
+		graphs.add(csr);
+		graphs.add(CompressedGraph.from(csr));
+		File file = File.createTempFile("graph", ".snapshot");
+		file.deleteOnExit();
+		WikiSurfing.writeSnapshot(csr, file.getPath());
+		graphs.add(MappedGraph.open(file));
+		graphs.add(ConcurrentGraph.from(csr));
+		for (Graph<String> g : graphs) {
+			assertConsistent(g);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Set of vertex ids for one adjacency list, stored compactly as an int array in no particular
+ * order. Removal moves the last id into the freed position, so it never shifts the array.
+ *
+ * Membership is a linear scan while the set is small, which touches at most HASH_THRESHOLD
+ * contiguous ints. Above that size (the hubs of the wiki graphs have tens of thousands of links)
+ * an open-addressing hash index from id to position is added, so contains, add and remove take
+ * constant expected time. The index is dropped again once the set shrinks below half the threshold.
+ */
+final class NeighborSet {
+	static final int HASH_THRESHOLD = 1024;
+	private static final int[] EMPTY = new int[0];
+
+	private int[] ids = EMPTY;
+	private int size;
+	// Linear probing with a power-of-two capacity of at least twice size: keys[slot] is id + 1,
+	// or 0 for an empty slot, and positions[slot] is where that id is in ids
+	private int[] keys;
+	private int[] positions;
+
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param position, from 0 to size() - 1
+	 * @return the id at that position
+	 */
+	int get(int position) {
+		return this.ids[position];
+	}
+
+	boolean contains(int id) {
+		return positionOf(id) >= 0;
+	}
+
+	/**
+	 * @param id
+	 * @return false if id was already in the set
+	 */
+	boolean add(int id) {
+		if (contains(id)) return false;
+		if (this.size == this.ids.length) {
+			this.ids = Arrays.copyOf(this.ids, Math.max(4, 2 * this.size));
+		}
+		this.ids[this.size] = id;
+		if (this.keys != null) {
+			if (2 * (this.size + 1) > this.keys.length) {
+				buildIndex(2 * this.keys.length);
+			}
+			insert(id, this.size);
+		}
+		this.size++;
+		if (this.keys == null && this.size > HASH_THRESHOLD) {
+			buildIndex(Integer.highestOneBit(this.size) * 4);
+		}
+		return true;
+	}
+
+	/**
+	 * @param id
+	 * @return false if id was not in the set
+	 */
+	boolean remove(int id) {
+		int position = positionOf(id);
+		if (position < 0) return false;
+		int last = this.ids[--this.size];
+		this.ids[position] = last;
+		if (this.keys != null) {
+			delete(id);
+			if (last != id) {
+				this.positions[slotOf(last)] = position;
+			}
+			if (this.size < HASH_THRESHOLD / 2) {
+				this.keys = null;
+				this.positions = null;
+			}
+		}
+		return true;
+	}
+
+	private int positionOf(int id) {
+		if (this.keys != null) {
+			int slot = slotOf(id);
+			return slot < 0 ? -1 : this.positions[slot];
+		}
+		for (int i = 0; i < this.size; i++) {
+			if (this.ids[i] == id) return i;
+		}
+		return -1;
+	}
+
+	private static int hash(int id) {
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return the slot holding id, or -1
+	 */
+	private int slotOf(int id) {
+		int mask = this.keys.length - 1;
+		for (int slot = hash(id) & mask; this.keys[slot] != 0; slot = (slot + 1) & mask) {
+			if (this.keys[slot] == id + 1) return slot;
+		}
+		return -1;
+	}
+
+	private void insert(int id, int position) {
+		int mask = this.keys.length - 1;
+		int slot = hash(id) & mask;
+		while (this.keys[slot] != 0) slot = (slot + 1) & mask;
+		this.keys[slot] = id + 1;
+		this.positions[slot] = position;
+	}
+
+	/**
+	 * Backward-shift deletion: later entries of the probe run move into the gap, so no tombstones
+	 * are needed.
+	 */
+	private void delete(int id) {
+		int mask = this.keys.length - 1;
+		int gap = slotOf(id);
+		for (int slot = (gap + 1) & mask; this.keys[slot] != 0; slot = (slot + 1) & mask) {
+			int home = hash(this.keys[slot] - 1) & mask;
+			// the entry may move back to the gap unless its home lies after the gap, up to slot
+			if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+				this.keys[gap] = this.keys[slot];
+				this.positions[gap] = this.positions[slot];
+				gap = slot;
+			}
+		}
+		this.keys[gap] = 0;
+	}
+
+	private void buildIndex(int capacity) {
+		this.keys = new int[capacity];
+		this.positions = new int[capacity];
+		for (int i = 0; i < this.size; i++) {
+			insert(this.ids[i], i);
+		}
+	}
+}
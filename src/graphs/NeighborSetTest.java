@@ -0,0 +1,48 @@
+package graphs;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class NeighborSetTest {
+
+	private static void assertSameElements(Set<Integer> expected, NeighborSet actual) {
+		assertEquals(expected.size(), actual.size());
+		Set<Integer> elements = new HashSet<Integer>();
+		for (int i = 0; i < actual.size(); i++) {
+			elements.add(actual.get(i));
+		}
+		assertEquals(expected, elements);
+	}
+
+	/**
+	 * Grows the set well past the hash threshold and shrinks it back, so that it switches between
+	 * scanning and hashing several times.
+	 */
+	@Test
+	public void testMatchesHashSet() {
+		Random random = new Random(21);
+		NeighborSet set = new NeighborSet();
+		Set<Integer> expected = new HashSet<Integer>();
+		int range = 4 * NeighborSet.HASH_THRESHOLD;
+		for (int phase = 0; phase < 6; phase++) {
+			boolean growing = phase % 2 == 0;
+			for (int step = 0; step < 5 * range; step++) {
+				int id = random.nextInt(range);
+				// the set settles near 7/8 of range while growing and 1/16 while shrinking
+				if (random.nextInt(16) < (growing ? 14 : 1)) {
+					assertEquals(expected.add(id), set.add(id));
+				} else {
+					assertEquals(expected.remove(id), set.remove(id));
+				}
+				int probe = random.nextInt(range);
+				assertEquals(expected.contains(probe), set.contains(probe));
+			}
+			assertSameElements(expected, set);
+		}
+	}
+}
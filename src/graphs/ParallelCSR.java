@@ -0,0 +1,259 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Groups a list of edges into CSR form (sorted, duplicate-free neighbor lists) on several threads,
+ * for CSRGraph.Builder.
+ *
+ * The vertices are split into BUCKETS_PER_THREAD * parallelism ranges, and the edges into as many
+ * chunks. Each chunk first counts its edges per bucket; a prefix sum over those counts gives every
+ * (chunk, bucket) pair its own region of a scratch array, so the chunks then scatter their edges
+ * into the buckets concurrently without locks. Each bucket is then sorted into per-vertex lists,
+ * sorted and de-duplicated by its own task, and finally copied into place after a prefix sum over
+ * the resulting degrees. With a single thread there is one bucket and no scatter pass.
+ */
+final class ParallelCSR {
+	static final int BUCKETS_PER_THREAD = 4;
+	// Below this many edges one thread does everything
+	static final int MIN_PARALLEL_EDGES = 1 << 16;
+
+	private final int vertexCount;
+	private final int[] sources;
+	private final int[] targets;
+	private final int edgeCount;
+	// whether each source's targets already come in increasing order without duplicates
+	private final boolean ordered;
+	private final int parts;
+
+	private final int[][] bucketCounts;
+	private int[] scratchSources;
+	private int[] scratchTargets;
+	private final int[] bucketStart;
+	private final int[][] bucketTargets;
+	private final int[] offsets;
+	private int[] result;
+
+	private ParallelCSR(int vertexCount, int[] sources, int[] targets, int edgeCount, boolean ordered, int parallelism) {
+		this.vertexCount = vertexCount;
+		this.sources = sources;
+		this.targets = targets;
+		this.edgeCount = edgeCount;
+		this.ordered = ordered;
+		this.parts = parallelism == 1 || edgeCount < MIN_PARALLEL_EDGES || vertexCount < 2 ? 1
+				: Math.min(vertexCount, BUCKETS_PER_THREAD * parallelism);
+		this.bucketCounts = new int[this.parts][this.parts];
+		this.bucketStart = new int[this.parts + 1];
+		this.bucketTargets = new int[this.parts][];
+		this.offsets = new int[vertexCount + 1];
+	}
+
+	/**
+	 * @param vertexCount
+	 * @param sources, the source of each edge
+	 * @param targets, the target of each edge
+	 * @param edgeCount, the number of edges, which are the first edgeCount of the two arrays
+	 * @param parallelism, the number of threads to use
+	 * @return {offsets, targets}: the targets of vertex v are targets[offsets[v]..offsets[v+1]),
+	 * in increasing order and without duplicates
+	 */
+	static int[][] group(int vertexCount, int[] sources, int[] targets, int edgeCount, int parallelism) {
+		return group(vertexCount, sources, targets, edgeCount, false, parallelism);
+	}
+
+	/**
+	 * Transposes a CSR whose lists are sorted and duplicate-free. The grouping is stable, so every
+	 * predecessor list comes out sorted without any sorting.
+	 * @param vertexCount
+	 * @param offsets
+	 * @param targets
+	 * @param parallelism
+	 * @return {offsets, targets} of the transposed graph
+	 */
+	static int[][] transpose(int vertexCount, int[] offsets, int[] targets, int parallelism) {
+		int[] sources = new int[targets.length];
+		for (int v = 0; v < vertexCount; v++) {
+			Arrays.fill(sources, offsets[v], offsets[v + 1], v);
+		}
+		return group(vertexCount, targets, sources, targets.length, true, parallelism);
+	}
+
+	private static int[][] group(int vertexCount, int[] sources, int[] targets, int edgeCount, boolean ordered, int parallelism) {
+		final ParallelCSR csr = new ParallelCSR(vertexCount, sources, targets, edgeCount, ordered, parallelism);
+		if (csr.parts == 1) {
+			csr.run();
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.invoke(new RecursiveAction() {
+					@Override
+					protected void compute() {
+						csr.run();
+					}
+				});
+			} finally {
+				pool.shutdown();
+			}
+		}
+		return new int[][] {csr.offsets, csr.result};
+	}
+
+	private int bucketOf(int vertex) {
+		return (int) ((long) vertex * this.parts / this.vertexCount);
+	}
+
+	private int firstVertex(int bucket) {
+		// the smallest vertex v with bucketOf(v) >= bucket
+		return (int) (((long) bucket * this.vertexCount + this.parts - 1) / this.parts);
+	}
+
+	private int chunkStart(int chunk) {
+		return (int) ((long) chunk * this.edgeCount / this.parts);
+	}
+
+	/**
+	 * Runs each step on all parts, inside the pool when there is more than one.
+	 */
+	private void run() {
+		if (this.parts == 1) {
+			// a single bucket holds every edge in its original order
+			this.scratchSources = this.sources;
+			this.scratchTargets = this.targets;
+			this.bucketStart[1] = this.edgeCount;
+		} else {
+			scatter();
+		}
+		forAllParts(new Step() {
+			@Override
+			public void run(int bucket) {
+				sortBucket(bucket);
+			}
+		});
+		// offsets holds degrees so far; turn them into starts
+		int total = 0;
+		for (int v = 0; v < this.vertexCount; v++) {
+			int degree = this.offsets[v];
+			this.offsets[v] = total;
+			total += degree;
+		}
+		this.offsets[this.vertexCount] = total;
+		if (this.parts == 1) {
+			this.result = this.bucketTargets[0];
+			return;
+		}
+		this.result = new int[total];
+		forAllParts(new Step() {
+			@Override
+			public void run(int bucket) {
+				int[] lists = ParallelCSR.this.bucketTargets[bucket];
+				System.arraycopy(lists, 0, ParallelCSR.this.result, ParallelCSR.this.offsets[firstVertex(bucket)], lists.length);
+				ParallelCSR.this.bucketTargets[bucket] = null;
+			}
+		});
+	}
+
+	/**
+	 * Moves the edges into scratch arrays grouped by bucket, each chunk in its own regions.
+	 */
+	private void scatter() {
+		this.scratchSources = new int[this.edgeCount];
+		this.scratchTargets = new int[this.edgeCount];
+		forAllParts(new Step() {
+			@Override
+			public void run(int chunk) {
+				int[] counts = ParallelCSR.this.bucketCounts[chunk];
+				for (int e = chunkStart(chunk); e < chunkStart(chunk + 1); e++) {
+					counts[bucketOf(ParallelCSR.this.sources[e])]++;
+				}
+			}
+		});
+		// bucketCounts[chunk][bucket] becomes where that chunk writes into that bucket
+		int position = 0;
+		for (int bucket = 0; bucket < this.parts; bucket++) {
+			this.bucketStart[bucket] = position;
+			for (int chunk = 0; chunk < this.parts; chunk++) {
+				int count = this.bucketCounts[chunk][bucket];
+				this.bucketCounts[chunk][bucket] = position;
+				position += count;
+			}
+		}
+		this.bucketStart[this.parts] = position;
+		forAllParts(new Step() {
+			@Override
+			public void run(int chunk) {
+				int[] fill = ParallelCSR.this.bucketCounts[chunk];
+				for (int e = chunkStart(chunk); e < chunkStart(chunk + 1); e++) {
+					int at = fill[bucketOf(ParallelCSR.this.sources[e])]++;
+					ParallelCSR.this.scratchSources[at] = ParallelCSR.this.sources[e];
+					ParallelCSR.this.scratchTargets[at] = ParallelCSR.this.targets[e];
+				}
+			}
+		});
+	}
+
+	/**
+	 * Counting sort of one bucket's edges by source, then sort and de-duplicate each list. Leaves
+	 * the degrees in offsets and the lists, one after the other, in bucketTargets[bucket].
+	 */
+	private void sortBucket(int bucket) {
+		int first = firstVertex(bucket), end = firstVertex(bucket + 1);
+		int from = this.bucketStart[bucket], to = this.bucketStart[bucket + 1];
+		int[] start = new int[end - first + 1];
+		for (int e = from; e < to; e++) {
+			start[this.scratchSources[e] - first + 1]++;
+		}
+		for (int v = 0; v < end - first; v++) {
+			start[v + 1] += start[v];
+		}
+		int[] lists = new int[to - from];
+		int[] fill = Arrays.copyOf(start, end - first);
+		for (int e = from; e < to; e++) {
+			lists[fill[this.scratchSources[e] - first]++] = this.scratchTargets[e];
+		}
+		int write = 0;
+		if (this.ordered) {
+			for (int v = 0; v < end - first; v++) {
+				this.offsets[first + v] = start[v + 1] - start[v];
+			}
+			this.bucketTargets[bucket] = lists;
+			return;
+		}
+		for (int v = 0; v < end - first; v++) {
+			Arrays.sort(lists, start[v], start[v + 1]);
+			int listStart = write;
+			for (int e = start[v]; e < start[v + 1]; e++) {
+				if (e == start[v] || lists[e] != lists[e - 1]) {
+					lists[write++] = lists[e];
+				}
+			}
+			this.offsets[first + v] = write - listStart;
+		}
+		this.bucketTargets[bucket] = write == lists.length ? lists : Arrays.copyOf(lists, write);
+	}
+
+	private interface Step {
+		void run(int part);
+	}
+
+	private void forAllParts(final Step step) {
+		if (this.parts == 1) {
+			step.run(0);
+			return;
+		}
+		List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+		for (int part = 0; part < this.parts; part++) {
+			final int index = part;
+			tasks.add(new RecursiveAction() {
+				@Override
+				protected void compute() {
+					step.run(index);
+				}
+			});
+		}
+		RecursiveAction.invokeAll(tasks);
+	}
+}
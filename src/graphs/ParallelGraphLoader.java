@@ -0,0 +1,272 @@
+package graphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads a graph from a page-names file ("index name" per line) and a links file (pairs of
+ * indices), as used for the Wikipedia graphs, into a CSRGraph.
+ *
+ * Each file is split into about CHUNKS_PER_THREAD * parallelism newline-aligned chunks, which are
+ * memory-mapped and parsed byte by byte on a ForkJoin pool: digits are accumulated straight into
+ * ints, and labels are decoded from their UTF-8 bytes, with no Scanner, regex or boxing. Links are
+ * translated to vertex indices as they are parsed, so each chunk yields a flat int array of
+ * (from, to) pairs that is handed to CSRGraph.Builder in bulk. Only the parsing runs in the
+ * chunks; Builder.build(parallelism) then groups the pairs into the CSR arrays with ParallelCSR,
+ * on a pool of its own. Links whose endpoints have no page name are dropped, as before.
+ */
+public class ParallelGraphLoader {
+	static final int CHUNKS_PER_THREAD = 4;
+	private static final int MIN_CHUNK_BYTES = 1 << 16;
+
+	private final int parallelism;
+
+	/**
+	 * @param parallelism, the number of worker threads to use
+	 */
+	public ParallelGraphLoader(int parallelism) {
+		if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+		this.parallelism = parallelism;
+	}
+
+	public ParallelGraphLoader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param pageNamesFile, lines of a non-negative file index, one space and the page name
+	 * @param linksFile, whitespace-separated pairs of file indices, one pair per line
+	 * @return the graph
+	 * @throws IOException if a file cannot be read or the links file has an unpaired index
+	 */
+	public CSRGraph<String> load(File pageNamesFile, File linksFile) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			List<NamesChunk> nameChunks = new ArrayList<NamesChunk>();
+			for (long[] range : split(pageNamesFile)) {
+				nameChunks.add(new NamesChunk(pageNamesFile, range[0], range[1]));
+			}
+			runAll(pool, nameChunks);
+
+			// Later lines win for a repeated index, and a repeated name keeps one vertex
+			Set<String> keys = new LinkedHashSet<String>();
+			int maxIndex = -1;
+			for (NamesChunk chunk : nameChunks) {
+				keys.addAll(chunk.names);
+				for (int i = 0; i < chunk.count; i++) maxIndex = Math.max(maxIndex, chunk.indices[i]);
+			}
+			CSRGraph.Builder<String> builder = new CSRGraph.Builder<String>(keys);
+			int[] vertexOf = new int[maxIndex + 1];
+			Arrays.fill(vertexOf, -1);
+			for (NamesChunk chunk : nameChunks) {
+				for (int i = 0; i < chunk.count; i++) {
+					vertexOf[chunk.indices[i]] = builder.indexOf(chunk.names.get(i));
+				}
+			}
+
+			List<LinksChunk> linkChunks = new ArrayList<LinksChunk>();
+			for (long[] range : split(linksFile)) {
+				linkChunks.add(new LinksChunk(linksFile, range[0], range[1], vertexOf));
+			}
+			runAll(pool, linkChunks);
+			for (LinksChunk chunk : linkChunks) {
+				builder.addEdgePairs(chunk.pairs, chunk.length);
+			}
+			return builder.build(this.parallelism);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void runAll(ForkJoinPool pool, List<? extends RecursiveTask<Void>> tasks) throws IOException {
+		for (RecursiveTask<Void> task : tasks) {
+			pool.execute(task);
+		}
+		try {
+			for (RecursiveTask<Void> task : tasks) {
+				task.join();
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Splits a file into byte ranges that each end just after a newline (or at the end of the file).
+	 * @return {start, end} pairs covering the file
+	 */
+	private List<long[]> split(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			long chunks = Math.max(1, Math.min((long) CHUNKS_PER_THREAD * this.parallelism, size / MIN_CHUNK_BYTES));
+			List<long[]> ranges = new ArrayList<long[]>();
+			ByteBuffer window = ByteBuffer.allocate(4096);
+			long start = 0;
+			for (long i = 1; i <= chunks && start < size; i++) {
+				long end = i == chunks ? size : Math.max(start, i * size / chunks);
+				// move end past the next newline
+				while (end < size) {
+					window.clear();
+					int read = channel.read(window, end);
+					int newline = -1;
+					for (int j = 0; j < read && newline < 0; j++) {
+						if (window.get(j) == '\n') newline = j;
+					}
+					if (newline >= 0) {
+						end += newline + 1;
+						break;
+					}
+					end += read;
+				}
+				if (end > start) ranges.add(new long[] {start, end});
+				start = end;
+			}
+			return ranges;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static MappedByteBuffer map(File file, long start, long end) {
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Parses the "index name" lines of one chunk. Lines that do not start with an index followed
+	 * by a space are skipped.
+	 */
+	private static class NamesChunk extends RecursiveTask<Void> {
+		private static final long serialVersionUID = 1L;
+		private final File file;
+		private final long start;
+		private final long end;
+		int[] indices = new int[1024];
+		final List<String> names = new ArrayList<String>();
+		int count;
+
+		NamesChunk(File file, long start, long end) {
+			this.file = file;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Void compute() {
+			MappedByteBuffer buffer = map(this.file, this.start, this.end);
+			int length = buffer.limit();
+			byte[] line = new byte[256];
+			int position = 0;
+			while (position < length) {
+				int index = 0;
+				int digits = 0;
+				byte b = 0;
+				while (position < length && (b = buffer.get(position)) >= '0' && b <= '9') {
+					index = 10 * index + (b - '0');
+					digits++;
+					position++;
+				}
+				int nameLength = 0;
+				boolean valid = digits > 0 && position < length && b == ' ';
+				if (valid) position++;
+				while (position < length && (b = buffer.get(position)) != '\n') {
+					if (valid) {
+						if (nameLength == line.length) line = Arrays.copyOf(line, 2 * nameLength);
+						line[nameLength++] = b;
+					}
+					position++;
+				}
+				position++;
+				if (valid) {
+					if (nameLength > 0 && line[nameLength - 1] == '\r') nameLength--;
+					if (this.count == this.indices.length) this.indices = Arrays.copyOf(this.indices, 2 * this.count);
+					this.indices[this.count++] = index;
+					this.names.add(new String(line, 0, nameLength, StandardCharsets.UTF_8));
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Parses the index pairs of one chunk into vertex indices.
+	 */
+	private static class LinksChunk extends RecursiveTask<Void> {
+		private static final long serialVersionUID = 1L;
+		private final File file;
+		private final long start;
+		private final long end;
+		private final int[] vertexOf;
+		int[] pairs = new int[1024];
+		int length;
+
+		LinksChunk(File file, long start, long end, int[] vertexOf) {
+			this.file = file;
+			this.start = start;
+			this.end = end;
+			this.vertexOf = vertexOf;
+		}
+
+		@Override
+		protected Void compute() {
+			MappedByteBuffer buffer = map(this.file, this.start, this.end);
+			int limit = buffer.limit();
+			int position = 0;
+			int from = -1;
+			boolean haveFrom = false;
+			while (true) {
+				while (position < limit && !isDigit(buffer.get(position))) position++;
+				if (position == limit) break;
+				long value = 0;
+				byte b;
+				while (position < limit && isDigit(b = buffer.get(position))) {
+					value = 10 * value + (b - '0');
+					position++;
+				}
+				int vertex = value < this.vertexOf.length ? this.vertexOf[(int) value] : -1;
+				if (!haveFrom) {
+					from = vertex;
+					haveFrom = true;
+					continue;
+				}
+				haveFrom = false;
+				if (from < 0 || vertex < 0) continue;
+				if (this.length == this.pairs.length) this.pairs = Arrays.copyOf(this.pairs, 2 * this.length);
+				this.pairs[this.length++] = from;
+				this.pairs[this.length++] = vertex;
+			}
+			if (haveFrom) {
+				throw new UncheckedIOException(new IOException(String.format(
+						"Unpaired index in %s between bytes %d and %d", this.file, this.start, this.end)));
+			}
+			return null;
+		}
+
+		private static boolean isDigit(byte b) {
+			return b >= '0' && b <= '9';
+		}
+	}
+}
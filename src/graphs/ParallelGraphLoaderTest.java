@@ -0,0 +1,80 @@
+package graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks ParallelGraphLoader on generated files, including ones split into many chunks.
+ */
+public class ParallelGraphLoaderTest {
+
+	private File write(String text) throws IOException {
+		File file = File.createTempFile("graph", ".txt");
+		file.deleteOnExit();
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+		out.print(text);
+		out.close();
+		return file;
+	}
+
+	@Test
+	public void testSmallFiles() throws IOException {
+		File names = write("3 Ada Lovelace\r\n7 Zo\u00eb\n not a page\n12 Alan Turing");
+		File links = write("3 7\r\n7 12\n12 3\n3 7\n3 99\n5 3\n");
+		CSRGraph<String> g = new ParallelGraphLoader(2).load(names, links);
+		assertEquals(3, g.size());
+		assertEquals(3, g.numEdges());
+		assertTrue(g.hasEdge("Ada Lovelace", "Zo\u00eb"));
+		assertTrue(g.hasEdge("Zo\u00eb", "Alan Turing"));
+		assertTrue(g.hasEdge("Alan Turing", "Ada Lovelace"));
+		assertFalse(g.hasVertex(" not a page"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnpairedIndex() throws IOException {
+		new ParallelGraphLoader(1).load(write("1 a\n2 b\n"), write("1 2\n1\n"));
+	}
+
+	@Test
+	public void testManyChunksMatchSequentialLoad() throws IOException {
+		Random random = new Random(3);
+		int n = 5000;
+		StringBuilder names = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			names.append(2 * i).append(" page ").append(i).append('\n');
+		}
+		StringBuilder links = new StringBuilder();
+		Set<String> expected = new HashSet<String>();
+		for (int e = 0; e < 200000; e++) {
+			int from = random.nextInt(n), to = random.nextInt(n);
+			links.append(2 * from).append(' ').append(2 * to).append('\n');
+			expected.add(from + " " + to);
+		}
+		File namesFile = write(names.toString()), linksFile = write(links.toString());
+		CSRGraph<String> parallel = new ParallelGraphLoader(8).load(namesFile, linksFile);
+		CSRGraph<String> sequential = new ParallelGraphLoader(1).load(namesFile, linksFile);
+		assertEquals(n, parallel.size());
+		assertEquals(expected.size(), parallel.numEdges());
+		for (int i = 0; i < n; i++) {
+			String key = "page " + i;
+			assertEquals(sequential.successorSet(key), parallel.successorSet(key));
+		}
+		for (String edge : expected) {
+			String[] ends = edge.split(" ");
+			assertTrue(parallel.hasEdge("page " + ends[0], "page " + ends[1]));
+		}
+	}
+}
@@ -0,0 +1,411 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallel strongly-connected-component decomposition of a CSRGraph, using forward-backward
+ * search with trimming (Fleischer, Hendrickson and Pinar; McLendon et al.).
+ *
+ * First, every vertex with no remaining predecessor or no remaining successor is a component of
+ * its own and is trimmed away, in parallel passes until nothing changes. The remaining vertices
+ * form one partition. Each partition is trimmed again within itself, then a pivot is chosen and
+ * the vertices it can reach (FW) and that can reach it (BW) are found within the partition; FW
+ * intersect BW is the pivot's component, and FW only, BW only and the rest become three new
+ * partitions that no component can cross.
+ *
+ * A task keeps splitting the largest child of each split itself and forks the others, which are
+ * at most half the size of their parent, so the nesting of tasks stays logarithmic however many
+ * splits there are. Small partitions are finished with a sequential iterative Tarjan restricted to
+ * the partition, and so are partitions where MAX_STALLED_SPLITS splits in a row each removed less
+ * than an eighth of the vertices (as on a long chain of small cycles, where every split would
+ * otherwise peel off one cycle and rescan the rest).
+ */
+public class ParallelSCC {
+	static final int SEQUENTIAL_THRESHOLD = 4096;
+	static final int MAX_STALLED_SPLITS = 4;
+	private static final int TRIM_CHUNK = 8192;
+
+	private final int parallelism;
+
+	/**
+	 * @param parallelism, the number of worker threads to use
+	 */
+	public ParallelSCC(int parallelism) {
+		if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+		this.parallelism = parallelism;
+	}
+
+	public ParallelSCC() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Decomposes the graph into strongly connected components.
+	 * @param graph
+	 * @return an array holding, for each vertex index, the id of its component. Ids are in
+	 * 0..(number of components - 1), but are otherwise in no particular order.
+	 */
+	public int[] components(CSRGraph<?> graph) {
+		Decomposition decomposition = new Decomposition(graph);
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			pool.invoke(decomposition.new Root());
+		} finally {
+			pool.shutdown();
+		}
+		return decomposition.component;
+	}
+
+	/**
+	 * Shared state of one decomposition. A partition is identified by a label in part[]; only the
+	 * task that owns a partition writes the part, forward and backward entries of its vertices.
+	 */
+	private static class Decomposition {
+		final int[] outOffsets, outTargets, inOffsets, inTargets;
+		final int vertexCount;
+		final int[] component;
+		final int[] part;
+		final int[] forward;
+		final int[] backward;
+		final AtomicInteger nextComponent = new AtomicInteger();
+		final AtomicInteger nextPart = new AtomicInteger(2);
+
+		Decomposition(CSRGraph<?> graph) {
+			this.outOffsets = graph.outOffsets;
+			this.outTargets = graph.outTargets;
+			this.inOffsets = graph.inOffsets;
+			this.inTargets = graph.inTargets;
+			this.vertexCount = graph.size();
+			this.component = new int[this.vertexCount];
+			Arrays.fill(this.component, -1);
+			this.part = new int[this.vertexCount];
+			this.forward = new int[this.vertexCount];
+			this.backward = new int[this.vertexCount];
+		}
+
+		/**
+		 * Trims to a fixed point, then hands the surviving vertices to a Partition task.
+		 */
+		class Root extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				while (new Trim(0, vertexCount).invoke() > 0) {
+					// repeat until a pass trims nothing
+				}
+				int count = 0;
+				for (int v = 0; v < vertexCount; v++) {
+					if (component[v] == -1) count++;
+				}
+				int[] remaining = new int[count];
+				count = 0;
+				for (int v = 0; v < vertexCount; v++) {
+					if (component[v] == -1) {
+						remaining[count++] = v;
+						part[v] = 1;
+					}
+				}
+				// label 0 is never used for a partition, so the zeroed mark arrays start out clear
+				if (remaining.length > 0) {
+					new Partition(remaining, 1, 0).invoke();
+				}
+			}
+		}
+
+		/**
+		 * One trimming pass over vertex indices [from, to). Each vertex is written only by the task
+		 * that owns its range, but a neighbor may be trimmed by another thread at the same moment,
+		 * so whether v sees it as trimmed, and so whether v goes in this pass or the next, depends on
+		 * timing. Either way v is only removed once all its live in- or out-neighbors are gone,
+		 * which is harmless.
+		 */
+		class Trim extends RecursiveTask<Integer> {
+			private static final long serialVersionUID = 1L;
+			private final int from, to;
+
+			Trim(int from, int to) {
+				this.from = from;
+				this.to = to;
+			}
+
+			@Override
+			protected Integer compute() {
+				if (this.to - this.from > TRIM_CHUNK) {
+					int middle = (this.from + this.to) >>> 1;
+					Trim left = new Trim(this.from, middle);
+					left.fork();
+					int right = new Trim(middle, this.to).compute();
+					return right + left.join();
+				}
+				int trimmed = 0;
+				for (int v = this.from; v < this.to; v++) {
+					if (component[v] != -1) continue;
+					if (!hasLiveNeighbor(v, outOffsets, outTargets) || !hasLiveNeighbor(v, inOffsets, inTargets)) {
+						component[v] = nextComponent.getAndIncrement();
+						trimmed++;
+					}
+				}
+				return trimmed;
+			}
+
+			private boolean hasLiveNeighbor(int v, int[] offsets, int[] targets) {
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					int w = targets[e];
+					if (w != v && component[w] == -1) return true;
+				}
+				return false;
+			}
+		}
+
+		/**
+		 * Finds the components among the given vertices, which all carry the label in part[].
+		 */
+		class Partition extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+			private int[] vertices;
+			private final int label;
+			// the number of splits in a row, up to this partition, that barely shrank it
+			private final int stalls;
+
+			Partition(int[] vertices, int label, int stalls) {
+				this.vertices = vertices;
+				this.label = label;
+				this.stalls = stalls;
+			}
+
+			@Override
+			protected void compute() {
+				List<Partition> forked = new ArrayList<Partition>();
+				Partition current = this;
+				while (current != null) {
+					List<Partition> children = current.split();
+					current = null;
+					for (Partition child : children) {
+						if (current == null || child.vertices.length > current.vertices.length) current = child;
+					}
+					for (Partition child : children) {
+						if (child != current) {
+							child.fork();
+							forked.add(child);
+						}
+					}
+				}
+				for (Partition child : forked) {
+					child.join();
+				}
+			}
+
+			/**
+			 * Trims this partition and splits it around a pivot, or finishes it with Tarjan.
+			 * @return the partitions that are left to process
+			 */
+			private List<Partition> split() {
+				List<Partition> children = new ArrayList<Partition>(3);
+				if (this.vertices.length == 1) {
+					component[this.vertices[0]] = nextComponent.getAndIncrement();
+					return children;
+				}
+				if (this.vertices.length >= SEQUENTIAL_THRESHOLD && this.stalls < MAX_STALLED_SPLITS) {
+					this.vertices = trim();
+				}
+				if (this.vertices.length < SEQUENTIAL_THRESHOLD || this.stalls >= MAX_STALLED_SPLITS) {
+					tarjan();
+					return children;
+				}
+
+				int pivot = this.vertices[0];
+				long best = -1;
+				for (int v : this.vertices) {
+					long score = (long) (outOffsets[v + 1] - outOffsets[v]) * (inOffsets[v + 1] - inOffsets[v]);
+					if (score > best) {
+						best = score;
+						pivot = v;
+					}
+				}
+				final int start = pivot;
+				// The two searches touch different arrays, so they can run side by side
+				RecursiveAction backwardSearch = new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected void compute() {
+						reach(start, inOffsets, inTargets, backward);
+					}
+				};
+				backwardSearch.fork();
+				reach(start, outOffsets, outTargets, forward);
+				backwardSearch.join();
+
+				int pivotComponent = nextComponent.getAndIncrement();
+				IntList forwardOnly = new IntList(), backwardOnly = new IntList(), neither = new IntList();
+				for (int v : this.vertices) {
+					boolean f = forward[v] == this.label, b = backward[v] == this.label;
+					if (f && b) component[v] = pivotComponent;
+					else if (f) forwardOnly.add(v);
+					else if (b) backwardOnly.add(v);
+					else neither.add(v);
+				}
+				int stalled = this.vertices.length - this.vertices.length / 8;
+				for (IntList list : new IntList[] {forwardOnly, backwardOnly, neither}) {
+					if (list.size == 0) continue;
+					int childLabel = nextPart.getAndIncrement();
+					int[] childVertices = list.toArray();
+					for (int v : childVertices) part[v] = childLabel;
+					children.add(new Partition(childVertices, childLabel, list.size > stalled ? this.stalls + 1 : 0));
+				}
+				return children;
+			}
+
+			/**
+			 * Trims to a fixed point within this partition, with a worklist of vertices that have no
+			 * live predecessor or successor left in it. Live neighbor counts are kept in forward[]
+			 * (successors) and backward[] (predecessors), and cleared again afterwards.
+			 * @return the vertices that were not trimmed
+			 */
+			private int[] trim() {
+				int[] queue = new int[this.vertices.length];
+				int head = 0, tail = 0;
+				for (int v : this.vertices) {
+					forward[v] = liveNeighbors(v, outOffsets, outTargets);
+					backward[v] = liveNeighbors(v, inOffsets, inTargets);
+					if (forward[v] == 0 || backward[v] == 0) queue[tail++] = v;
+				}
+				while (head < tail) {
+					int v = queue[head++];
+					component[v] = nextComponent.getAndIncrement();
+					for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+						int w = outTargets[e];
+						if (w != v && part[w] == this.label && component[w] == -1 && forward[w] > 0 && backward[w] > 0) {
+							if (--backward[w] == 0) queue[tail++] = w;
+						}
+					}
+					for (int e = inOffsets[v]; e < inOffsets[v + 1]; e++) {
+						int w = inTargets[e];
+						if (w != v && part[w] == this.label && component[w] == -1 && forward[w] > 0 && backward[w] > 0) {
+							if (--forward[w] == 0) queue[tail++] = w;
+						}
+					}
+				}
+				// label 0 is never used for a partition, so cleared entries cannot pass for marks
+				int[] remaining = new int[this.vertices.length - tail];
+				int count = 0;
+				for (int v : this.vertices) {
+					forward[v] = backward[v] = 0;
+					if (component[v] == -1) remaining[count++] = v;
+				}
+				return remaining;
+			}
+
+			private int liveNeighbors(int v, int[] offsets, int[] targets) {
+				int count = 0;
+				for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+					int w = targets[e];
+					if (w != v && part[w] == this.label && component[w] == -1) count++;
+				}
+				return count;
+			}
+
+			/**
+			 * Breadth-first search from start that stays inside this partition, stamping the
+			 * partition label into mark[] for every vertex reached.
+			 */
+			private void reach(int start, int[] offsets, int[] targets, int[] mark) {
+				int[] queue = new int[this.vertices.length];
+				int head = 0, tail = 0;
+				queue[tail++] = start;
+				mark[start] = this.label;
+				while (head < tail) {
+					int v = queue[head++];
+					for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+						int w = targets[e];
+						if (part[w] == this.label && component[w] == -1 && mark[w] != this.label) {
+							mark[w] = this.label;
+							queue[tail++] = w;
+						}
+					}
+				}
+			}
+
+			/**
+			 * Iterative Tarjan restricted to this partition. Local indices live in forward[]
+			 * (offset by one so that 0 means unvisited) and lowlinks in backward[].
+			 */
+			private void tarjan() {
+				int n = this.vertices.length;
+				for (int v : this.vertices) {
+					forward[v] = 0;
+				}
+				int[] stack = new int[n];
+				int[] callStack = new int[n];
+				int[] nextEdge = new int[n];
+				boolean[] onStack = new boolean[n];
+				int counter = 0, stackSize = 0;
+				for (int root : this.vertices) {
+					if (forward[root] != 0) continue;
+					int depth = 0;
+					callStack[depth++] = root;
+					forward[root] = backward[root] = ++counter;
+					nextEdge[counter - 1] = outOffsets[root];
+					onStack[counter - 1] = true;
+					stack[stackSize++] = root;
+					while (depth > 0) {
+						int v = callStack[depth - 1];
+						int local = forward[v] - 1;
+						if (nextEdge[local] < outOffsets[v + 1]) {
+							int w = outTargets[nextEdge[local]++];
+							if (part[w] != this.label || component[w] != -1) continue;
+							if (forward[w] == 0) {
+								forward[w] = backward[w] = ++counter;
+								nextEdge[counter - 1] = outOffsets[w];
+								onStack[counter - 1] = true;
+								stack[stackSize++] = w;
+								callStack[depth++] = w;
+							} else if (onStack[forward[w] - 1]) {
+								backward[v] = Math.min(backward[v], forward[w]);
+							}
+							continue;
+						}
+						depth--;
+						if (backward[v] == forward[v]) {
+							int id = nextComponent.getAndIncrement();
+							int w;
+							do {
+								w = stack[--stackSize];
+								onStack[forward[w] - 1] = false;
+								component[w] = id;
+							} while (w != v);
+						}
+						if (depth > 0) {
+							int parent = callStack[depth - 1];
+							backward[parent] = Math.min(backward[parent], backward[v]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Growable list of ints, used to collect the vertices of child partitions.
+	 */
+	private static class IntList {
+		int[] items = new int[16];
+		int size;
+
+		void add(int item) {
+			if (this.size == this.items.length) this.items = Arrays.copyOf(this.items, 2 * this.size);
+			this.items[this.size++] = item;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(this.items, this.size);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks ParallelSCC against the single-threaded stronglyConnectedComponent implementations.
+ */
+public class ParallelSCCTest {
+
+	/**
+	 * Compares each reference component, taken once per component, with the vertices that share
+	 * its ParallelSCC id, so that large graphs stay cheap to check.
+	 */
+	private void assertMatches(Graph<Integer> reference, int parallelism) {
+		CSRGraph<Integer> g = CSRGraph.from(reference);
+		int[] component = new ParallelSCC(parallelism).components(g);
+		int[] size = new int[g.size()];
+		for (int v = 0; v < g.size(); v++) {
+			size[component[v]]++;
+		}
+		boolean[] checked = new boolean[g.size()];
+		for (int v = 0; v < g.size(); v++) {
+			if (checked[v]) continue;
+			Set<Integer> members = reference.stronglyConnectedComponent(g.keyAt(v));
+			assertEquals(members.size(), size[component[v]]);
+			for (int key : members) {
+				int w = g.indexOf(key);
+				assertEquals(component[v], component[w]);
+				checked[w] = true;
+			}
+		}
+	}
+
+	@Test
+	public void testExampleGraph() {
+		Graph<Integer> g = new AdjacencyMatrixGraph<Integer>(keys(7));
+		g.addEdge(0, 1);
+		g.addEdge(1, 0);
+		g.addEdge(0, 2);
+		g.addEdge(2, 3);
+		g.addEdge(2, 4);
+		g.addEdge(3, 4);
+		g.addEdge(4, 5);
+		g.addEdge(4, 6);
+		g.addEdge(6, 2);
+		assertMatches(g, 2);
+	}
+
+	@Test
+	public void testRandomGraphs() {
+		Random random = new Random(42);
+		for (int trial = 0; trial < 20; trial++) {
+			int n = 1 + random.nextInt(300);
+			Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+			for (int e = random.nextInt(3 * n); e > 0; e--) {
+				g.addEdge(random.nextInt(n), random.nextInt(n));
+			}
+			assertMatches(g, 1 + trial % 4);
+		}
+	}
+
+	@Test
+	public void testLargeCycleAboveSequentialThreshold() {
+		// Big enough to go through the forward-backward split rather than only local Tarjan
+		int n = 3 * ParallelSCC.SEQUENTIAL_THRESHOLD;
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+		for (int i = 0; i < n; i++) {
+			g.addEdge(i, (i + 1) % (n / 2) + (i < n / 2 ? 0 : n / 2));
+		}
+		g.addEdge(0, n / 2);
+		CSRGraph<Integer> csr = CSRGraph.from(g);
+		int[] component = new ParallelSCC(4).components(csr);
+		assertEquals(component[csr.indexOf(0)], component[csr.indexOf(n / 2 - 1)]);
+		assertEquals(component[csr.indexOf(n / 2)], component[csr.indexOf(n - 1)]);
+		assertFalse(component[csr.indexOf(0)] == component[csr.indexOf(n / 2)]);
+	}
+
+	@Test
+	public void testRandomGraphsAboveSequentialThreshold() {
+		// Around one or two edges per vertex: a giant component beside many small ones and a long
+		// tail of trivial vertices, so trimming, the forward-backward split and local Tarjan all run
+		Random random = new Random(43);
+		int n = 20000;
+		for (int trial = 0; trial < 6; trial++) {
+			Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+			for (int e = n + trial * n / 5; e > 0; e--) {
+				g.addEdge(random.nextInt(n), random.nextInt(n));
+			}
+			assertMatches(g, 1 + trial % 4);
+		}
+	}
+
+	@Test
+	public void testDeepChainsOfSmallComponents() {
+		// Every split of a chain of small cycles peels off one cycle, and trimming removes nothing
+		int n = 5 * ParallelSCC.SEQUENTIAL_THRESHOLD;
+		for (int cycle = 2; cycle <= 3; cycle++) {
+			Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+			for (int first = 0; first < n; first += cycle) {
+				int last = Math.min(first + cycle, n) - 1;
+				for (int v = first; v < last; v++) g.addEdge(v, v + 1);
+				g.addEdge(last, first);
+				if (last + 1 < n) g.addEdge(last, last + 1);
+			}
+			assertMatches(g, 4);
+			assertMatches(g, 1);
+		}
+	}
+}
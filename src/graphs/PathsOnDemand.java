@@ -12,31 +12,32 @@ import java.util.Scanner;
  *
  */
 public class PathsOnDemand {
+	private static final int SUGGESTIONS = 10;
 
 	public static void main(String[] args) {
 
-		Graph<String> livingPeopleALGraph = WikiSurfing.wikiLivingPeopleGraphAL(true);
+		Graph<String> livingPeopleALGraph = WikiSurfing.wikiLivingPeopleGraphAL(true, true);
+		LabelDictionary names = LabelDictionary.of(livingPeopleALGraph.keySet());
 
 		Scanner sc = new Scanner(System.in);
+		System.out.println("End a name with * to list the people whose names start with it.");
 		
 		while (true) {
 			
-			System.out.print("Enter starting person: ");
-			String start = sc.nextLine();
-			if (start.equals("")) {
+			String start = readPerson(sc, "Enter starting person: ", names);
+			if (start == null) {
 				break;
 			}
 			if (!livingPeopleALGraph.hasVertex(start)) {
-				System.out.println(start + " is not in (or has degree 0 in) the Living Persons category of Wikipedia.");
+				notFound(start, names);
 				continue;
 			}
-			System.out.print("Enter ending person: ");
-			String end = sc.nextLine();
-			if (end.equals("")) {
+			String end = readPerson(sc, "Enter ending person: ", names);
+			if (end == null) {
 				break;
 			}
 			if (!livingPeopleALGraph.hasVertex(end)) {
-				System.out.println(end + " is not in (or has degree 0 in) the Living Persons category of Wikipedia.");
+				notFound(end, names);
 				continue;
 			}
 		
@@ -47,5 +48,37 @@ public class PathsOnDemand {
 		sc.close();
 		
 	}
+	
+	/**
+	 * Prompts until the answer is not an autocomplete request ("prefix*").
+	 * @return the name entered, or null if it was empty
+	 */
+	private static String readPerson(Scanner sc, String prompt, LabelDictionary names) {
+		while (true) {
+			System.out.print(prompt);
+			String name = sc.nextLine();
+			if (name.equals("")) {
+				return null;
+			}
+			if (!name.endsWith("*")) {
+				return name;
+			}
+			List<String> completions = names.withPrefix(name.substring(0, name.length() - 1), SUGGESTIONS);
+			if (completions.isEmpty()) {
+				System.out.println("No names start with " + name.substring(0, name.length() - 1));
+			}
+			for (String completion : completions) {
+				System.out.println("  " + completion);
+			}
+		}
+	}
+	
+	private static void notFound(String name, LabelDictionary names) {
+		System.out.println(name + " is not in (or has degree 0 in) the Living Persons category of Wikipedia.");
+		List<String> suggestions = names.suggestions(name, SUGGESTIONS);
+		if (!suggestions.isEmpty()) {
+			System.out.println("Did you mean: " + String.join(", ", suggestions));
+		}
+	}
 
 }
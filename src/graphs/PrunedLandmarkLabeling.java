@@ -0,0 +1,340 @@
+package graphs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Exact shortest-path distance index for a directed graph, using pruned landmark labeling
+ * (Akiba, Iwata and Yoshida).
+ *
+ * Every vertex v gets an out-label of pairs (hub, d(v, hub)) and an in-label of pairs
+ * (hub, d(hub, v)), each sorted by hub. For every pair (s, t) some vertex on a shortest path from
+ * s to t is a hub in both L_out(s) and L_in(t), so d(s, t) is the minimum of
+ * L_out(s)[h] + L_in(t)[h] over common hubs h: a merge of two short sorted lists.
+ *
+ * Labels are built by a pruned BFS from each vertex in order of decreasing degree, in both
+ * directions. When a BFS from hub h reaches u at distance d and the labels already built answer
+ * d(h, u) <= d, the search does not add h to u's label and does not expand u.
+ *
+ * Paths are rebuilt hop by hop: from s, step to any successor w with d(w, t) = d(s, t) - 1.
+ *
+ * @param <T>
+ */
+public class PrunedLandmarkLabeling<T> {
+	private static final int MAGIC = 0x504C4C31; // "PLL1"
+
+	private final Graph<T> graph;
+	private final List<T> indexToKey;
+	private final Map<T,Integer> keyToIndex;
+	// Label of vertex v: hubs[offsets[v]] up to hubs[offsets[v+1]], with matching distances.
+	// Hubs are identified by their rank in the build order, which keeps each label sorted.
+	private final int[] outOffsets, outHubs, outDistances;
+	private final int[] inOffsets, inHubs, inDistances;
+
+	private PrunedLandmarkLabeling(Graph<T> graph, List<T> indexToKey, int[] outOffsets, int[] outHubs, int[] outDistances,
+			int[] inOffsets, int[] inHubs, int[] inDistances) {
+		this.graph = graph;
+		this.indexToKey = indexToKey;
+		this.keyToIndex = new HashMap<T,Integer>(2 * indexToKey.size());
+		for (int i = 0; i < indexToKey.size(); i++) {
+			this.keyToIndex.put(indexToKey.get(i), i);
+		}
+		this.outOffsets = outOffsets;
+		this.outHubs = outHubs;
+		this.outDistances = outDistances;
+		this.inOffsets = inOffsets;
+		this.inHubs = inHubs;
+		this.inDistances = inDistances;
+	}
+
+	/**
+	 * Builds the index. The graph is frozen into a CSRGraph for the build unless it already is one,
+	 * and is kept for path reconstruction, so it should not change afterwards.
+	 * @param graph
+	 * @return the index
+	 */
+	public static <T> PrunedLandmarkLabeling<T> build(Graph<T> graph) {
+		final CSRGraph<T> csr = graph instanceof CSRGraph ? (CSRGraph<T>) graph : CSRGraph.from(graph);
+		int n = csr.size();
+
+		// Hubs in order of decreasing total degree
+		Integer[] order = new Integer[n];
+		for (int v = 0; v < n; v++) order[v] = v;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Integer.compare(degree(csr, b), degree(csr, a));
+			}
+		});
+
+		LabelSet out = new LabelSet(n);
+		LabelSet in = new LabelSet(n);
+		int[] hubDistance = new int[n];
+		Arrays.fill(hubDistance, Integer.MAX_VALUE);
+		int[] distance = new int[n];
+		Arrays.fill(distance, -1);
+		int[] queue = new int[n];
+
+		for (int rank = 0; rank < n; rank++) {
+			int h = order[rank];
+			// Forward: the BFS reaches u at d = d(h, u); it is already covered if
+			// L_out(h)[r] + L_in(u)[r] <= d for some hub r.
+			prunedSearch(h, rank, csr.outOffsets, csr.outTargets, out, in, hubDistance, distance, queue);
+			// Backward: the BFS reaches u at d = d(u, h); covered if L_in(h)[r] + L_out(u)[r] <= d.
+			prunedSearch(h, rank, csr.inOffsets, csr.inTargets, in, out, hubDistance, distance, queue);
+		}
+
+		List<T> keys = new ArrayList<T>(n);
+		for (int v = 0; v < n; v++) keys.add(csr.keyAt(v));
+		int[][] flatOut = out.flatten();
+		int[][] flatIn = in.flatten();
+		return new PrunedLandmarkLabeling<T>(graph, keys, flatOut[0], flatOut[1], flatOut[2], flatIn[0], flatIn[1], flatIn[2]);
+	}
+
+	private static int degree(CSRGraph<?> csr, int v) {
+		return csr.outOffsets[v + 1] - csr.outOffsets[v] + csr.inOffsets[v + 1] - csr.inOffsets[v];
+	}
+
+	/**
+	 * Pruned BFS from hub h along the given adjacency. hubLabels is the label set of h facing the
+	 * search direction, and reached vertices get (rank, d) appended to their label in targetLabels.
+	 */
+	private static void prunedSearch(int h, int rank, int[] offsets, int[] targets, LabelSet hubLabels, LabelSet targetLabels,
+			int[] hubDistance, int[] distance, int[] queue) {
+		int[] hubHubs = hubLabels.hubs[h], hubDists = hubLabels.distances[h];
+		for (int i = 0; i < hubLabels.sizes[h]; i++) {
+			hubDistance[hubHubs[i]] = hubDists[i];
+		}
+
+		int head = 0, tail = 0;
+		queue[tail++] = h;
+		distance[h] = 0;
+		while (head < tail) {
+			int u = queue[head++];
+			int d = distance[u];
+			int[] uHubs = targetLabels.hubs[u], uDists = targetLabels.distances[u];
+			boolean covered = false;
+			for (int i = 0; i < targetLabels.sizes[u]; i++) {
+				int through = hubDistance[uHubs[i]];
+				if (through != Integer.MAX_VALUE && through + uDists[i] <= d) {
+					covered = true;
+					break;
+				}
+			}
+			if (covered) continue;
+			targetLabels.add(u, rank, d);
+			for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+				int w = targets[e];
+				if (distance[w] == -1) {
+					distance[w] = d + 1;
+					queue[tail++] = w;
+				}
+			}
+		}
+
+		// Reset only what this search touched
+		for (int i = 0; i < tail; i++) distance[queue[i]] = -1;
+		for (int i = 0; i < hubLabels.sizes[h]; i++) hubDistance[hubHubs[i]] = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Growable per-vertex labels used during the build.
+	 */
+	private static class LabelSet {
+		final int[][] hubs;
+		final int[][] distances;
+		final int[] sizes;
+
+		LabelSet(int n) {
+			this.hubs = new int[n][];
+			this.distances = new int[n][];
+			this.sizes = new int[n];
+			for (int v = 0; v < n; v++) {
+				this.hubs[v] = new int[2];
+				this.distances[v] = new int[2];
+			}
+		}
+
+		void add(int v, int hub, int distance) {
+			int size = this.sizes[v];
+			if (size == this.hubs[v].length) {
+				this.hubs[v] = Arrays.copyOf(this.hubs[v], 2 * size);
+				this.distances[v] = Arrays.copyOf(this.distances[v], 2 * size);
+			}
+			this.hubs[v][size] = hub;
+			this.distances[v][size] = distance;
+			this.sizes[v]++;
+		}
+
+		/** @return {offsets, hubs, distances} in CSR layout */
+		int[][] flatten() {
+			int n = this.sizes.length;
+			int[] offsets = new int[n + 1];
+			for (int v = 0; v < n; v++) offsets[v + 1] = offsets[v] + this.sizes[v];
+			int[] flatHubs = new int[offsets[n]];
+			int[] flatDistances = new int[offsets[n]];
+			for (int v = 0; v < n; v++) {
+				System.arraycopy(this.hubs[v], 0, flatHubs, offsets[v], this.sizes[v]);
+				System.arraycopy(this.distances[v], 0, flatDistances, offsets[v], this.sizes[v]);
+			}
+			return new int[][] {offsets, flatHubs, flatDistances};
+		}
+	}
+
+	private int checkedIndexOf(T key) {
+		Integer index = this.keyToIndex.get(key);
+		if (index == null) throw new NoSuchElementException("Did not find 'key' vertex");
+		return index;
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @return the number of edges on a shortest path from from to to, or -1 if there is none
+	 * @throws NoSuchElementException if either key is not found in the graph
+	 */
+	public int distance(T from, T to) {
+		return distance(checkedIndexOf(from), checkedIndexOf(to));
+	}
+
+	private int distance(int s, int t) {
+		int i = this.outOffsets[s], iEnd = this.outOffsets[s + 1];
+		int j = this.inOffsets[t], jEnd = this.inOffsets[t + 1];
+		int best = Integer.MAX_VALUE;
+		while (i < iEnd && j < jEnd) {
+			int a = this.outHubs[i], b = this.inHubs[j];
+			if (a < b) {
+				i++;
+			} else if (a > b) {
+				j++;
+			} else {
+				int d = this.outDistances[i++] + this.inDistances[j++];
+				if (d < best) best = d;
+			}
+		}
+		return best == Integer.MAX_VALUE ? -1 : best;
+	}
+
+	/**
+	 * Rebuilds a shortest path one hop at a time from the index and the graph's successor lists.
+	 * @param from
+	 * @param to
+	 * @return a shortest path in the format of Graph.shortestPath, or null if there is none
+	 * @throws NoSuchElementException if either key is not found in the graph
+	 */
+	public List<T> shortestPath(T from, T to) {
+		int t = checkedIndexOf(to);
+		int remaining = distance(checkedIndexOf(from), t);
+		if (remaining < 0) {
+			return null;
+		}
+		List<T> path = new ArrayList<T>(remaining + 1);
+		T current = from;
+		path.add(current);
+		while (remaining > 0) {
+			T next = null;
+			for (Iterator<T> it = this.graph.successorIterator(current); it.hasNext(); ) {
+				T w = it.next();
+				if (distance(checkedIndexOf(w), t) == remaining - 1) {
+					next = w;
+					break;
+				}
+			}
+			if (next == null) {
+				throw new IllegalStateException("Index does not match the graph");
+			}
+			path.add(next);
+			current = next;
+			remaining--;
+		}
+		return path;
+	}
+
+	/**
+	 * @return the total number of label entries, in and out
+	 */
+	public long labelEntries() {
+		return (long) this.outHubs.length + this.inHubs.length;
+	}
+
+	/**
+	 * Writes the index to a file. Vertex keys are written with Java serialization, so they must
+	 * be Serializable (as String and Integer are).
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(this.indexToKey.size());
+			for (T key : this.indexToKey) {
+				out.writeObject(key);
+			}
+			writeInts(out, this.outOffsets);
+			writeInts(out, this.outHubs);
+			writeInts(out, this.outDistances);
+			writeInts(out, this.inOffsets);
+			writeInts(out, this.inHubs);
+			writeInts(out, this.inDistances);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads an index written by write. The graph must have the same vertices and edges as the one
+	 * the index was built from; it is only used to rebuild paths.
+	 * @param file
+	 * @param graph
+	 * @return the index
+	 * @throws IOException if the file is not a valid index for the graph
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> PrunedLandmarkLabeling<T> read(File file, Graph<T> graph) throws IOException {
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC) throw new IOException("Not a landmark label file: " + file);
+			int n = in.readInt();
+			if (n != graph.size()) throw new IOException("Index has " + n + " vertices, graph has " + graph.size());
+			List<T> keys = new ArrayList<T>(n);
+			for (int v = 0; v < n; v++) {
+				T key = (T) in.readObject();
+				if (!graph.hasVertex(key)) throw new IOException("Index vertex not in graph: " + key);
+				keys.add(key);
+			}
+			return new PrunedLandmarkLabeling<T>(graph, Collections.unmodifiableList(keys), readInts(in), readInts(in), readInts(in),
+					readInts(in), readInts(in), readInts(in));
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Unknown vertex key class", e);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void writeInts(ObjectOutputStream out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int value : values) out.writeInt(value);
+	}
+
+	private static int[] readInts(ObjectInputStream in) throws IOException {
+		int[] values = new int[in.readInt()];
+		for (int i = 0; i < values.length; i++) values[i] = in.readInt();
+		return values;
+	}
+}
@@ -0,0 +1,122 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PrunedLandmarkLabelingTest {
+
+	private static Graph<Integer> randomGraph(int n, int edges, long seed) {
+		Random random = new Random(seed);
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+		for (int i = 0; i < edges; i++) {
+			g.addEdge(random.nextInt(n), random.nextInt(n));
+		}
+		return g;
+	}
+
+	/**
+	 * Compares every pair's distance with a BFS, and every path with its length and the graph's edges.
+	 */
+	private static void checkAllPairs(Graph<Integer> g, PrunedLandmarkLabeling<Integer> index) {
+		for (int s : g.keySet()) {
+			Map<Integer,Integer> distances = g.distancesFrom(s);
+			for (int t : g.keySet()) {
+				Integer expected = distances.get(t);
+				assertEquals(expected == null ? -1 : (int) expected, index.distance(s, t));
+				List<Integer> path = index.shortestPath(s, t);
+				if (expected == null) {
+					assertNull(path);
+					continue;
+				}
+				assertEquals(expected + 1, path.size());
+				assertEquals(s, (int) path.get(0));
+				assertEquals(t, (int) path.get(path.size() - 1));
+				for (int i = 0; i + 1 < path.size(); i++) {
+					assertTrue(g.hasEdge(path.get(i), path.get(i + 1)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRandomGraphs() {
+		// sparse graphs leave many pairs unreachable, dense ones many tied shortest paths
+		for (long seed = 0; seed < 10; seed++) {
+			int n = 20 + 15 * (int) seed;
+			Graph<Integer> g = randomGraph(n, n + (int) seed * n / 3, seed);
+			checkAllPairs(g, PrunedLandmarkLabeling.build(g));
+		}
+	}
+
+	@Test
+	public void testBuildFromCSR() {
+		Graph<Integer> g = CSRGraph.from(randomGraph(120, 240, 11));
+		checkAllPairs(g, PrunedLandmarkLabeling.build(g));
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		Graph<Integer> g = randomGraph(150, 300, 12);
+		PrunedLandmarkLabeling<Integer> index = PrunedLandmarkLabeling.build(g);
+		File file = File.createTempFile("labels", ".pll");
+		file.deleteOnExit();
+		index.write(file);
+		PrunedLandmarkLabeling<Integer> copy = PrunedLandmarkLabeling.read(file, g);
+		assertEquals(index.labelEntries(), copy.labelEntries());
+		checkAllPairs(g, copy);
+
+		// the file only fits a graph with the same vertices
+		try {
+			PrunedLandmarkLabeling.read(file, randomGraph(149, 300, 12));
+			fail("Expected IOException");
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testBadMagicNumber() throws IOException {
+		Graph<Integer> g = randomGraph(10, 20, 13);
+		File file = File.createTempFile("labels", ".pll");
+		file.deleteOnExit();
+		ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
+		try {
+			out.writeInt(0x12345678);
+			out.writeInt(g.size());
+		} finally {
+			out.close();
+		}
+		try {
+			PrunedLandmarkLabeling.read(file, g);
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Not a landmark label file"));
+		}
+
+		// not even an object stream
+		DataOutputStream raw = new DataOutputStream(new FileOutputStream(file));
+		try {
+			raw.writeInt(0);
+		} finally {
+			raw.close();
+		}
+		try {
+			PrunedLandmarkLabeling.read(file, g);
+			fail("Expected IOException");
+		} catch (IOException e) {
+		}
+	}
+}
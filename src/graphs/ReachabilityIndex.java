@@ -0,0 +1,262 @@
+package graphs;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Reachability index over the condensation of a graph: every strongly connected component
+ * becomes one node of a DAG, with an edge between two components whenever the graph has an edge
+ * between their members.
+ *
+ * Each DAG node carries two kinds of filters that can prove a pair unreachable without a search:
+ * <ul>
+ * <li>a topological level (1 + the largest level of any predecessor); if u reaches v then
+ * level(u) < level(v);</li>
+ * <li>GRAIL interval labels (Yildirim, Chaoji and Zaki) from a few randomized DFS traversals:
+ * post(c) is c's post-order number and low(c) the smallest post-order number below c, and if u
+ * reaches v then [low(v), post(v)] lies inside [low(u), post(u)] in every traversal.</li>
+ * </ul>
+ * Vertices in the same component always reach each other. Pairs that pass every filter are
+ * settled by a breadth-first search over the DAG, on a pooled SearchWorkspace, that skips every
+ * node the filters rule out.
+ *
+ * Vertices are identified by index, so the index is only valid until the graph changes.
+ */
+public class ReachabilityIndex {
+	static final int TRAVERSALS = 2;
+
+	private final int[] component;
+	private final int componentCount;
+	private final int[] dagOffsets;
+	private final int[] dagTargets;
+	private final int[] level;
+	private final int[][] low;
+	private final int[][] post;
+
+	/**
+	 * Collects the inter-component edges of a graph whose components are already known.
+	 */
+	static class Builder {
+		private final int[] component;
+		private final int componentCount;
+		private int[] froms = new int[16];
+		private int[] tos = new int[16];
+		private int edgeCount;
+
+		/**
+		 * @param component, the component id of each vertex index
+		 * @param componentCount, ids are in 0..componentCount-1
+		 */
+		Builder(int[] component, int componentCount) {
+			this.component = component;
+			this.componentCount = componentCount;
+		}
+
+		/**
+		 * Records the graph edge (from, to), given as vertex indices.
+		 */
+		void addEdge(int from, int to) {
+			int cf = this.component[from], ct = this.component[to];
+			if (cf == ct) return;
+			if (this.edgeCount == this.froms.length) {
+				this.froms = Arrays.copyOf(this.froms, 2 * this.edgeCount);
+				this.tos = Arrays.copyOf(this.tos, 2 * this.edgeCount);
+			}
+			this.froms[this.edgeCount] = cf;
+			this.tos[this.edgeCount] = ct;
+			this.edgeCount++;
+		}
+
+		ReachabilityIndex build() {
+			int c = this.componentCount;
+			int[] offsets = new int[c + 1];
+			for (int e = 0; e < this.edgeCount; e++) offsets[this.froms[e] + 1]++;
+			for (int i = 0; i < c; i++) offsets[i + 1] += offsets[i];
+			int[] targets = new int[this.edgeCount];
+			int[] fill = Arrays.copyOf(offsets, c);
+			for (int e = 0; e < this.edgeCount; e++) targets[fill[this.froms[e]]++] = this.tos[e];
+			// sort and de-duplicate each list in place
+			int write = 0, start = 0;
+			for (int i = 0; i < c; i++) {
+				int end = offsets[i + 1];
+				Arrays.sort(targets, start, end);
+				offsets[i] = write;
+				for (int e = start; e < end; e++) {
+					if (e == start || targets[e] != targets[e - 1]) targets[write++] = targets[e];
+				}
+				start = end;
+			}
+			offsets[c] = write;
+			return new ReachabilityIndex(this.component, c, offsets, Arrays.copyOf(targets, write));
+		}
+	}
+
+	/**
+	 * Builds the index for a frozen graph.
+	 * @param graph
+	 * @return the index
+	 */
+	public static ReachabilityIndex of(CSRGraph<?> graph) {
+		int[] component = new ParallelSCC().components(graph);
+		int count = 0;
+		for (int c : component) count = Math.max(count, c + 1);
+		Builder builder = new Builder(component, count);
+		for (int v = 0; v < graph.size(); v++) {
+			for (int e = graph.outOffsets[v]; e < graph.outOffsets[v + 1]; e++) {
+				builder.addEdge(v, graph.outTargets[e]);
+			}
+		}
+		return builder.build();
+	}
+
+	private ReachabilityIndex(int[] component, int componentCount, int[] dagOffsets, int[] dagTargets) {
+		this.component = component;
+		this.componentCount = componentCount;
+		this.dagOffsets = dagOffsets;
+		this.dagTargets = dagTargets;
+		this.level = topologicalLevels();
+		this.low = new int[TRAVERSALS][];
+		this.post = new int[TRAVERSALS][];
+		Random random = new Random(componentCount);
+		for (int k = 0; k < TRAVERSALS; k++) {
+			this.low[k] = new int[componentCount];
+			this.post[k] = new int[componentCount];
+			intervalLabels(random, k % 2 == 1, this.low[k], this.post[k]);
+		}
+	}
+
+	/**
+	 * Kahn's algorithm, assigning each node one more than the largest level of its predecessors.
+	 */
+	private int[] topologicalLevels() {
+		int c = this.componentCount;
+		int[] inDegree = new int[c];
+		for (int target : this.dagTargets) inDegree[target]++;
+		int[] levels = new int[c];
+		int[] queue = new int[c];
+		int head = 0, tail = 0;
+		for (int i = 0; i < c; i++) {
+			if (inDegree[i] == 0) queue[tail++] = i;
+		}
+		while (head < tail) {
+			int u = queue[head++];
+			for (int e = this.dagOffsets[u]; e < this.dagOffsets[u + 1]; e++) {
+				int w = this.dagTargets[e];
+				if (levels[u] + 1 > levels[w]) levels[w] = levels[u] + 1;
+				if (--inDegree[w] == 0) queue[tail++] = w;
+			}
+		}
+		return levels;
+	}
+
+	/**
+	 * One randomized iterative DFS over the whole DAG: roots are visited in a shuffled order and
+	 * children forwards or backwards, filling in post-order numbers and low values.
+	 */
+	private void intervalLabels(Random random, boolean reverseChildren, int[] low, int[] post) {
+		int c = this.componentCount;
+		int[] roots = new int[c];
+		for (int i = 0; i < c; i++) roots[i] = i;
+		for (int i = c - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = roots[i];
+			roots[i] = roots[j];
+			roots[j] = swap;
+		}
+		Arrays.fill(post, -1);
+		boolean[] visited = new boolean[c];
+		int[] callStack = new int[c];
+		int[] nextEdge = new int[c];
+		int counter = 0;
+		for (int root : roots) {
+			if (visited[root]) continue;
+			int depth = 0;
+			callStack[depth++] = root;
+			visited[root] = true;
+			nextEdge[root] = 0;
+			low[root] = Integer.MAX_VALUE;
+			while (depth > 0) {
+				int u = callStack[depth - 1];
+				int degree = this.dagOffsets[u + 1] - this.dagOffsets[u];
+				if (nextEdge[u] < degree) {
+					int position = nextEdge[u]++;
+					int w = this.dagTargets[this.dagOffsets[u] + (reverseChildren ? degree - 1 - position : position)];
+					if (!visited[w]) {
+						visited[w] = true;
+						nextEdge[w] = 0;
+						low[w] = Integer.MAX_VALUE;
+						callStack[depth++] = w;
+					} else if (low[w] < low[u]) {
+						// already finished (it is a DAG), so its low value is final
+						low[u] = low[w];
+					}
+					continue;
+				}
+				depth--;
+				post[u] = counter++;
+				if (post[u] < low[u]) low[u] = post[u];
+				if (depth > 0) {
+					int parent = callStack[depth - 1];
+					if (low[u] < low[parent]) low[parent] = low[u];
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the strongly connected component id of a vertex index
+	 */
+	public int componentOf(int vertex) {
+		return this.component[vertex];
+	}
+
+	/**
+	 * @return the number of strongly connected components (nodes of the condensation DAG)
+	 */
+	public int componentCount() {
+		return this.componentCount;
+	}
+
+	/**
+	 * @param from, a vertex index
+	 * @param to, a vertex index
+	 * @return true if the graph has a path from from to to
+	 */
+	public boolean isReachable(int from, int to) {
+		int cu = this.component[from], cv = this.component[to];
+		if (cu == cv) return true;
+		if (!mayReach(cu, cv)) return false;
+
+		// The filters could not decide, so search the DAG, skipping nodes that cannot reach cv
+		SearchWorkspace workspace = SearchWorkspace.acquire(this.componentCount);
+		try {
+			SearchWorkspace.IntQueue queue = workspace.queue(0);
+			workspace.mark(0, cu, 0);
+			queue.add(cu);
+			while (!queue.isEmpty()) {
+				int u = queue.poll();
+				for (int e = this.dagOffsets[u]; e < this.dagOffsets[u + 1]; e++) {
+					int w = this.dagTargets[e];
+					if (w == cv) return true;
+					if (mayReach(w, cv) && workspace.mark(0, w, 0)) {
+						queue.add(w);
+					}
+				}
+			}
+			return false;
+		} finally {
+			workspace.release();
+		}
+	}
+
+	/**
+	 * @return false if the filters prove that component cu cannot reach component cv
+	 */
+	boolean mayReach(int cu, int cv) {
+		if (this.level[cu] >= this.level[cv]) return false;
+		for (int k = 0; k < TRAVERSALS; k++) {
+			if (this.low[k][cv] < this.low[k][cu] || this.post[k][cv] > this.post[k][cu]) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,202 @@
+package graphs;
+
+import static graphs.TestGraphs.keys;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks ReachabilityIndex and Graph.isReachable against plain breadth-first search.
+ */
+public class ReachabilityIndexTest {
+
+	/**
+	 * Mostly edges from lower to higher keys, so the condensation is a deep DAG, plus a few short
+	 * back edges that make small strongly connected components.
+	 */
+	private static void addDagHeavyEdges(Graph<Integer> g, int n, int edges, Random random) {
+		for (int i = 0; i < edges; i++) {
+			int from = random.nextInt(n), to = random.nextInt(n);
+			if (random.nextInt(20) == 0) {
+				to = Math.max(0, from - 1 - random.nextInt(3));
+			} else if (from > to) {
+				int swap = from;
+				from = to;
+				to = swap;
+			}
+			g.addEdge(from, to);
+		}
+	}
+
+	/**
+	 * @return reaches[u][v], computed by a breadth-first search from every vertex
+	 */
+	private static boolean[][] bfsReachability(Graph<Integer> g, int n) {
+		boolean[][] reaches = new boolean[n][n];
+		for (int source = 0; source < n; source++) {
+			List<Integer> queue = new ArrayList<Integer>();
+			queue.add(source);
+			reaches[source][source] = true;
+			for (int head = 0; head < queue.size(); head++) {
+				for (int w : g.successorSet(queue.get(head))) {
+					if (!reaches[source][w]) {
+						reaches[source][w] = true;
+						queue.add(w);
+					}
+				}
+			}
+		}
+		return reaches;
+	}
+
+	@Test
+	public void testIndexMatchesSearch() {
+		int rejected = 0, searchedUnreachable = 0, searchedReachable = 0;
+		for (long seed = 0; seed < 3; seed++) {
+			int n = 400;
+			Random random = new Random(seed);
+			Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+			addDagHeavyEdges(g, n, 2 * n, random);
+			boolean[][] reaches = bfsReachability(g, n);
+
+			CSRGraph<Integer> csr = CSRGraph.from(g);
+			ReachabilityIndex index = ReachabilityIndex.of(csr);
+			for (int u = 0; u < n; u++) {
+				for (int v = 0; v < n; v++) {
+					int from = csr.indexOf(u), to = csr.indexOf(v);
+					assertEquals(reaches[u][v], index.isReachable(from, to));
+					int cu = index.componentOf(from), cv = index.componentOf(to);
+					if (cu == cv) continue;
+					if (!index.mayReach(cu, cv)) {
+						assertFalse(reaches[u][v]);
+						rejected++;
+					} else if (reaches[u][v]) {
+						searchedReachable++;
+					} else {
+						searchedUnreachable++;
+					}
+				}
+			}
+			for (int i = 0; i < 2000; i++) {
+				int u = random.nextInt(n), v = random.nextInt(n);
+				assertEquals(reaches[u][v], g.isReachable(u, v));
+				assertEquals(reaches[u][v], csr.isReachable(u, v));
+			}
+		}
+		// both the filters and the DAG search decide some of the pairs
+		assertTrue(rejected > 0);
+		assertTrue(searchedReachable > 0);
+		assertTrue(searchedUnreachable > 0);
+	}
+
+	@Test
+	public void testAfterEdgeChanges() {
+		// the adjacency list graph builds its index from maintained components, whose ids have gaps
+		// once components merge and split
+		int n = 300;
+		Random random = new Random(7);
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+		Graph<Integer> expected = new AdjacencyMatrixGraph<Integer>(keys(n));
+		addDagHeavyEdges(g, n, 2 * n, random);
+		for (int u = 0; u < n; u++) {
+			for (int v : g.successorSet(u)) expected.addEdge(u, v);
+		}
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 30; i++) {
+				int from = random.nextInt(n), to = random.nextInt(n);
+				if (random.nextBoolean()) {
+					g.addEdge(from, to);
+					expected.addEdge(from, to);
+				} else {
+					g.removeEdge(from, to);
+					expected.removeEdge(from, to);
+				}
+			}
+			for (int i = 0; i < 500; i++) {
+				int u = random.nextInt(n), v = random.nextInt(n);
+				assertEquals(expected.isReachable(u, v), g.isReachable(u, v));
+			}
+		}
+	}
+
+	@Test
+	public void testSingleEdgeChanges() {
+		// One change between queries, so the list graph keeps its index across additions that
+		// were already implied and removals inside components, and shortestPath filters pairs
+		// without isReachable having been called first
+		int n = 200;
+		Random random = new Random(8);
+		Graph<Integer> g = new AdjacencyListGraph<Integer>(keys(n));
+		Graph<Integer> expected = new AdjacencyMatrixGraph<Integer>(keys(n));
+		List<int[]> edges = new ArrayList<int[]>();
+		for (int step = 0; step < 1500; step++) {
+			int from = random.nextInt(n), to = random.nextInt(n);
+			int kind = random.nextInt(3);
+			if (kind == 0 && !edges.isEmpty()) {
+				int[] edge = edges.remove(random.nextInt(edges.size()));
+				assertEquals(expected.removeEdge(edge[0], edge[1]), g.removeEdge(edge[0], edge[1]));
+			} else if (kind == 1 || expected.isReachable(from, to)) {
+				assertEquals(expected.addEdge(from, to), g.addEdge(from, to));
+				edges.add(new int[] {from, to});
+			}
+			for (int i = 0; i < 5; i++) {
+				int u = random.nextInt(n), v = random.nextInt(n);
+				List<Integer> path = g.shortestPath(u, v), expectedPath = expected.shortestPath(u, v);
+				assertEquals(expectedPath == null, path == null);
+				if (path != null) assertEquals(expectedPath.size(), path.size());
+				u = random.nextInt(n);
+				v = random.nextInt(n);
+				assertEquals(expected.isReachable(u, v), g.isReachable(u, v));
+			}
+		}
+	}
+
+	@Test
+	public void testDeepChainOfSmallComponents() {
+		// 2-cycles joined one way, in index order: each split of the SCC decomposition peels off
+		// one cycle, so this once overflowed the stack of ordinary point queries
+		int n = 5 * ParallelSCC.SEQUENTIAL_THRESHOLD;
+		CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<Integer>(keys(n));
+		for (int v = 0; v < n; v += 2) {
+			builder.addEdge(v, v + 1);
+			builder.addEdge(v + 1, v);
+			if (v + 2 < n) builder.addEdge(v + 1, v + 2);
+		}
+		CSRGraph<Integer> g = builder.build();
+		ReachabilityIndex index = ReachabilityIndex.of(g);
+		assertEquals(n / 2, index.componentCount());
+		Random random = new Random(9);
+		for (int i = 0; i < 2000; i++) {
+			int u = random.nextInt(n), v = random.nextInt(n);
+			assertEquals(v / 2 >= u / 2, index.isReachable(u, v));
+			assertEquals(v / 2 >= u / 2, g.isReachable(g.keyAt(u), g.keyAt(v)));
+		}
+		assertEquals(n, g.shortestPath(g.keyAt(0), g.keyAt(n - 1)).size());
+		assertNull(g.shortestPath(g.keyAt(n - 1), g.keyAt(0)));
+	}
+
+	@Test
+	public void testBuilder() {
+		// components {0, 1}, {2}, {3} and {4}; id 2 is unused
+		int[] component = {0, 0, 1, 3, 4};
+		ReachabilityIndex.Builder builder = new ReachabilityIndex.Builder(component, 5);
+		builder.addEdge(0, 1);
+		builder.addEdge(1, 0);
+		builder.addEdge(1, 2);
+		builder.addEdge(2, 3);
+		ReachabilityIndex index = builder.build();
+		assertTrue(index.isReachable(1, 0));
+		assertTrue(index.isReachable(0, 3));
+		assertFalse(index.isReachable(3, 0));
+		assertFalse(index.isReachable(0, 4));
+		assertFalse(index.isReachable(4, 2));
+		assertEquals(5, index.componentCount());
+	}
+}
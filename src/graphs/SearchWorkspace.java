@@ -0,0 +1,157 @@
+package graphs;
+
+import java.util.Arrays;
+
+/**
+ * Scratch space for one graph search, pooled per thread so that concurrent read queries neither
+ * share state nor allocate per-vertex structures once the pool is warm.
+ *
+ * A workspace has two sides (for example forward and backward), each with a per-vertex mark and
+ * value and a queue. Marks are epoch-stamped: a vertex is marked in the current search if its
+ * stamp equals the current epoch, so starting a new search is just incrementing the epoch rather
+ * than clearing arrays of size() entries.
+ *
+ * Use acquire at the start of a query and release in a finally block. A query that starts another
+ * one on the same thread gets a fresh, unpooled workspace for the inner one.
+ */
+final class SearchWorkspace {
+	static final int SIDES = 2;
+
+	private static final ThreadLocal<SearchWorkspace> POOL = new ThreadLocal<SearchWorkspace>() {
+		@Override
+		protected SearchWorkspace initialValue() {
+			return new SearchWorkspace();
+		}
+	};
+
+	private final int[][] stamps = new int[SIDES][0];
+	private final int[][] values = new int[SIDES][0];
+	private final IntQueue[] queues = {new IntQueue(), new IntQueue()};
+	private int epoch;
+	private boolean inUse;
+
+	private SearchWorkspace() {
+	}
+
+	/**
+	 * @param vertexCount, the number of vertices of the graph to be searched
+	 * @return this thread's workspace, with nothing marked and empty queues
+	 */
+	static SearchWorkspace acquire(int vertexCount) {
+		SearchWorkspace workspace = POOL.get();
+		if (workspace.inUse) {
+			workspace = new SearchWorkspace();
+		}
+		workspace.inUse = true;
+		workspace.begin(vertexCount);
+		return workspace;
+	}
+
+	/**
+	 * Returns the workspace to the pool.
+	 */
+	void release() {
+		this.inUse = false;
+	}
+
+	private void begin(int vertexCount) {
+		if (this.stamps[0].length < vertexCount) {
+			for (int side = 0; side < SIDES; side++) {
+				this.stamps[side] = new int[vertexCount];
+				this.values[side] = new int[vertexCount];
+			}
+			this.epoch = 0;
+		}
+		if (++this.epoch == 0) {
+			// wrapped around: stale stamps could now match, so clear them
+			for (int side = 0; side < SIDES; side++) {
+				Arrays.fill(this.stamps[side], 0);
+			}
+			this.epoch = 1;
+		}
+		for (IntQueue queue : this.queues) {
+			queue.clear();
+		}
+	}
+
+	/**
+	 * Marks a vertex on one side, unless it is already marked.
+	 * @param side
+	 * @param vertex
+	 * @param value, stored with the mark (a parent or a distance, for example)
+	 * @return true if the vertex was not marked before
+	 */
+	boolean mark(int side, int vertex, int value) {
+		if (this.stamps[side][vertex] == this.epoch) return false;
+		this.stamps[side][vertex] = this.epoch;
+		this.values[side][vertex] = value;
+		return true;
+	}
+
+	boolean isMarked(int side, int vertex) {
+		return this.stamps[side][vertex] == this.epoch;
+	}
+
+	/**
+	 * @return the value stored when the vertex was marked on that side
+	 */
+	int value(int side, int vertex) {
+		return this.values[side][vertex];
+	}
+
+	IntQueue queue(int side) {
+		return this.queues[side];
+	}
+
+	/**
+	 * First-in first-out queue of ints in a ring buffer that doubles when full.
+	 */
+	static final class IntQueue {
+		private int[] items = new int[64];
+		private int head;
+		private int size;
+
+		void add(int item) {
+			if (this.size == this.items.length) {
+				int[] larger = new int[2 * this.items.length];
+				int firstPart = this.items.length - this.head;
+				System.arraycopy(this.items, this.head, larger, 0, firstPart);
+				System.arraycopy(this.items, 0, larger, firstPart, this.head);
+				this.items = larger;
+				this.head = 0;
+			}
+			this.items[(this.head + this.size) & (this.items.length - 1)] = item;
+			this.size++;
+		}
+
+		/**
+		 * @return the oldest item, which is removed
+		 */
+		int poll() {
+			int item = this.items[this.head];
+			this.head = (this.head + 1) & (this.items.length - 1);
+			this.size--;
+			return item;
+		}
+
+		/**
+		 * @return the oldest item, which stays in the queue
+		 */
+		int peek() {
+			return this.items[this.head];
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		void clear() {
+			this.head = 0;
+			this.size = 0;
+		}
+	}
+}
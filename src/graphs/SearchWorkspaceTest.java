@@ -0,0 +1,159 @@
+package graphs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class SearchWorkspaceTest {
+	private static final int THREADS = 8;
+
+	@Test
+	public void testQueueWrapsAround() {
+		SearchWorkspace.IntQueue queue = new SearchWorkspace.IntQueue();
+		int next = 0, expected = 0;
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < 3 * round; i++) queue.add(next++);
+			for (int i = 0; i < 2 * round; i++) assertEquals(expected++, queue.poll());
+		}
+		while (!queue.isEmpty()) assertEquals(expected++, queue.poll());
+		assertEquals(next, expected);
+	}
+
+	@Test
+	public void testEpochsAndNesting() {
+		SearchWorkspace outer = SearchWorkspace.acquire(10);
+		assertTrue(outer.mark(0, 3, 7));
+		assertFalse(outer.mark(0, 3, 8));
+		assertEquals(7, outer.value(0, 3));
+		assertFalse(outer.isMarked(1, 3));
+		SearchWorkspace inner = SearchWorkspace.acquire(10);
+		assertNotSame(outer, inner);
+		assertFalse(inner.isMarked(0, 3));
+		inner.release();
+		assertTrue(outer.isMarked(0, 3));
+		outer.release();
+
+		SearchWorkspace again = SearchWorkspace.acquire(20);
+		assertSame(outer, again);
+		assertFalse(again.isMarked(0, 3));
+		again.release();
+	}
+
+	/**
+	 * The same random graph in every implementation.
+	 */
+	private static List<Graph<Integer>> graphs(long seed) {
+		Random random = new Random(seed);
+		Set<Integer> keys = new HashSet<Integer>();
+		for (int i = 0; i < 1000; i++) keys.add(i);
+		List<Graph<Integer>> graphs = new ArrayList<Graph<Integer>>();
+		graphs.add(new AdjacencyListGraph<Integer>(keys));
+		graphs.add(new AdjacencyMatrixGraph<Integer>(keys));
+		for (int e = 0; e < 2500; e++) {
+			int from = random.nextInt(1000), to = random.nextInt(1000);
+			for (Graph<Integer> g : graphs) g.addEdge(from, to);
+		}
+		graphs.add(CSRGraph.from(graphs.get(0)));
+		graphs.add(CompressedGraph.from(CSRGraph.from(graphs.get(0))));
+		return graphs;
+	}
+
+	private static int[][] pairs(long seed) {
+		Random random = new Random(seed);
+		int[][] pairs = new int[200][2];
+		for (int[] pair : pairs) {
+			pair[0] = random.nextInt(1000);
+			pair[1] = random.nextInt(1000);
+		}
+		return pairs;
+	}
+
+	/**
+	 * Many threads query the same graphs at once and must get the answers of a single thread.
+	 */
+	@Test
+	public void testConcurrentQueries() throws Exception {
+		final List<Graph<Integer>> graphs = graphs(18);
+		final int[][] pairs = pairs(18);
+		final List<Object> expected = answers(graphs, pairs);
+
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<List<Object>>> results = new ArrayList<Future<List<Object>>>();
+			for (int t = 0; t < THREADS; t++) {
+				results.add(pool.submit(new Callable<List<Object>>() {
+					@Override
+					public List<Object> call() {
+						return answers(graphs, pairs);
+					}
+				}));
+			}
+			for (Future<List<Object>> result : results) {
+				assertEquals(expected, result.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * As above, but the threads start together on graphs that have never been queried, so the
+	 * lazily built components and reachability indexes are built while other threads read them.
+	 */
+	@Test
+	public void testConcurrentQueriesOnColdCaches() throws Exception {
+		final int[][] pairs = pairs(19);
+		final List<Object> expected = answers(graphs(19), pairs);
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			for (int round = 0; round < 5; round++) {
+				final List<Graph<Integer>> graphs = graphs(19);
+				final CyclicBarrier start = new CyclicBarrier(THREADS);
+				List<Future<List<Object>>> results = new ArrayList<Future<List<Object>>>();
+				for (int t = 0; t < THREADS; t++) {
+					results.add(pool.submit(new Callable<List<Object>>() {
+						@Override
+						public List<Object> call() throws Exception {
+							start.await();
+							return answers(graphs, pairs);
+						}
+					}));
+				}
+				for (Future<List<Object>> result : results) {
+					assertEquals(expected, result.get());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static List<Object> answers(List<Graph<Integer>> graphs, int[][] pairs) {
+		List<Object> answers = new ArrayList<Object>();
+		for (Graph<Integer> g : graphs) {
+			for (int[] pair : pairs) {
+				List<Integer> path = g.shortestPath(pair[0], pair[1]);
+				answers.add(path == null ? -1 : path.size());
+				answers.add(g.isReachable(pair[0], pair[1]));
+				answers.add(g.stronglyConnectedComponent(pair[0]));
+				answers.add(g.distancesFrom(pair[1]));
+			}
+		}
+		return answers;
+	}
+}
@@ -0,0 +1,25 @@
+package graphs;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Fixtures shared by the tests.
+ */
+final class TestGraphs {
+
+	private TestGraphs() {
+	}
+
+	/**
+	 * @param n
+	 * @return the keys 0, 1, ..., n - 1
+	 */
+	static Set<Integer> keys(int n) {
+		Set<Integer> keys = new HashSet<Integer>();
+		for (int i = 0; i < n; i++) {
+			keys.add(i);
+		}
+		return keys;
+	}
+}
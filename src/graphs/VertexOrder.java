@@ -0,0 +1,242 @@
+package graphs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Strategies for renumbering the vertices of a CSRGraph so that vertices that are traversed
+ * together are stored together, which makes traversals hit the cache more often and gives
+ * CompressedGraph smaller gaps. All of them treat the graph as undirected.
+ * Use CSRGraph.from(graph, order) to build a renumbered graph; the keys do not change.
+ */
+public enum VertexOrder {
+	/**
+	 * The order the graph already has.
+	 */
+	ORIGINAL,
+	/**
+	 * Breadth-first order, starting from the vertex of highest degree in each component.
+	 */
+	BFS,
+	/**
+	 * Reverse Cuthill-McKee: breadth-first from a low-degree vertex, visiting neighbors in
+	 * increasing order of degree, then reversed. Keeps the ids of neighbors close together.
+	 */
+	REVERSE_CUTHILL_MCKEE,
+	/**
+	 * Decreasing degree, so that the hubs most traversals touch share cache lines.
+	 */
+	DEGREE,
+	/**
+	 * Communities found by label propagation, largest community first and each one in
+	 * breadth-first order. A cheap stand-in for Rabbit order or Gorder.
+	 */
+	COMMUNITY;
+
+	static final int LABEL_PROPAGATION_ROUNDS = 5;
+
+	/**
+	 * @param graph
+	 * @return the new order: element i is the current index of the vertex that gets index i
+	 */
+	public int[] order(CSRGraph<?> graph) {
+		switch (this) {
+		case BFS:
+			return breadthFirst(graph, verticesByDegree(graph, false), false);
+		case REVERSE_CUTHILL_MCKEE: {
+			int[] order = breadthFirst(graph, verticesByDegree(graph, true), true);
+			for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+				int swap = order[i];
+				order[i] = order[j];
+				order[j] = swap;
+			}
+			return order;
+		}
+		case DEGREE:
+			return verticesByDegree(graph, false);
+		case COMMUNITY:
+			return communities(graph);
+		default:
+			int[] identity = new int[graph.size()];
+			for (int v = 0; v < identity.length; v++) identity[v] = v;
+			return identity;
+		}
+	}
+
+	private static int degree(CSRGraph<?> graph, int v) {
+		return graph.outOffsets[v + 1] - graph.outOffsets[v] + graph.inOffsets[v + 1] - graph.inOffsets[v];
+	}
+
+	/**
+	 * Counting sort of the vertex indices by degree; ties keep index order.
+	 */
+	private static int[] verticesByDegree(CSRGraph<?> graph, boolean increasing) {
+		int n = graph.size();
+		int maxDegree = 0;
+		for (int v = 0; v < n; v++) maxDegree = Math.max(maxDegree, degree(graph, v));
+		int[] start = new int[maxDegree + 2];
+		for (int v = 0; v < n; v++) {
+			int d = degree(graph, v);
+			start[(increasing ? d : maxDegree - d) + 1]++;
+		}
+		for (int d = 0; d <= maxDegree; d++) start[d + 1] += start[d];
+		int[] order = new int[n];
+		for (int v = 0; v < n; v++) {
+			int d = degree(graph, v);
+			order[start[increasing ? d : maxDegree - d]++] = v;
+		}
+		return order;
+	}
+
+	/**
+	 * Breadth-first over successors and predecessors. A new search starts from the first unvisited
+	 * vertex of roots whenever the previous one runs out.
+	 * @param byDegree, whether to visit each vertex's neighbors in increasing order of degree
+	 */
+	private static int[] breadthFirst(CSRGraph<?> graph, int[] roots, boolean byDegree) {
+		int n = graph.size();
+		boolean[] visited = new boolean[n];
+		int[] order = new int[n];
+		int tail = 0;
+		for (int root : roots) {
+			if (visited[root]) continue;
+			visited[root] = true;
+			order[tail++] = root;
+			for (int head = tail - 1; head < tail; head++) {
+				int v = order[head];
+				int levelStart = tail;
+				tail = visitNeighbors(graph.outOffsets, graph.outTargets, v, visited, order, tail);
+				tail = visitNeighbors(graph.inOffsets, graph.inTargets, v, visited, order, tail);
+				if (byDegree) sortByDegree(graph, order, levelStart, tail);
+			}
+		}
+		return order;
+	}
+
+	private static int visitNeighbors(int[] offsets, int[] targets, int v, boolean[] visited, int[] order, int tail) {
+		for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+			int w = targets[e];
+			if (!visited[w]) {
+				visited[w] = true;
+				order[tail++] = w;
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Insertion sort of order[from..to) by degree; neighbor lists are mostly short.
+	 */
+	private static void sortByDegree(CSRGraph<?> graph, int[] order, int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			int v = order[i], d = degree(graph, v);
+			int j = i - 1;
+			while (j >= from && degree(graph, order[j]) > d) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = v;
+		}
+	}
+
+	/**
+	 * Label propagation: every vertex starts in its own community and repeatedly joins the most
+	 * common community among its neighbors (ties go to the smallest label), visiting vertices in a
+	 * fixed shuffled order. Communities are then laid out largest first, each in breadth-first order
+	 * restricted to the community.
+	 */
+	private static int[] communities(CSRGraph<?> graph) {
+		int n = graph.size();
+		int[] label = new int[n];
+		for (int v = 0; v < n; v++) label[v] = v;
+		int[] visitOrder = label.clone();
+		Random random = new Random(n);
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = visitOrder[i];
+			visitOrder[i] = visitOrder[j];
+			visitOrder[j] = swap;
+		}
+		// counts[label] for the labels around one vertex; touched lists which to clear
+		int[] counts = new int[n];
+		int[] touched = new int[n];
+		for (int round = 0; round < LABEL_PROPAGATION_ROUNDS; round++) {
+			boolean changed = false;
+			for (int v : visitOrder) {
+				int touchedCount = 0;
+				for (int pass = 0; pass < 2; pass++) {
+					int[] offsets = pass == 0 ? graph.outOffsets : graph.inOffsets;
+					int[] targets = pass == 0 ? graph.outTargets : graph.inTargets;
+					for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+						int l = label[targets[e]];
+						if (counts[l]++ == 0) touched[touchedCount++] = l;
+					}
+				}
+				int best = label[v], bestCount = 0;
+				for (int i = 0; i < touchedCount; i++) {
+					int l = touched[i];
+					if (counts[l] > bestCount || (counts[l] == bestCount && l < best)) {
+						best = l;
+						bestCount = counts[l];
+					}
+					counts[l] = 0;
+				}
+				if (best != label[v]) {
+					label[v] = best;
+					changed = true;
+				}
+			}
+			if (!changed) break;
+		}
+
+		// Group by community, largest first
+		int[] size = new int[n];
+		for (int v = 0; v < n; v++) size[label[v]]++;
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int l = 0; l < n; l++) {
+			if (size[l] > 0) ids.add(l);
+		}
+		final int[] sizes = size;
+		Collections.sort(ids, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return sizes[b] != sizes[a] ? sizes[b] - sizes[a] : a - b;
+			}
+		});
+		int[] start = new int[n];
+		int position = 0;
+		for (int l : ids) {
+			start[l] = position;
+			position += size[l];
+		}
+		// Breadth-first inside each community, from its first vertex in index order
+		int[] order = new int[n];
+		int[] fill = start.clone();
+		boolean[] visited = new boolean[n];
+		for (int root = 0; root < n; root++) {
+			if (visited[root]) continue;
+			int l = label[root];
+			int head = fill[l];
+			visited[root] = true;
+			order[fill[l]++] = root;
+			for (; head < fill[l]; head++) {
+				int v = order[head];
+				for (int pass = 0; pass < 2; pass++) {
+					int[] offsets = pass == 0 ? graph.outOffsets : graph.inOffsets;
+					int[] targets = pass == 0 ? graph.outTargets : graph.inTargets;
+					for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+						int w = targets[e];
+						if (!visited[w] && label[w] == l) {
+							visited[w] = true;
+							order[fill[l]++] = w;
+						}
+					}
+				}
+			}
+		}
+		return order;
+	}
+}
@@ -1,93 +1,336 @@
 package graphs;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 public class WikiSurfing {
+	static final String PAGE_NAMES_FILE_NAME = "../GraphSurfingData/wiki-livingpeople-names.txt";
+	static final String LINKS_FILE_NAME = "../GraphSurfingData/wiki-livingpeople-links.txt";
+	static final String SNAPSHOT_FILE_NAME = "../GraphSurfingData/wiki-livingpeople.snapshot";
+
+	/*
+	 * Snapshot layout. All ints are big-endian, and every section starts on a 4-byte boundary.
+	 *   header:        SNAPSHOT_HEADER_INTS ints: magic, version, vertex count n, edge count m,
+	 *                  label byte count L, then zeros
+	 *   label offsets: n+1 ints; the UTF-8 name of vertex v is label bytes [offsets[v], offsets[v+1])
+	 *   label bytes:   L bytes, zero-padded to a multiple of 4
+	 *   sorted ids:    n ints, the vertex ids in increasing (unsigned byte) order of their names
+	 *   successors:    n+1 offsets, then m targets
+	 *   predecessors:  n+1 offsets, then m targets
+	 */
+	static final int SNAPSHOT_MAGIC = 0x57534731; // "WSG1"
+	static final int SNAPSHOT_VERSION = 1;
+	static final int SNAPSHOT_HEADER_INTS = 8;
 
 	/**
 	 * Generates the Wikipedia graph for the Living People category, using adjacency lists.
+	 * The edges come from wikiLivingPeopleGraphCSR, so a fresh snapshot is used if there is one,
+	 * but none is written.
 	 * @return graph
 	 */
 	public static AdjacencyListGraph<String> wikiLivingPeopleGraphAL(boolean verbose) {
-		String pageNamesFileName = "../GraphSurfingData/wiki-livingpeople-names.txt";
-		String linksFileName = "../GraphSurfingData/wiki-livingpeople-links.txt";
-		Map<Integer,String> indexToKey = new HashMap<Integer,String>();
-		Map<String,Integer> keyToIndex = new HashMap<String,Integer>();
+		return wikiLivingPeopleGraphAL(verbose, false);
+	}
+	
+	
+	/**
+	 * Generates the Wikipedia graph for the Living People category, using adjacency lists.
+	 * The edges come from wikiLivingPeopleGraphCSR. PathsOnDemand writes the snapshot, so after
+	 * its first run it and the milestone tests start from the snapshot instead of the text files.
+	 * @param verbose
+	 * @param writeSnapshot, if true and the text files were parsed, writes a new snapshot next to
+	 * them for later runs
+	 * @return graph
+	 */
+	public static AdjacencyListGraph<String> wikiLivingPeopleGraphAL(boolean verbose, boolean writeSnapshot) {
+		CSRGraph<String> csr = wikiLivingPeopleGraphCSR(verbose, writeSnapshot);
+		AdjacencyListGraph<String> graph = new AdjacencyListGraph<String>(csr.keySet());
+		for (int v = 0; v < csr.size(); v++) {
+			String from = csr.keyAt(v);
+			for (int e = csr.outOffsets[v]; e < csr.outOffsets[v + 1]; e++) {
+				graph.addEdge(from, csr.keyAt(csr.outTargets[e]));
+			}
+		}
 		if (verbose) {
-			System.out.println("Reading vertices");
+			System.out.printf("Constructed LivingPeople graph with %d vertices and %d edges%n",graph.size(),graph.numEdges());
+		}
+		return graph;
+	}
+	
+	
+	/**
+	 * Generates the Wikipedia graph for the Living People category as a frozen CSRGraph.
+	 * Reads the binary snapshot if it is newer than the text files. Otherwise parses the text
+	 * files in parallel with ParallelGraphLoader, without writing a snapshot.
+	 * @return graph
+	 */
+	public static CSRGraph<String> wikiLivingPeopleGraphCSR(boolean verbose) {
+		return wikiLivingPeopleGraphCSR(verbose, false);
+	}
+	
+	
+	/**
+	 * Generates the Wikipedia graph for the Living People category as a frozen CSRGraph.
+	 * Reads the binary snapshot if it is newer than the text files. Otherwise parses the text
+	 * files in parallel with ParallelGraphLoader.
+	 * @param verbose
+	 * @param writeSnapshot, if true and the text files were parsed, writes a new snapshot next to
+	 * them for later runs
+	 * @return graph
+	 */
+	public static CSRGraph<String> wikiLivingPeopleGraphCSR(boolean verbose, boolean writeSnapshot) {
+		if (snapshotIsFresh()) {
+			CSRGraph<String> snapshot = loadSnapshot(SNAPSHOT_FILE_NAME, verbose);
+			if (snapshot != null) {
+				return snapshot;
+			}
 		}
-		readVertices(indexToKey, keyToIndex, pageNamesFileName);
-		AdjacencyListGraph<String> graph = new AdjacencyListGraph<String>(keyToIndex.keySet());
 		if (verbose) {
-			System.out.println("Reading edges");
+			System.out.println("Reading vertices and edges");
+		}
+		CSRGraph<String> graph;
+		try {
+			graph = new ParallelGraphLoader().load(new File(PAGE_NAMES_FILE_NAME), new File(LINKS_FILE_NAME));
+		} catch (IOException e) {
+			System.err.printf("Could not read %s and %s (%s)%n",PAGE_NAMES_FILE_NAME,LINKS_FILE_NAME,e.getMessage());
+			throw new UncheckedIOException(e);
 		}
-		readEdges(graph, indexToKey, linksFileName);
 		if (verbose) {
-			System.out.printf("Constructed LivingPeople graph with %d vertices and %d edges%n",graph.size(),graph.numEdges());
+			System.out.printf("Constructed LivingPeople CSR graph with %d vertices and %d edges%n",graph.size(),graph.numEdges());
+		}
+		if (writeSnapshot) {
+			saveSnapshot(graph, verbose);
+		}
+		return graph;
+	}
+	
+	
+	/**
+	 * Opens the Wikipedia graph for the Living People category as a memory-mapped snapshot, so
+	 * that several processes share one copy. Builds the snapshot first if it is missing or stale.
+	 * @return graph
+	 * @throws IOException if the snapshot cannot be written or mapped
+	 */
+	public static MappedGraph wikiLivingPeopleGraphMapped(boolean verbose) throws IOException {
+		if (!snapshotIsFresh()) {
+			wikiLivingPeopleGraphCSR(verbose, true);
+		}
+		MappedGraph graph = MappedGraph.open(new File(SNAPSHOT_FILE_NAME));
+		if (verbose) {
+			System.out.printf("Mapped LivingPeople snapshot with %d vertices and %d edges%n",graph.size(),graph.numEdges());
 		}
 		return graph;
 	}
 	
 	
 	/**
-	 * Reads in the page names (vertex labels). 
-	 * @param indexToKey, a map to populate with index-to-key translations
-	 * @param keyToIndex, a map to populate with key-to-index translations
-	 * @param pageNamesFileName, the file containing all keys and associated indices
+	 * @return true if the snapshot exists and is newer than both text files
+	 */
+	private static boolean snapshotIsFresh() {
+		File snapshot = new File(SNAPSHOT_FILE_NAME);
+		return snapshot.isFile()
+				&& snapshot.lastModified() > new File(PAGE_NAMES_FILE_NAME).lastModified()
+				&& snapshot.lastModified() > new File(LINKS_FILE_NAME).lastModified();
+	}
+	
+	
+	/**
+	 * @return the graph in the snapshot, or null if it cannot be read
 	 */
-	private static void readVertices(Map<Integer,String> indexToKey, 
-			Map<String,Integer> keyToIndex, String pageNamesFileName) {
-		Scanner sc = null;
+	static CSRGraph<String> loadSnapshot(String fileName, boolean verbose) {
 		try {
-			sc = new Scanner(new File(pageNamesFileName), "utf-8");
-		} catch (FileNotFoundException e) {
-			System.err.printf("Could not find file %s%n",pageNamesFileName);
-		}
-		// Searches for a number (-> index), followed by a space, followed by the remainder of the line (-> pageName)
-		Pattern pageNamePattern = Pattern.compile("(\\d*)( )(.*)"); 
-		while (sc.hasNextLine()) {
-			Matcher matcher = pageNamePattern.matcher(sc.nextLine());
-			if (matcher.find()) {
-				int index = Integer.parseInt(matcher.group(1));
-				String pageName = matcher.group(3);
-				indexToKey.put(index, pageName);
-				keyToIndex.put(pageName, index);
+			long start = System.currentTimeMillis();
+			CSRGraph<String> graph = readSnapshot(fileName);
+			if (verbose) {
+				System.out.printf("Read LivingPeople snapshot with %d vertices and %d edges in %d ms%n",
+						graph.size(),graph.numEdges(),System.currentTimeMillis() - start);
 			}
+			return graph;
+		} catch (IOException e) {
+			System.err.printf("Could not read snapshot %s (%s); reading text files instead%n",fileName,e.getMessage());
+			return null;
 		}
 	}
-		
-		
+	
+	
+	private static void saveSnapshot(CSRGraph<String> graph, boolean verbose) {
+		try {
+			writeSnapshot(graph, SNAPSHOT_FILE_NAME);
+			if (verbose) {
+				System.out.printf("Wrote snapshot %s%n",SNAPSHOT_FILE_NAME);
+			}
+		} catch (IOException e) {
+			System.err.printf("Could not write snapshot %s (%s)%n",SNAPSHOT_FILE_NAME,e.getMessage());
+		}
+	}
+	
+	
+	/**
+	 * Writes a graph in the binary snapshot format described above.
+	 * @param graph, the graph to write
+	 * @param fileName, the file to create or replace
+	 * @throws IOException
+	 */
+	public static void writeSnapshot(CSRGraph<String> graph, String fileName) throws IOException {
+		int n = graph.size();
+		final byte[][] labels = new byte[n][];
+		int[] labelOffsets = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			labels[v] = graph.keyAt(v).getBytes(StandardCharsets.UTF_8);
+			labelOffsets[v + 1] = labelOffsets[v] + labels[v].length;
+		}
+		Integer[] sorted = new Integer[n];
+		for (int v = 0; v < n; v++) {
+			sorted[v] = v;
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return compareUnsigned(labels[a], labels[b]);
+			}
+		});
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+		try {
+			int[] header = new int[SNAPSHOT_HEADER_INTS];
+			header[0] = SNAPSHOT_MAGIC;
+			header[1] = SNAPSHOT_VERSION;
+			header[2] = n;
+			header[3] = graph.numEdges();
+			header[4] = labelOffsets[n];
+			writeInts(out, header);
+			writeInts(out, labelOffsets);
+			for (byte[] label : labels) {
+				out.write(label);
+			}
+			for (int pad = labelOffsets[n]; pad % 4 != 0; pad++) {
+				out.write(0);
+			}
+			for (int v : sorted) {
+				out.writeInt(v);
+			}
+			writeInts(out, graph.outOffsets);
+			writeInts(out, graph.outTargets);
+			writeInts(out, graph.inOffsets);
+			writeInts(out, graph.inTargets);
+		} finally {
+			out.close();
+		}
+	}
+	
+	
 	/**
-	 * Reads in the edges from the given file and adds them to the graph.
-	 * Only adds edges for which there exist vertices already in the graph.
-	 * @param graph, the graph to add edges to
-	 * @param indexToKey, a map from indices to keys
-	 * @param linksFileName, the file of index pairs to read edges from
+	 * Reads a graph written by writeSnapshot. The section sizes are checked against the file
+	 * length, and every offset and target against the vertex and edge counts, so a truncated or
+	 * corrupt file is reported instead of failing later inside a query.
+	 * @param fileName
+	 * @return the graph
+	 * @throws IOException if the file cannot be read or is not a valid snapshot
 	 */
-	private static void readEdges(Graph<String> graph, Map<Integer,String> indexToKey, String linksFileName) {
-		/*
-		 * Read in the edges
-		 */
-		Scanner sc = null;
+	public static CSRGraph<String> readSnapshot(String fileName) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
 		try {
-			sc = new Scanner(new File(linksFileName));
-		} catch (FileNotFoundException e) {
-			System.err.printf("Could not find file %s%n",linksFileName);
-		}
-		while (sc.hasNext()) {
-			Integer fromInd = sc.nextInt();
-			String from = indexToKey.get(fromInd);
-			Integer toInd = sc.nextInt();
-			String to = indexToKey.get(toInd);
-			if (graph.hasVertex(to) && graph.hasVertex(from)) {
-				graph.addEdge(from, to);
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			IntBuffer ints = buffer.asIntBuffer();
+			int[] header = readInts(ints, SNAPSHOT_HEADER_INTS);
+			if (header[0] != SNAPSHOT_MAGIC || header[1] != SNAPSHOT_VERSION) {
+				throw new IOException("Not a version " + SNAPSHOT_VERSION + " graph snapshot: " + fileName);
+			}
+			int n = header[2], m = header[3], labelBytes = header[4];
+			long expected = 4L * (SNAPSHOT_HEADER_INTS + 4L * n + 3 + 2L * m) + 4L * ((labelBytes + 3L) / 4);
+			if (n < 0 || m < 0 || labelBytes < 0 || channel.size() != expected) {
+				throw new IOException("Corrupt graph snapshot: " + fileName);
+			}
+			int[] labelOffsets = readInts(ints, n + 1);
+			checkOffsets(labelOffsets, labelBytes, fileName);
+			byte[] bytes = new byte[labelBytes];
+			buffer.position(4 * ints.position());
+			buffer.get(bytes);
+			List<String> keys = new ArrayList<String>(n);
+			for (int v = 0; v < n; v++) {
+				keys.add(new String(bytes, labelOffsets[v], labelOffsets[v + 1] - labelOffsets[v], StandardCharsets.UTF_8));
+			}
+			ints.position(ints.position() + (labelBytes + 3) / 4 + n); // skip label bytes and sorted ids
+			int[] outOffsets = readInts(ints, n + 1);
+			int[] outTargets = readInts(ints, m);
+			int[] inOffsets = readInts(ints, n + 1);
+			int[] inTargets = readInts(ints, m);
+			checkOffsets(outOffsets, m, fileName);
+			checkOffsets(inOffsets, m, fileName);
+			checkTargets(outTargets, n, fileName);
+			checkTargets(inTargets, n, fileName);
+			return new CSRGraph<String>(keys, outOffsets, outTargets, inOffsets, inTargets);
+		} catch (RuntimeException e) {
+			// truncated or corrupt sections show up as buffer underflows or bad indices
+			throw new IOException("Corrupt graph snapshot: " + fileName, e);
+		} finally {
+			file.close();
+		}
+	}
+	
+	
+	/**
+	 * @throws IOException unless the offsets start at 0, never decrease and end at limit
+	 */
+	private static void checkOffsets(int[] offsets, int limit, String fileName) throws IOException {
+		if (offsets[0] != 0 || offsets[offsets.length - 1] != limit) {
+			throw new IOException("Corrupt graph snapshot: " + fileName);
+		}
+		for (int i = 1; i < offsets.length; i++) {
+			if (offsets[i] < offsets[i - 1]) throw new IOException("Corrupt graph snapshot: " + fileName);
+		}
+	}
+	
+	
+	/**
+	 * @throws IOException unless every target is a vertex index below n
+	 */
+	private static void checkTargets(int[] targets, int n, String fileName) throws IOException {
+		for (int target : targets) {
+			if (target < 0 || target >= n) throw new IOException("Corrupt graph snapshot: " + fileName);
+		}
+	}
+	
+	
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+	
+	
+	private static int[] readInts(IntBuffer ints, int count) {
+		int[] values = new int[count];
+		ints.get(values);
+		return values;
+	}
+	
+	
+	/**
+	 * Compares UTF-8 byte strings as unsigned bytes, which orders them by code point.
+	 */
+	static int compareUnsigned(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++) {
+			int difference = (a[i] & 0xff) - (b[i] & 0xff);
+			if (difference != 0) {
+				return difference;
 			}
 		}
+		return a.length - b.length;
 	}
 }
@@ -0,0 +1,162 @@
+package graphs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class WikiSurfingTest {
+
+	private static CSRGraph<String> randomGraph(int n, int edges, long seed) {
+		Random random = new Random(seed);
+		Set<String> keys = new LinkedHashSet<String>();
+		for (int i = 0; i < n; i++) {
+			// names of different byte lengths, so the label section needs padding
+			keys.add(i % 7 == 0 ? "Zo\u00eb " + i : i % 11 == 0 ? "\ud83d\ude00" + i : "person " + i);
+		}
+		keys.add("");
+		Graph<String> g = new AdjacencyListGraph<String>(keys);
+		String[] names = keys.toArray(new String[0]);
+		for (int i = 0; i < edges; i++) {
+			g.addEdge(names[random.nextInt(names.length)], names[random.nextInt(names.length)]);
+		}
+		return CSRGraph.from(g);
+	}
+
+	private static File snapshotOf(CSRGraph<String> graph) throws IOException {
+		File file = File.createTempFile("graph", ".snapshot");
+		file.deleteOnExit();
+		WikiSurfing.writeSnapshot(graph, file.getPath());
+		return file;
+	}
+
+	@Test
+	public void testWriteAndReadSnapshot() throws IOException {
+		for (long seed = 0; seed < 3; seed++) {
+			CSRGraph<String> graph = randomGraph(50 + 40 * (int) seed, 300, seed);
+			CSRGraph<String> copy = WikiSurfing.readSnapshot(snapshotOf(graph).getPath());
+			assertEquals(graph.size(), copy.size());
+			assertEquals(graph.numEdges(), copy.numEdges());
+			for (int v = 0; v < graph.size(); v++) {
+				assertEquals(graph.keyAt(v), copy.keyAt(v));
+				assertEquals(v, copy.indexOf(graph.keyAt(v)));
+			}
+			assertArrayEquals(graph.outOffsets, copy.outOffsets);
+			assertArrayEquals(graph.outTargets, copy.outTargets);
+			assertArrayEquals(graph.inOffsets, copy.inOffsets);
+			assertArrayEquals(graph.inTargets, copy.inTargets);
+			for (String key : graph.keySet()) {
+				assertEquals(graph.successorSet(key), copy.successorSet(key));
+				assertEquals(graph.predecessorSet(key), copy.predecessorSet(key));
+			}
+		}
+	}
+
+	@Test
+	public void testTruncatedSnapshotFallsBack() throws IOException {
+		File file = snapshotOf(randomGraph(100, 400, 5));
+		long length = file.length();
+		for (long truncated : new long[] {length - 1, length - 4, length / 2, 40, 31, 4, 0}) {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(truncated);
+			} finally {
+				raf.close();
+			}
+			try {
+				WikiSurfing.readSnapshot(file.getPath());
+				fail("Expected IOException for " + truncated + " bytes");
+			} catch (IOException e) {
+				// expected
+			}
+			// the loader reports the problem and returns null, so the text files are read instead
+			assertNull(WikiSurfing.loadSnapshot(file.getPath(), false));
+		}
+	}
+
+	@Test
+	public void testNotASnapshot() throws IOException {
+		File file = snapshotOf(randomGraph(10, 20, 6));
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.writeInt(WikiSurfing.SNAPSHOT_MAGIC + 1);
+		} finally {
+			raf.close();
+		}
+		try {
+			WikiSurfing.readSnapshot(file.getPath());
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Not a version"));
+		}
+		assertNull(WikiSurfing.loadSnapshot(file.getPath(), false));
+	}
+
+	private static void assertCorrupt(File file) throws IOException {
+		try {
+			WikiSurfing.readSnapshot(file.getPath());
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Corrupt graph snapshot"));
+		}
+		assertNull(WikiSurfing.loadSnapshot(file.getPath(), false));
+	}
+
+	@Test
+	public void testCorruptOffsetsAndTargets() throws IOException {
+		CSRGraph<String> graph = randomGraph(60, 200, 7);
+		int n = graph.size(), m = graph.numEdges();
+		File file = snapshotOf(graph);
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		int labelBytes;
+		try {
+			raf.seek(4 * 4);
+			labelBytes = raf.readInt();
+		} finally {
+			raf.close();
+		}
+		long labelOffsets = 4L * WikiSurfing.SNAPSHOT_HEADER_INTS;
+		long outOffsets = labelOffsets + 4L * (n + 1) + 4L * ((labelBytes + 3) / 4) + 4L * n;
+		long outTargets = outOffsets + 4L * (n + 1);
+		long inOffsets = outTargets + 4L * m;
+		long[][] corruptions = {
+			{labelOffsets + 4, labelBytes + 1},      // label offset past the label bytes
+			{outOffsets + 4 * 10, -1},               // negative, so not monotone
+			{outOffsets + 4 * 10, m + 1},            // past the edge count
+			{outOffsets + 4L * n, m - 1},            // does not end at the edge count
+			{inOffsets, 1},                          // does not start at 0
+			{outTargets + 4, n},                     // target out of range
+			{inOffsets + 4L * (n + 1), -1},          // negative target
+		};
+		for (long[] corruption : corruptions) {
+			File copy = snapshotOf(graph);
+			raf = new RandomAccessFile(copy, "rw");
+			try {
+				raf.seek(corruption[0]);
+				raf.writeInt((int) corruption[1]);
+			} finally {
+				raf.close();
+			}
+			assertCorrupt(copy);
+		}
+		// a header that claims more edges than the file holds
+		raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(3 * 4);
+			raf.writeInt(m + 1);
+		} finally {
+			raf.close();
+		}
+		assertCorrupt(file);
+	}
+}